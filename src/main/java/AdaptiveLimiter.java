@@ -0,0 +1,132 @@
+/**
+ * Adaptive limit on concurrent calls from the proxies to FullNode, tuned by AIMD once per interval:
+ * the limit shrinks by a quarter when the average upstream latency exceeds the target or the node falls
+ * more than maxLagBlocks behind the wall clock (API load is stalling block processing), and grows by one
+ * when the limit was reached while the node kept up. It stays between minLimit and maxLimit.
+ */
+public class AdaptiveLimiter implements Runnable {
+    private static final long ADJUST_INTERVAL_MS = 1000;
+    private static final double DECREASE_FACTOR = 0.75;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final long maxLagBlocks;
+    private final HeadTracker tracker;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // Guarded by this
+    private int limit;
+    private int inUse = 0;
+    private int peakInUse = 0;
+    private long windowCalls = 0;
+    private long windowLatencyNanos = 0;
+    private long rejected = 0;
+    private long decreases = 0;
+    private long increases = 0;
+
+    public AdaptiveLimiter(int fullNodePort, int minLimit, int maxLimit, long targetLatencyMs, long maxLagBlocks) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyMs * 1000000L;
+        this.maxLagBlocks = maxLagBlocks;
+        // Start in the middle; the first intervals move it towards what the node sustains
+        this.limit = Math.max(minLimit, (minLimit + maxLimit) / 2);
+        this.tracker = new HeadTracker(fullNodePort, HeadTracker.BLOCK_INTERVAL_MS, null);
+    }
+
+    public void start() {
+        tracker.start();
+        thread = new Thread(this, "adaptive-limiter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        tracker.stop();
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Wait up to waitMs for a free slot. Returns false (and counts a rejection) if none became free.
+     */
+    public synchronized boolean acquire(long waitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (inUse >= limit) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                rejected++;
+                return false;
+            }
+            wait(remaining);
+        }
+        inUse++;
+        peakInUse = Math.max(peakInUse, inUse);
+        return true;
+    }
+
+    /**
+     * Release a slot taken by acquire, with the latency of the upstream call made under it.
+     */
+    public synchronized void release(long latencyNanos) {
+        inUse--;
+        windowCalls++;
+        windowLatencyNanos += latencyNanos;
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(ADJUST_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long lag = tracker.lagBlocks();
+            adjust(lag > maxLagBlocks);
+        }
+    }
+
+    /**
+     * One AIMD step from the calls of the interval that just ended.
+     */
+    synchronized void adjust(boolean lagging) {
+        boolean slow = windowCalls > 0 && windowLatencyNanos / windowCalls > targetLatencyNanos;
+        int previous = limit;
+        if (lagging || slow) {
+            limit = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+        } else if (peakInUse >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        if (limit < previous) {
+            decreases++;
+        } else if (limit > previous) {
+            increases++;
+            notifyAll();
+        }
+        windowCalls = 0;
+        windowLatencyNanos = 0;
+        peakInUse = inUse;
+    }
+
+    /**
+     * Limiter metrics for the metrics endpoint.
+     */
+    public synchronized void collect(MetricsExporter metrics) {
+        metrics.gauge("tron_adaptive_limit", "Current limit on concurrent proxy calls to FullNode", limit);
+        metrics.gauge("tron_adaptive_limit_in_use", "Proxy calls to FullNode in progress", inUse);
+        metrics.counter("tron_adaptive_limit_decreases_total", "Times the limit was cut for latency or head lag", decreases);
+        metrics.counter("tron_adaptive_limit_increases_total", "Times the limit was raised", increases);
+        metrics.counter("tron_adaptive_limit_rejected_total", "Proxy calls rejected after waiting for a slot", rejected);
+    }
+}
@@ -0,0 +1,341 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caching HTTP proxy in front of the FullNode HTTP port for the hot read endpoints.
+ * Responses are kept in a size-bounded LRU with a TTL per endpoint, counted in blocks;
+ * blocks fetched by number at or below the solid head never change and are kept until evicted.
+ * Concurrent identical requests share one upstream call. Everything else is passed through.
+ */
+public class ApiCacheProxy {
+    // Requests and cacheable responses larger than this are passed through uncached
+    private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+    // With an adaptive limiter, an upstream request waits this long for a slot before it gets 503
+    private static final long LIMIT_WAIT_MS = 10000;
+    // java-tron reports most errors with status 200 and an "Error" field
+    private static final byte[] ERROR_PREFIX = "{\"Error\"".getBytes(StandardCharsets.UTF_8);
+    private static final Pattern NUM = Pattern.compile("\"num\"\\s*:\\s*(\\d+)");
+
+    /**
+     * TTL in blocks for each cached endpoint; solidity endpoints only change once a block is solid.
+     */
+    private static final Map<String, Long> TTL_BLOCKS = new HashMap<>();
+
+    static {
+        TTL_BLOCKS.put("/wallet/getnowblock", 0L);
+        TTL_BLOCKS.put("/walletsolidity/getnowblock", 1L);
+        TTL_BLOCKS.put("/wallet/getblockbynum", 1L);
+        TTL_BLOCKS.put("/walletsolidity/getblockbynum", 1L);
+        TTL_BLOCKS.put("/wallet/getblockbylatestnum", 0L);
+        TTL_BLOCKS.put("/wallet/getaccount", 1L);
+        TTL_BLOCKS.put("/walletsolidity/getaccount", 1L);
+        TTL_BLOCKS.put("/wallet/getaccountresource", 1L);
+        // Chain parameters only change at maintenance periods (every 6 hours)
+        TTL_BLOCKS.put("/wallet/getchainparameters", 20L);
+        TTL_BLOCKS.put("/wallet/getnodeinfo", 1L);
+        TTL_BLOCKS.put("/wallet/listwitnesses", 20L);
+    }
+
+    static final class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+        final long expiresAt;
+
+        Response(int status, String contentType, byte[] body, long expiresAt) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        long size() {
+            // Body plus a rough allowance for the key, the entry and the map node
+            return body.length + 256;
+        }
+    }
+
+    private final String upstream;
+    private final long maxBytes;
+    private final HeadTracker solidTracker;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LinkedHashMap<String, Response> cache = new LinkedHashMap<>(1024, 0.75f, true);
+    private final ConcurrentHashMap<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+    private long cacheBytes = 0;
+    private volatile AdaptiveLimiter limiter;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong passThrough = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong upstreamErrors = new AtomicLong();
+
+    public ApiCacheProxy(int port, int fullNodePort, long maxBytes, int threads) throws IOException {
+        this.upstream = "http://127.0.0.1:" + fullNodePort;
+        this.maxBytes = maxBytes;
+        this.solidTracker = new HeadTracker(fullNodePort, "/walletsolidity/getnowblock", HeadTracker.BLOCK_INTERVAL_MS, null);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "api-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Limit concurrent upstream requests (cache misses and pass-through) with limiter. Call before start().
+     */
+    public void setLimiter(AdaptiveLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public void start() {
+        solidTracker.start();
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        solidTracker.stop();
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                send(exchange, new Response(413, "text/plain", "Request too large\n".getBytes(StandardCharsets.UTF_8), 0), "PASS");
+                return;
+            }
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            String target = path + (query != null ? "?" + query : "");
+            Long ttlBlocks = TTL_BLOCKS.get(path);
+            if (ttlBlocks == null || !("GET".equals(method) || "POST".equals(method))) {
+                passThrough.incrementAndGet();
+                send(exchange, fetch(method, target, contentType, body, 0), "PASS");
+                return;
+            }
+            String key = method + ' ' + target + ' ' + new String(body, StandardCharsets.UTF_8);
+            Response cached = lookup(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                send(exchange, cached, "HIT");
+                return;
+            }
+            CompletableFuture<Response> mine = new CompletableFuture<>();
+            CompletableFuture<Response> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                send(exchange, existing.get(), "COALESCED");
+                return;
+            }
+            misses.incrementAndGet();
+            Response response;
+            try {
+                response = fetch(method, target, contentType, body, expiry(path, body, ttlBlocks));
+                if (cacheable(response)) {
+                    store(key, response);
+                }
+                mine.complete(response);
+            } catch (RuntimeException | InterruptedException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+            send(exchange, response, "MISS");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send(exchange, badGateway(), "PASS");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Expiry time for a response: never for a block by number at or below the solid head,
+     * otherwise the endpoint TTL in blocks (at least one second for the per-block endpoints).
+     */
+    private long expiry(String path, byte[] body, long ttlBlocks) {
+        if (path.endsWith("/getblockbynum")) {
+            Matcher num = NUM.matcher(new String(body, StandardCharsets.UTF_8));
+            long solid = solidTracker.headNumber();
+            if (num.find() && solid >= 0 && Long.parseLong(num.group(1)) <= solid) {
+                return NO_EXPIRY;
+            }
+        }
+        long ttlMillis = ttlBlocks > 0 ? ttlBlocks * HeadTracker.BLOCK_INTERVAL_MS : 1000;
+        return System.currentTimeMillis() + ttlMillis;
+    }
+
+    private static boolean cacheable(Response response) {
+        if (response.status != 200 || response.body.length <= 2) {
+            // "{}" is what java-tron returns for blocks and accounts it does not have (yet)
+            return false;
+        }
+        for (int i = 0; i < ERROR_PREFIX.length && i < response.body.length; i++) {
+            if (response.body[i] != ERROR_PREFIX[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Response lookup(String key) {
+        Response response = cache.get(key);
+        if (response == null) {
+            return null;
+        }
+        if (response.expiresAt != NO_EXPIRY && response.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(key);
+            cacheBytes -= response.size();
+            return null;
+        }
+        return response;
+    }
+
+    private synchronized void store(String key, Response response) {
+        if (response.size() > maxBytes / 8) {
+            return;
+        }
+        Response previous = cache.put(key, response);
+        if (previous != null) {
+            cacheBytes -= previous.size();
+        }
+        cacheBytes += response.size();
+        Iterator<Response> eldest = cache.values().iterator();
+        while (cacheBytes > maxBytes && eldest.hasNext()) {
+            cacheBytes -= eldest.next().size();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private Response fetch(String method, String target, String contentType, byte[] body, long expiresAt)
+            throws InterruptedException {
+        AdaptiveLimiter limiter = this.limiter;
+        if (limiter == null) {
+            return fetchUpstream(method, target, contentType, body, expiresAt);
+        }
+        if (!limiter.acquire(LIMIT_WAIT_MS)) {
+            return new Response(503, "text/plain", "FullNode is busy, try again later\n".getBytes(StandardCharsets.UTF_8), 0);
+        }
+        long started = System.nanoTime();
+        try {
+            return fetchUpstream(method, target, contentType, body, expiresAt);
+        } finally {
+            limiter.release(System.nanoTime() - started);
+        }
+    }
+
+    private Response fetchUpstream(String method, String target, String contentType, byte[] body, long expiresAt) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(upstream + target).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(60000);
+            if (contentType != null) {
+                conn.setRequestProperty("Content-Type", contentType);
+            }
+            if (body.length > 0 && !"GET".equals(method)) {
+                conn.setDoOutput(true);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            int status = conn.getResponseCode();
+            byte[] responseBody;
+            try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                responseBody = in != null ? readAll(in) : new byte[0];
+            }
+            return new Response(status, conn.getContentType(), responseBody, expiresAt);
+        } catch (IOException e) {
+            upstreamErrors.incrementAndGet();
+            return badGateway();
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private static Response badGateway() {
+        return new Response(502, "text/plain", "FullNode is not reachable\n".getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    private static void send(HttpExchange exchange, Response response, String cacheStatus) throws IOException {
+        if (response.contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        }
+        exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+        exchange.sendResponseHeaders(response.status, response.body.length > 0 ? response.body.length : -1);
+        if (response.body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        }
+    }
+
+    /**
+     * Read a request body, or return null if it exceeds MAX_REQUEST_BYTES.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            if (out.size() > MAX_REQUEST_BYTES) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Cache metrics for the metrics endpoint.
+     */
+    public void collect(MetricsExporter metrics) {
+        metrics.counter("tron_api_cache_hits_total", "Requests answered from the API cache", hits.get());
+        metrics.counter("tron_api_cache_misses_total", "Cacheable requests sent to FullNode", misses.get());
+        metrics.counter("tron_api_cache_coalesced_total", "Requests that waited for an identical in-flight request", coalesced.get());
+        metrics.counter("tron_api_cache_pass_through_total", "Requests for endpoints that are not cached", passThrough.get());
+        metrics.counter("tron_api_cache_evictions_total", "Entries evicted to stay within the cache size", evictions.get());
+        metrics.counter("tron_api_cache_upstream_errors_total", "Requests that could not reach FullNode", upstreamErrors.get());
+        synchronized (this) {
+            metrics.gauge("tron_api_cache_entries", "Entries in the API cache", cache.size());
+            metrics.gauge("tron_api_cache_bytes", "Approximate size of the API cache", cacheBytes);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.*;
+
+/**
+ * A config template split once into literal text and {PLACEHOLDER} segments.
+ * Rendering substitutes every placeholder in a single pass into a buffer sized up front,
+ * and fails fast if the template contains a placeholder that has no value.
+ */
+public class ConfigTemplate {
+    /**
+     * Placeholder value that removes the whole line containing the placeholder.
+     * Compared by identity, so it can never collide with a real value.
+     */
+    public static final String OMIT_LINE = new String("<omit line>");
+
+    // literals[i] precedes tokens[i]; the last literal follows the last token
+    private final String[] literals;
+    private final String[] tokens;
+    private final int literalLength;
+
+    private ConfigTemplate(List<String> literals, List<String> tokens) {
+        this.literals = literals.toArray(new String[0]);
+        this.tokens = tokens.toArray(new String[0]);
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Tokenize a template. Placeholders are upper-case identifiers in braces, e.g. {FULL_NODE_PORT}.
+     */
+    public static ConfigTemplate parse(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        int literalStart = 0;
+        int len = text.length();
+        int i = 0;
+        while (i < len) {
+            if (text.charAt(i) == '{' && i + 1 < len && isNameStart(text.charAt(i + 1))) {
+                int end = i + 2;
+                while (end < len && isNameChar(text.charAt(end))) {
+                    end++;
+                }
+                if (end < len && text.charAt(end) == '}') {
+                    literals.add(text.substring(literalStart, i));
+                    tokens.add(text.substring(i, end + 1));
+                    i = end + 1;
+                    literalStart = i;
+                    continue;
+                }
+            }
+            i++;
+        }
+        literals.add(text.substring(literalStart));
+        return new ConfigTemplate(literals, tokens);
+    }
+
+    public boolean hasPlaceholders() {
+        return tokens.length > 0;
+    }
+
+    /**
+     * Distinct placeholder tokens (including braces) in template order.
+     */
+    public Set<String> placeholders() {
+        return new LinkedHashSet<>(Arrays.asList(tokens));
+    }
+
+    /**
+     * Render the template with values keyed by placeholder token (including braces).
+     * Throws IllegalStateException listing every placeholder that has no value.
+     */
+    public String render(Map<String, String> values) {
+        int capacity = literalLength;
+        Set<String> unresolved = null;
+        for (String token : tokens) {
+            String value = values.get(token);
+            if (value == null) {
+                if (unresolved == null) {
+                    unresolved = new LinkedHashSet<>();
+                }
+                unresolved.add(token);
+            } else if (value != OMIT_LINE) {
+                capacity += value.length();
+            }
+        }
+        if (unresolved != null) {
+            throw new IllegalStateException("Unresolved config placeholders: " + String.join(", ", unresolved));
+        }
+
+        StringBuilder out = new StringBuilder(capacity);
+        boolean skipToLineEnd = false;
+        for (int i = 0; i < tokens.length; i++) {
+            skipToLineEnd = appendLiteral(out, literals[i], skipToLineEnd);
+            String value = values.get(tokens[i]);
+            if (value == OMIT_LINE) {
+                // Drop what was already written of this line and the rest of it
+                int lineStart = out.lastIndexOf("\n") + 1;
+                out.setLength(lineStart);
+                skipToLineEnd = true;
+            } else if (!skipToLineEnd) {
+                out.append(value);
+            }
+        }
+        appendLiteral(out, literals[literals.length - 1], skipToLineEnd);
+        return out.toString();
+    }
+
+    /**
+     * Append a literal, skipping up to and including its first newline when the current line is omitted.
+     * Returns whether the line is still being skipped.
+     */
+    private static boolean appendLiteral(StringBuilder out, String literal, boolean skipToLineEnd) {
+        if (!skipToLineEnd) {
+            out.append(literal);
+            return false;
+        }
+        int newline = literal.indexOf('\n');
+        if (newline < 0) {
+            return true;
+        }
+        out.append(literal, newline + 1, literal.length());
+        return false;
+    }
+
+    private static boolean isNameStart(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -13,9 +13,13 @@ public class EntryPoint {
     private static int rpcSolidityNode = 8555;
     
     // Event plugin defaults (mainnet)
-    private static boolean configEventPluginEnabled = true;
+    private static boolean configEventPluginEnabled = false;
     private static String configEventPluginPath = "";
-    private static String configEventPluginKafkaServer = "kafka:9092";
+    private static String configEventPluginType = EventPluginBundle.TYPE_KAFKA;
+    private static String configEventPluginServer = "kafka:9092";
+    private static String configEventPluginDbConfig = "";
+    private static final Path PLUGIN_DIR = Paths.get("/usr/local/tron/plugins");
+    private static long configNativeQueuePort = 5555;
     private static boolean configBlockTriggerEnabled = true;
     private static boolean configTransactionTriggerEnabled = true;
     private static boolean configContracteventTriggerEnabled = true;
@@ -23,12 +27,94 @@ public class EntryPoint {
     private static boolean configSolidityBlockTriggerEnabled = false;
     private static boolean configSolidityEventTriggerEnabled = false;
     private static boolean configSolidityLogTriggerEnabled = false;
+    // Solidified only: block and transaction triggers wait for solidification, events and logs use the solidity triggers
+    private static boolean configSolidifiedOnly = false;
     private static String configContractAddressFilter = "\"\"";
     private static String configContractTopicFilter = "\"\"";
+    private static String configFilterFromBlock = "\"\"";
+    private static String configFilterToBlock = "\"\"";
+    // Indentation of the filter list placeholders in the templates
+    private static final String FILTER_INDENT = "           ";
+    // FullNode logs "Too many triggers, ... trigger lost" when its trigger queue is full
+    private static final String DROPPED_TRIGGER_MARKER = "too many trigger";
     
     private static String esFlag = "";
     private static String witnessFlag = "";
     
+    // Sync profiles: "catchup" favours write throughput while far behind head,
+    // "steady" is the normal profile once the node has caught up
+    private static final String SYNC_PROFILE_CATCHUP = "catchup";
+    private static final String SYNC_PROFILE_STEADY = "steady";
+    private static final Path SYNC_PROFILE_MARKER = Paths.get("/data/.sync_profile");
+    private static volatile String syncProfile = SYNC_PROFILE_STEADY;
+    private static boolean syncProfileAuto = false;
+    private static long syncCatchupThresholdBlocks = 100;
+    private static long syncPollIntervalSeconds = 60;
+    private static String configDbSync = "false";
+    private static volatile boolean syncRestartRequested = false;
+    
+    // Storage engine and the disk class it is tuned for
+    private static final String DB_ENGINE_LEVELDB = "LEVELDB";
+    private static final String DB_ENGINE_ROCKSDB = "ROCKSDB";
+    private static final Path DATABASE_DIR = Paths.get("/data/database");
+    private static String configDbEngine = DB_ENGINE_LEVELDB;
+    private static int dbCompactThreadsLimit = Integer.MAX_VALUE;
+    // Per-database storage.properties entries, null when disabled
+    private static StorageProfile storageProfile = null;
+    // Per-API rate.limiter entries, null when disabled (RATE_LIMIT_PER_API=false)
+    private static RateLimitProfile rateLimitProfile = null;
+    
+    // Launch modes and the files written for exec mode
+    private static final String LAUNCH_MODE_SUPERVISE = "supervise";
+    private static final String LAUNCH_MODE_EXEC = "exec";
+    private static final Path LAUNCH_DIR = Paths.get("/data/run");
+    private static final Path LAUNCH_JVM_OPTIONS_FILE = LAUNCH_DIR.resolve("fullnode.jvmopts");
+    private static final Path LAUNCH_COMMAND_FILE = LAUNCH_DIR.resolve("fullnode.cmd");
+    // Present while the node passes the readiness gate; checked by --ready-check
+    private static final Path READY_FILE = LAUNCH_DIR.resolve("ready");
+    private static String launchMode = LAUNCH_MODE_SUPERVISE;
+    
+    // Graceful shutdown: SIGTERM/SIGINT are forwarded to the running FullNode process
+    private static final Object SHUTDOWN_LOCK = new Object();
+    static long shutdownDrainTimeoutSeconds = 120;
+    static volatile Process currentProcess = null;
+    private static volatile boolean shutdownRequested = false;
+    
+    // Stall watchdog (opt-in via WATCHDOG_STALL_SECONDS): restart FullNode when its head block stops advancing
+    private static final long WATCHDOG_BASE_BACKOFF_MS = 10000;
+    private static final long WATCHDOG_MAX_BACKOFF_MS = 300000;
+    private static long watchdogStallSeconds = 0;
+    private static long watchdogStartupGraceSeconds = 1800;
+    private static long watchdogMaxRestarts = 5;
+    private static long watchdogRestartWindowSeconds = 3600;
+    
+    // Readiness gate: near head, warmed up and JIT settled
+    private static long readyMaxLagBlocks = 20;
+    private static Path readyWarmupFile = null;
+    private static long readyWarmupRounds = 10;
+    
+    private static GcProfile gcProfile;
+    
+    // Metrics endpoint (opt-in via METRICS_PORT)
+    private static final long METRICS_HEAD_POLL_INTERVAL_MS = 15000;
+    private static int metricsPort = -1;
+    
+    // Caching proxy for hot read endpoints of the HTTP API (opt-in via API_CACHE_PORT)
+    private static int apiCachePort = -1;
+    private static long apiCacheSizeMB = 64;
+    
+    // Coalescing proxy for the FullNode JSON-RPC endpoint (opt-in via JSONRPC_PROXY_PORT)
+    private static int jsonRpcProxyPort = -1;
+    
+    // AIMD limit on concurrent proxy calls to FullNode (opt-in via ADAPTIVE_LIMIT_LATENCY_MS)
+    private static long adaptiveLimitLatencyMs = 0;
+    private static long adaptiveLimitMaxLagBlocks = 5;
+    
+    // Plan mode (--plan): resolve everything and print it as JSON, without writing files or starting FullNode.
+    // NAME=VALUE arguments override environment variables for the plan
+    private static final Map<String, String> envOverrides = new HashMap<>();
+    private static Map<String, Object> planValues = null;
+    
     private static void validateBoolean(String varName, String varValue) {
         if (varValue != null && !varValue.isEmpty() && 
             !varValue.equals("true") && !varValue.equals("false")) {
@@ -37,87 +123,363 @@ public class EntryPoint {
         }
     }
     
-    private static String buildFilter(String envVar) {
-        String value = System.getenv(envVar);
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
-        String[] items = value.split("\\s+");
-        if (items.length == 0) {
-            return null;
-        }
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < items.length; i++) {
-            if (i == items.length - 1) {
-                result.append("\"").append(items[i]).append("\"");
-            } else {
-                result.append("\"").append(items[i]).append("\",\n      ");
-            }
+    /**
+     * The whitespace-separated items of a filter env var; empty if it is unset.
+     */
+    private static String[] filterItems(String envVar) {
+        String value = getEnv(envVar);
+        if (value == null || value.trim().isEmpty()) {
+            return new String[0];
         }
-        return result.toString();
+        return value.trim().split("\\s+");
     }
     
     private static String getEnv(String name, String defaultValue) {
-        String value = System.getenv(name);
+        String value = getEnv(name);
         return value != null && !value.isEmpty() ? value : defaultValue;
     }
     
     private static String getEnv(String name) {
-        return System.getenv(name);
+        String value = envOverrides.get(name);
+        return value != null ? value : System.getenv(name);
     }
     
     /**
-     * Detect available system memory in GB.
-     * Tries Docker memory limit first, then /proc/meminfo.
-     * Returns -1 if detection fails.
+     * Read a non-negative whole number from the environment, exiting with an error if it is invalid.
      */
-    private static long detectSystemMemoryGB() {
+    private static long getEnvNonNegative(String name, long defaultValue) {
+        String value = getEnv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        long parsed;
         try {
-            // First, check Docker memory limit (more accurate in containers)
-            Path dockerMemLimit = Paths.get("/sys/fs/cgroup/memory/memory.limit_in_bytes");
-            if (Files.exists(dockerMemLimit)) {
-                String memLimitStr = new String(Files.readAllBytes(dockerMemLimit)).trim();
-                try {
-                    long memLimitBytes = Long.parseLong(memLimitStr);
-                    if (memLimitBytes > 0 && memLimitBytes < Long.MAX_VALUE) {
-                        long memLimitGB = memLimitBytes / 1024 / 1024 / 1024;
-                        if (memLimitGB > 0) {
-                            System.out.println("Detected Docker memory limit: " + memLimitGB + "GB");
-                            return memLimitGB;
-                        }
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            parsed = -1;
+        }
+        if (parsed < 0) {
+            System.err.println("Invalid " + name + ": " + value + ". Must be a non-negative number");
+            System.exit(1);
+        }
+        return parsed;
+    }
+    
+    /**
+     * An integer env var between min and max (inclusive), or defaultValue if unset. Exits naming the variable otherwise.
+     */
+    private static long getEnvInRange(String name, long defaultValue, long min, long max) {
+        String value = getEnv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        long parsed;
+        try {
+            parsed = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            parsed = Long.MIN_VALUE;
+        }
+        if (parsed < min || parsed > max) {
+            System.err.println("Invalid " + name + ": " + getEnv(name) + ". Must be between " + min + " and " + max);
+            System.exit(1);
+        }
+        return parsed;
+    }
+    
+    /**
+     * A TCP port from the environment (1-65535), or defaultValue if unset. Exits naming the variable otherwise.
+     */
+    private static int getEnvPort(String name, int defaultValue) {
+        return (int) getEnvInRange(name, defaultValue, 1, 65535);
+    }
+    
+    /**
+     * Record a derived value and the reason it was chosen for the --plan report. Does nothing outside plan mode.
+     */
+    private static void planValue(String name, Object value, String reason) {
+        if (planValues != null) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("value", value);
+            entry.put("reason", reason);
+            planValues.put(name, entry);
+        }
+    }
+    
+    /**
+     * Detect container resources (cgroup v1/v2 limits, cpusets, NUMA layout).
+     * Logs the detected values and where each of them came from.
+     */
+    private static ResourceDetector.Resources detectResources(ResourceDetector detector) {
+        ResourceDetector.Resources res = detector.detect();
+        if (res.memoryLimitBytes > 0) {
+            System.out.println("Detected memory limit: " + formatGB(res.memoryGB()) + "GB (" + res.memorySource + ")");
+        }
+        if (res.memorySoftLimitBytes > 0 && res.memorySoftLimitBytes < res.memoryLimitBytes) {
+            System.out.println("Memory reservation: " + formatGB(res.memorySoftLimitBytes / (1024.0 * 1024 * 1024))
+                + "GB (cgroup v1 memory.soft_limit_in_bytes, not used for sizing)");
+        }
+        System.out.println("Detected CPU cores: " + res.cpuCores + " (" + res.cpuSource + ")");
+        if (res.numaNodes > 1) {
+            System.out.println("Detected NUMA nodes: " + res.numaNodes);
+        }
+        return res;
+    }
+    
+    private static String formatGB(double gb) {
+        return String.format(Locale.ROOT, "%.1f", gb);
+    }
+    
+    /**
+     * Resolve the sync profile from SYNC_PROFILE ("auto", "catchup" or "steady").
+     * In auto mode the node starts in catch-up until it has once reached head,
+     * which is recorded in a marker file under /data.
+     */
+    private static String resolveSyncProfile() {
+        String mode = getEnv("SYNC_PROFILE", "auto");
+        if (!"auto".equals(mode) && !SYNC_PROFILE_CATCHUP.equals(mode) && !SYNC_PROFILE_STEADY.equals(mode)) {
+            System.err.println("Invalid SYNC_PROFILE: " + mode + ". Must be one of: \"auto\", \"catchup\", \"steady\"");
+            System.exit(1);
+        }
+        syncProfileAuto = "auto".equals(mode);
+        if (!syncProfileAuto) {
+            return mode;
+        }
+        try {
+            if (Files.exists(SYNC_PROFILE_MARKER)
+                    && SYNC_PROFILE_STEADY.equals(new String(Files.readAllBytes(SYNC_PROFILE_MARKER), java.nio.charset.StandardCharsets.UTF_8).trim())) {
+                return SYNC_PROFILE_STEADY;
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read sync profile marker: " + e.getMessage());
+        }
+        return SYNC_PROFILE_CATCHUP;
+    }
+    
+    /**
+     * Put the storage values that differ between sync profiles into the placeholder map.
+     * Catch-up uses full compaction threads, doubled write buffers (capped at 256MB),
+     * a later level-0 compaction trigger and no fsync on writes.
+     */
+    private static void applySyncProfile(Map<String, String> placeholders, String profile,
+                                         int cpuCount, long storageWriteBufferSize, int dbCompactThreads) {
+        boolean catchUp = SYNC_PROFILE_CATCHUP.equals(profile);
+        placeholders.put("{DB_COMPACT_THREADS}",
+            String.valueOf(Math.min(dbCompactThreadsLimit, catchUp ? Math.max(2, cpuCount) : dbCompactThreads)));
+        long writeBufferSize = catchUp ? Math.min(storageWriteBufferSize * 2, 268435456L) : storageWriteBufferSize;
+        placeholders.put("{STORAGE_WRITE_BUFFER_SIZE}", String.valueOf(writeBufferSize));
+        // Per-database write buffers scale with the profile's write buffer
+        placeholders.put("{STORAGE_PROPERTIES}", storageProfile == null ? "" : storageProfile.render(writeBufferSize,
+            Integer.parseInt(placeholders.get("{STORAGE_MAX_OPEN_FILES}")),
+            Integer.parseInt(placeholders.get("{STORAGE_MAX_OPEN_FILES_M}")),
+            Integer.parseInt(placeholders.get("{STORAGE_MAX_OPEN_FILES_L}")), "    "));
+        placeholders.put("{DB_LEVEL0_COMPACTION_TRIGGER}", catchUp ? "4" : "2");
+        placeholders.put("{DB_SYNC}", catchUp ? "false" : configDbSync);
+    }
+    
+    /**
+     * Engine of an existing database: java-tron records it in engine.properties ("ENGINE=LEVELDB")
+     * in every database directory. Returns null for a new data directory.
+     */
+    private static String detectExistingDbEngine(Path databaseDir) {
+        if (!Files.isDirectory(databaseDir)) {
+            return null;
+        }
+        try (DirectoryStream<Path> dbs = Files.newDirectoryStream(databaseDir)) {
+            for (Path db : dbs) {
+                Path engineFile = db.resolve("engine.properties");
+                if (!Files.isReadable(engineFile)) {
+                    continue;
+                }
+                for (String line : Files.readAllLines(engineFile, java.nio.charset.StandardCharsets.UTF_8)) {
+                    if (line.trim().startsWith("ENGINE=")) {
+                        return line.trim().substring("ENGINE=".length()).trim().toUpperCase(Locale.ROOT);
                     }
-                } catch (NumberFormatException e) {
-                    // Continue to try /proc/meminfo
                 }
             }
-            
-            // Fall back to /proc/meminfo for system memory
-            Path memInfo = Paths.get("/proc/meminfo");
-            if (Files.exists(memInfo)) {
-                List<String> memLines = Files.readAllLines(memInfo);
-                for (String line : memLines) {
-                    if (line.startsWith("MemTotal:")) {
-                        String[] parts = line.split("\\s+");
-                        if (parts.length >= 2) {
-                            try {
-                                long memTotalKB = Long.parseLong(parts[1]);
-                                long memTotalGB = memTotalKB / 1024 / 1024;
-                                if (memTotalGB > 0) {
-                                    System.out.println("Detected system total memory: " + memTotalGB + "GB");
-                                    return memTotalGB;
-                                }
-                            } catch (NumberFormatException e) {
-                                // Ignore
-                            }
-                        }
-                        break;
-                    }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read database engine: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Put the storage engine and its dbSettings sizing into the placeholder map.
+     * dbSettings only applies to RocksDB: SSDs get 16KB blocks for point lookups,
+     * HDDs keep 64KB blocks, larger SST files and at most 2 compaction threads to limit seeks.
+     */
+    private static void applyDbEngine(Map<String, String> placeholders, String engine, String diskClass,
+                                      int maxBytesForLevelBase, int targetFileSizeBase) {
+        boolean rocksDb = DB_ENGINE_ROCKSDB.equals(engine);
+        boolean hdd = "hdd".equals(diskClass);
+        placeholders.put("{DB_ENGINE}", engine);
+        placeholders.put("{DB_BLOCK_SIZE_KB}", rocksDb && "ssd".equals(diskClass) ? "16" : "64");
+        placeholders.put("{DB_MAX_BYTES_FOR_LEVEL_BASE}", String.valueOf(maxBytesForLevelBase));
+        placeholders.put("{DB_TARGET_FILE_SIZE_BASE}", String.valueOf(rocksDb && hdd ? targetFileSizeBase * 2 : targetFileSizeBase));
+        dbCompactThreadsLimit = rocksDb && hdd ? 2 : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Render the config template by substituting all placeholders in a single pass.
+     * Configs without placeholders fall back to regex replacement of the port settings.
+     */
+    private static String renderConfig(String rawTemplate, ConfigTemplate template, Map<String, String> placeholders) {
+        if (template.hasPlaceholders()) {
+            // A setting whose placeholder the template lacks would be dropped without a trace
+            Set<String> used = template.placeholders();
+            List<String> unused = new ArrayList<>();
+            for (String placeholder : placeholders.keySet()) {
+                if (!used.contains(placeholder)) {
+                    unused.add(placeholder);
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Warning: Could not detect system memory: " + e.getMessage());
+            if (!unused.isEmpty()) {
+                Collections.sort(unused);
+                System.err.println("WARNING: the config template has no " + String.join(", ", unused)
+                    + "; these settings are ignored");
+            }
+            return template.render(placeholders);
         }
-        return -1;
+        // Regex replacements (like sed -i) for backward compatibility with configs that don't use placeholders
+        String content = rawTemplate.replaceAll("listen\\.port = .*", "listen.port = " + configP2pPort);
+        content = content.replaceAll("fullNodePort = .*", "fullNodePort = " + configFullNodePort);
+        if (configSolidityNodePort != null) {
+            content = content.replaceAll("solidityPort = .*", "solidityPort = " + configSolidityNodePort);
+        }
+        return content;
+    }
+    
+    /**
+     * Write the rendered config through a temp file and an atomic rename, so FullNode never reads a partial file.
+     * The write is skipped when the file already has the same SHA-256, e.g. when a restart changed nothing.
+     */
+    private static void writeConfig(Path configPath, String content) throws IOException {
+        byte[] bytes = content.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        String hash = sha256(bytes);
+        if (Files.isRegularFile(configPath) && hash.equals(sha256(Files.readAllBytes(configPath)))) {
+            System.out.println("Config unchanged: " + configPath + " (sha256 " + hash.substring(0, 12) + ")");
+            return;
+        }
+        Path dir = configPath.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, configPath.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, configPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        System.out.println("Config rendered: " + configPath + " (sha256 " + hash.substring(0, 12) + ")");
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = java.security.MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Calculate optimal code cache size based on CPU and heap.
+     * More CPUs and larger heaps benefit from larger code cache.
+     */
+    private static String calculateCodeCacheSize(int heapSizeGB, int cpuCount) {
+        if (heapSizeGB >= 48 && cpuCount >= 12) {
+            return "768m";
+        } else if (heapSizeGB >= 32 || cpuCount >= 8) {
+            return "512m";
+        }
+        return "256m";
+    }
+    
+    /**
+     * Calculate initial metaspace size based on heap size.
+     * Note: JVM requires integer values for memory options (no decimals)
+     */
+    private static String calculateMetaspaceSize(int heapSizeGB) {
+        return heapSizeGB >= 24 ? "512m" : "256m";
+    }
+    
+    /**
+     * Calculate max metaspace size based on heap size, larger for large heaps.
+     */
+    private static String calculateMaxMetaspaceSize(int heapSizeGB) {
+        if (heapSizeGB >= 36) {
+            return "2G"; // Optimized for large heaps
+        } else if (heapSizeGB >= 24) {
+            return "1536m"; // 1.5G equivalent (JVM doesn't accept "1.5G")
+        } else if (heapSizeGB >= 16) {
+            return "1G";
+        }
+        return "512m";
+    }
+    
+    /**
+     * Calculate max direct memory size based on heap.
+     * Direct memory is used for NIO operations, optimized for better performance.
+     */
+    private static String calculateMaxDirectMemorySize(int heapSizeGB) {
+        if (heapSizeGB >= 36) {
+            return "4G"; // Optimized for large heaps
+        } else if (heapSizeGB >= 24) {
+            return "3G";
+        } else if (heapSizeGB >= 16) {
+            return "2G";
+        }
+        return "1G";
+    }
+    
+    /**
+     * Everything outside the heap that the FullNode process can commit, for a candidate heap and default cache size.
+     * Storage caches are counted at their configured maximum for every database.
+     */
+    static List<MemoryPlanner.Item> planMemoryConsumers(int heapSizeGB, long defaultCacheBytes, int cpuCount,
+                                                        int rpcThreadCount, long writeBufferBytes) {
+        List<MemoryPlanner.Item> items = new ArrayList<>();
+        items.add(new MemoryPlanner.Item("direct memory", MemoryPlanner.parseSize(calculateMaxDirectMemorySize(heapSizeGB)),
+            "-XX:MaxDirectMemorySize for a " + heapSizeGB + "GB heap"));
+        items.add(new MemoryPlanner.Item("metaspace", MemoryPlanner.parseSize(calculateMaxMetaspaceSize(heapSizeGB)),
+            "-XX:MaxMetaspaceSize for a " + heapSizeGB + "GB heap"));
+        items.add(new MemoryPlanner.Item("code cache", MemoryPlanner.parseSize(calculateCodeCacheSize(heapSizeGB, cpuCount)),
+            "-XX:ReservedCodeCacheSize for " + cpuCount + " CPUs"));
+        // RPC executor, Netty event loops (P2P, gRPC, HTTP), GC/compaction/JIT threads and java-tron's own pools
+        int threads = rpcThreadCount + 4 * cpuCount + 2 * cpuCount + 150;
+        items.add(new MemoryPlanner.Item("thread stacks", threads * MemoryPlanner.MB,
+            "~" + threads + " threads x 1MB stack (" + rpcThreadCount + " RPC, " + (6 * cpuCount) + " network/GC/compaction, 150 base)"));
+        items.add(new MemoryPlanner.Item("jvm internals", heapSizeGB * MemoryPlanner.GB / 20 + 128 * MemoryPlanner.MB,
+            "5% of heap + 128MB for GC structures, symbols and JIT arenas"));
+        long caches;
+        String cacheReason;
+        if (storageProfile != null) {
+            int others = StorageProfile.DATABASE_COUNT - storageProfile.size();
+            caches = storageProfile.cacheBudgetBytes() + others * defaultCacheBytes;
+            cacheReason = storageProfile.size() + " profiled databases " + MemoryPlanner.format(storageProfile.cacheBudgetBytes())
+                + " + " + others + " x " + MemoryPlanner.format(defaultCacheBytes) + " default";
+        } else {
+            caches = StorageProfile.DATABASE_COUNT * defaultCacheBytes;
+            cacheReason = StorageProfile.DATABASE_COUNT + " databases x " + MemoryPlanner.format(defaultCacheBytes);
+        }
+        items.add(new MemoryPlanner.Item("storage caches", caches, configDbEngine + " block caches (native): " + cacheReason));
+        items.add(new MemoryPlanner.Item("write buffers", writeBufferBytes,
+            StorageProfile.WRITE_HEAVY_DATABASE_COUNT + " write-heavy databases x 2 memtables at the catch-up write buffer size"));
+        return items;
+    }
+    
+    /**
+     * The smallest heap FullNode is given on a network, in GB: 8GB on mainnet, 4GB on nile.
+     */
+    static int minHeapSize(String network) {
+        return (network == null || network.isEmpty() || "mainnet".equals(network)) ? 8 : 4;
     }
     
     /**
@@ -125,7 +487,7 @@ public class EntryPoint {
      * Optimized to use 65% of Docker memory limit to leave room for off-heap memory.
      * Returns calculated heap size in GB, or -1 if calculation fails.
      */
-    private static int calculateOptimalHeapSize(long systemMemoryGB, String network) {
+    static int calculateOptimalHeapSize(double systemMemoryGB, String network) {
         if (systemMemoryGB <= 0) {
             return -1;
         }
@@ -135,7 +497,7 @@ public class EntryPoint {
         int calculatedHeapGB = (int) (systemMemoryGB * 0.65);
         
         // Apply network-specific minimums
-        int minHeapGB = (network == null || network.isEmpty() || "mainnet".equals(network)) ? 8 : 4;
+        int minHeapGB = minHeapSize(network);
         if (calculatedHeapGB < minHeapGB) {
             System.out.println("Warning: Calculated heap size (" + calculatedHeapGB + "GB) is below minimum (" + minHeapGB + "GB), using minimum");
             return minHeapGB;
@@ -156,9 +518,9 @@ public class EntryPoint {
      * Calculate optimal RPC thread count based on CPU cores.
      * Uses 1x CPU cores to reduce context switching and CPU overhead.
      */
-    private static int calculateRpcThreadCount(int cpuCount) {
+    private static int calculateRpcThreadCount(double cpuCores) {
         // Use 1x CPU cores to reduce context switching overhead
-        int threads = cpuCount;
+        int threads = Math.max(1, (int) Math.ceil(cpuCores));
         // Cap at 32 threads to avoid excessive context switching
         return Math.min(threads, 32);
     }
@@ -167,7 +529,7 @@ public class EntryPoint {
      * Calculate optimal max connections based on available RAM.
      * More RAM allows for more concurrent connections, but reduced to lower overhead.
      */
-    private static int calculateMaxConnections(long systemMemoryGB) {
+    private static int calculateMaxConnections(double systemMemoryGB) {
         if (systemMemoryGB <= 0) {
             return 100; // Default
         }
@@ -180,7 +542,7 @@ public class EntryPoint {
     /**
      * Calculate optimal max HTTP connections based on RAM.
      */
-    private static int calculateMaxHttpConnections(long systemMemoryGB) {
+    private static int calculateMaxHttpConnections(double systemMemoryGB) {
         if (systemMemoryGB <= 0) {
             return 50; // Default
         }
@@ -194,7 +556,7 @@ public class EntryPoint {
      * Calculate optimal storage cache size based on available RAM.
      * Optimized cache sizes for better database performance.
      */
-    private static long calculateStorageCacheSize(long systemMemoryGB) {
+    static long calculateStorageCacheSize(double systemMemoryGB) {
         if (systemMemoryGB <= 0) {
             return 536870912L; // Default 512MB
         }
@@ -212,11 +574,23 @@ public class EntryPoint {
         }
     }
     
+    /**
+     * Cache budget split across the per-database storage entries: 8% of memory, between 256MB and 8GB.
+     * LevelDB caches live outside the Java heap, in the memory the heap sizing leaves free.
+     */
+    private static long calculateStorageCacheBudget(double systemMemoryGB) {
+        if (systemMemoryGB <= 0) {
+            return 1073741824L; // Default 1GB
+        }
+        long budget = (long) (systemMemoryGB * 0.08 * 1024 * 1024 * 1024);
+        return Math.max(268435456L, Math.min(budget, 8589934592L));
+    }
+    
     /**
      * Calculate optimal storage write buffer size based on RAM.
      * Optimized buffer sizes for better write performance.
      */
-    private static long calculateStorageWriteBufferSize(long systemMemoryGB) {
+    private static long calculateStorageWriteBufferSize(double systemMemoryGB) {
         if (systemMemoryGB <= 0) {
             return 67108864L; // Default 64MB
         }
@@ -235,7 +609,7 @@ public class EntryPoint {
     /**
      * Calculate optimal max open files based on RAM.
      */
-    private static int calculateMaxOpenFiles(long systemMemoryGB) {
+    private static int calculateMaxOpenFiles(double systemMemoryGB) {
         if (systemMemoryGB <= 0) {
             return 50000; // Default
         }
@@ -252,15 +626,15 @@ public class EntryPoint {
     /**
      * Calculate optimal DB compaction threads based on CPU cores.
      */
-    private static int calculateDbCompactThreads(int cpuCount) {
+    private static int calculateDbCompactThreads(double cpuCores) {
         // Use CPU/2 for compaction threads when sync is done
-        return Math.max(2, cpuCount / 2);
+        return Math.max(2, (int) (cpuCores / 2));
     }
     
     /**
      * Calculate optimal DB level base size based on RAM.
      */
-    private static int calculateDbMaxBytesForLevelBase(long systemMemoryGB) {
+    private static int calculateDbMaxBytesForLevelBase(double systemMemoryGB) {
         if (systemMemoryGB >= 64) {
             return 512; // 512MB for 64GB+ systems
         } else if (systemMemoryGB >= 32) {
@@ -274,9 +648,9 @@ public class EntryPoint {
      * Calculate optimal global QPS based on CPU and RAM.
      * Reduced to prevent excessive CPU usage.
      */
-    private static int calculateGlobalQps(int cpuCount, long systemMemoryGB) {
+    private static int calculateGlobalQps(double cpuCores, double systemMemoryGB) {
         // Base QPS on CPU: 2000 per core (reduced from 5000 to lower CPU usage)
-        int baseQps = cpuCount * 2000;
+        double baseQps = cpuCores * 2000;
         // Scale with RAM: 1.3x for 64GB+, 1.2x for 32GB+ (reduced multipliers)
         double multiplier = 1.0;
         if (systemMemoryGB >= 64) {
@@ -289,6 +663,60 @@ public class EntryPoint {
         return Math.min(qps, 50000);
     }
     
+    /**
+     * Path of the event plugin bundle for type: EVENT_PLUGIN_PATH, or the newest plugin-<type>-*.zip in the
+     * image's plugin directory. The bundle's manifest is checked; a missing or invalid bundle stops the launch
+     * (in plan mode it is only reported).
+     */
+    private static String resolveEventPlugin(String type) {
+        String override = getEnv("EVENT_PLUGIN_PATH");
+        try {
+            Path bundlePath = override != null && !override.isEmpty() ? Paths.get(override) : EventPluginBundle.find(PLUGIN_DIR, type);
+            if (bundlePath == null) {
+                throw new IllegalArgumentException("no plugin-" + type + "-*.zip in " + PLUGIN_DIR
+                    + "; mount one there or set EVENT_PLUGIN_PATH");
+            }
+            EventPluginBundle bundle = EventPluginBundle.load(bundlePath, type);
+            System.out.println("Event plugin: " + bundle.pluginId + " " + bundle.pluginVersion + " (" + bundle.path + ")");
+            return bundle.path.toString();
+        } catch (IOException | IllegalArgumentException e) {
+            String message = "Invalid " + type + " event plugin: " + e.getMessage();
+            if (planValues == null) {
+                System.err.println(message);
+                System.exit(1);
+            }
+            System.err.println("WARNING: " + message);
+            return override != null && !override.isEmpty() ? override : PLUGIN_DIR.resolve("plugin-" + type + ".zip").toString();
+        }
+    }
+    
+    /**
+     * Size the native event queue (event.subscribe.native.sendqueuelength) to hold about a minute of triggers,
+     * or more with more memory, so a slow subscriber does not drop messages during short stalls.
+     */
+    private static int calculateNativeSendQueueLength(double systemMemoryGB) {
+        // Rough messages per mainnet block: one block trigger, a few hundred transactions, events and logs
+        int perBlock = 0;
+        if (configBlockTriggerEnabled) {
+            perBlock += 1;
+        }
+        if (configSolidityBlockTriggerEnabled) {
+            perBlock += 1;
+        }
+        if (configTransactionTriggerEnabled) {
+            perBlock += 300;
+        }
+        if (configContracteventTriggerEnabled || configSolidityEventTriggerEnabled) {
+            perBlock += 300;
+        }
+        if (configContractlogTriggerEnabled || configSolidityLogTriggerEnabled) {
+            perBlock += 300;
+        }
+        // 20 blocks is one minute; messages are a few KB each, so larger hosts buffer longer
+        int blocks = systemMemoryGB >= 64 ? 100 : systemMemoryGB >= 32 ? 40 : 20;
+        return Math.max(1000, Math.min(200000, perBlock * blocks));
+    }
+    
     /**
      * Calculate optimal per-IP QPS based on global QPS.
      */
@@ -299,6 +727,43 @@ public class EntryPoint {
     
     public static void main(String[] args) {
         try {
+            // --plan [--cgroup-root=DIR] [--proc-root=DIR] [--sys-root=DIR] [--config=FILE] [NAME=VALUE ...]
+            Path cgroupRoot = Paths.get("/sys/fs/cgroup");
+            Path procRoot = Paths.get("/proc");
+            Path sysRoot = Paths.get("/sys");
+            String configTemplateFile = null;
+            for (String arg : args) {
+                if ("--ready-check".equals(arg)) {
+                    // Container health check: exit 0 only while the node passes the readiness gate
+                    System.exit(Files.exists(READY_FILE) ? 0 : 1);
+                } else if ("--plan".equals(arg)) {
+                    planValues = new LinkedHashMap<>();
+                } else if (arg.startsWith("--cgroup-root=")) {
+                    cgroupRoot = Paths.get(arg.substring("--cgroup-root=".length()));
+                } else if (arg.startsWith("--proc-root=")) {
+                    procRoot = Paths.get(arg.substring("--proc-root=".length()));
+                } else if (arg.startsWith("--sys-root=")) {
+                    sysRoot = Paths.get(arg.substring("--sys-root=".length()));
+                } else if (arg.startsWith("--config=")) {
+                    configTemplateFile = arg.substring("--config=".length());
+                } else if (arg.indexOf('=') > 0 && !arg.startsWith("-")) {
+                    envOverrides.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else {
+                    System.err.println("Unknown argument: " + arg);
+                    System.exit(1);
+                }
+            }
+            if (planValues == null && args.length > 0) {
+                System.err.println("Arguments are only accepted together with --plan");
+                System.exit(1);
+            }
+            ResourceDetector detector = new ResourceDetector(cgroupRoot, procRoot, sysRoot);
+            // The JSON report owns stdout in plan mode; progress messages go to stderr
+            PrintStream planOut = System.out;
+            if (planValues != null) {
+                System.setOut(System.err);
+            }
+            
             // Validate network
             String network = getEnv("NETWORK");
             if (network != null && !network.isEmpty() && 
@@ -326,6 +791,66 @@ public class EntryPoint {
                 witnessFlag = "--witness";
             }
             
+            // Launch mode: "supervise" keeps EntryPoint as the parent of a FullNode JVM,
+            // "exec" runs FullNode in this JVM so it becomes PID 1
+            launchMode = getEnv("LAUNCH_MODE", LAUNCH_MODE_SUPERVISE);
+            if (!LAUNCH_MODE_SUPERVISE.equals(launchMode) && !LAUNCH_MODE_EXEC.equals(launchMode)) {
+                System.err.println("Invalid LAUNCH_MODE: " + launchMode + ". Must be one of: \"supervise\", \"exec\"");
+                System.exit(1);
+            }
+            
+            gcProfile = GcProfile.forName(getEnv("GC_PROFILE", GcProfile.BALANCED));
+            if (gcProfile == null) {
+                System.err.println("Invalid GC_PROFILE: " + getEnv("GC_PROFILE") + ". Must be one of: \"throughput\", \"balanced\", \"low-latency\", \"small-footprint\"");
+                System.exit(1);
+            }
+            String toolOptionsValue = System.getenv(JvmOptions.TOOL_OPTIONS_ENV);
+            if (LAUNCH_MODE_SUPERVISE.equals(launchMode) && toolOptionsValue != null && toolOptionsValue.contains("-Xmx")) {
+                System.err.println("WARNING: JAVA_TOOL_OPTIONS sets a heap for this launcher JVM, but LAUNCH_MODE=supervise starts "
+                    + "FullNode in a second JVM. Unset it or use LAUNCH_MODE=exec.");
+            }
+            
+            syncCatchupThresholdBlocks = getEnvNonNegative("SYNC_CATCHUP_THRESHOLD_BLOCKS", syncCatchupThresholdBlocks);
+            // At least a second between polls, or the tracker would busy-poll the node
+            syncPollIntervalSeconds = getEnvInRange("SYNC_POLL_INTERVAL_SECONDS", syncPollIntervalSeconds, 1, 86400);
+            shutdownDrainTimeoutSeconds = getEnvNonNegative("SHUTDOWN_DRAIN_TIMEOUT_SECONDS", shutdownDrainTimeoutSeconds);
+            watchdogStallSeconds = getEnvNonNegative("WATCHDOG_STALL_SECONDS", watchdogStallSeconds);
+            watchdogStartupGraceSeconds = getEnvNonNegative("WATCHDOG_STARTUP_GRACE_SECONDS", watchdogStartupGraceSeconds);
+            watchdogMaxRestarts = getEnvNonNegative("WATCHDOG_MAX_RESTARTS", watchdogMaxRestarts);
+            watchdogRestartWindowSeconds = getEnvNonNegative("WATCHDOG_RESTART_WINDOW_SECONDS", watchdogRestartWindowSeconds);
+            readyMaxLagBlocks = getEnvNonNegative("READY_MAX_LAG_BLOCKS", readyMaxLagBlocks);
+            readyWarmupRounds = getEnvNonNegative("READY_WARMUP_ROUNDS", readyWarmupRounds);
+            String warmupFile = getEnv("READY_WARMUP_FILE");
+            if (warmupFile != null && !warmupFile.isEmpty()) {
+                readyWarmupFile = Paths.get(warmupFile);
+                if (!Files.isReadable(readyWarmupFile)) {
+                    System.err.println("Invalid READY_WARMUP_FILE: " + warmupFile + " is not a readable file");
+                    System.exit(1);
+                }
+            }
+            
+            // Storage engine; an existing database must keep the engine it was created with
+            configDbEngine = getEnv("DB_ENGINE", DB_ENGINE_LEVELDB).toUpperCase(Locale.ROOT);
+            if (!DB_ENGINE_LEVELDB.equals(configDbEngine) && !DB_ENGINE_ROCKSDB.equals(configDbEngine)) {
+                System.err.println("Invalid DB_ENGINE: " + getEnv("DB_ENGINE") + ". Must be one of: \"LEVELDB\", \"ROCKSDB\"");
+                System.exit(1);
+            }
+            String existingDbEngine = detectExistingDbEngine(DATABASE_DIR);
+            if (existingDbEngine != null && !existingDbEngine.equals(configDbEngine)) {
+                System.err.println("ERROR: DB_ENGINE is " + configDbEngine + " but the database in " + DATABASE_DIR + " was created with " + existingDbEngine + ".");
+                System.err.println("java-tron cannot switch engines on existing data. Set DB_ENGINE=" + existingDbEngine
+                    + ", or convert the database with the java-tron Toolkit (db convert) first.");
+                System.exit(1);
+            }
+            
+            // Resolve sync profile and steady-state fsync setting
+            syncProfile = resolveSyncProfile();
+            String dbSync = getEnv("DB_SYNC");
+            validateBoolean("DB_SYNC", dbSync);
+            if (dbSync != null && !dbSync.isEmpty()) {
+                configDbSync = dbSync;
+            }
+            
             // Validate and set event plugin
             String eventPluginEnabled = getEnv("EVENT_PLUGIN_ENABLED");
             validateBoolean("EVENT_PLUGIN_ENABLED", eventPluginEnabled);
@@ -333,6 +858,24 @@ public class EntryPoint {
                 configEventPluginEnabled = Boolean.parseBoolean(eventPluginEnabled);
             }
             
+            // EVENT_NATIVE_QUEUE=true is short for EVENT_PLUGIN_ENABLED=true with EVENT_PLUGIN_TYPE=native
+            String nativeQueue = getEnv("EVENT_NATIVE_QUEUE");
+            validateBoolean("EVENT_NATIVE_QUEUE", nativeQueue);
+            if ("true".equals(nativeQueue)) {
+                String pluginType = getEnv("EVENT_PLUGIN_TYPE");
+                if (pluginType != null && !pluginType.isEmpty() && !EventPluginBundle.TYPE_NATIVE.equals(pluginType)) {
+                    System.err.println("EVENT_NATIVE_QUEUE=true conflicts with EVENT_PLUGIN_TYPE=" + pluginType);
+                    System.exit(1);
+                }
+                configEventPluginEnabled = true;
+                configEventPluginType = EventPluginBundle.TYPE_NATIVE;
+            }
+            configNativeQueuePort = getEnvNonNegative("EVENT_NATIVE_QUEUE_PORT", configNativeQueuePort);
+            if (configNativeQueuePort < 1 || configNativeQueuePort > 65535) {
+                System.err.println("Invalid EVENT_NATIVE_QUEUE_PORT: " + configNativeQueuePort + ". Must be between 1 and 65535");
+                System.exit(1);
+            }
+            
             // Override ports and settings from environment variables
             String p2pPort = getEnv("P2P_PORT");
             if (p2pPort != null && !p2pPort.isEmpty()) {
@@ -344,6 +887,15 @@ public class EntryPoint {
                 configFullNodePort = Integer.parseInt(fullNodePort);
             }
             
+            metricsPort = getEnvPort("METRICS_PORT", metricsPort);
+            
+            apiCachePort = getEnvPort("API_CACHE_PORT", apiCachePort);
+            apiCacheSizeMB = getEnvNonNegative("API_CACHE_SIZE_MB", apiCacheSizeMB);
+            
+            jsonRpcProxyPort = getEnvPort("JSONRPC_PROXY_PORT", jsonRpcProxyPort);
+            adaptiveLimitLatencyMs = getEnvNonNegative("ADAPTIVE_LIMIT_LATENCY_MS", adaptiveLimitLatencyMs);
+            adaptiveLimitMaxLagBlocks = getEnvNonNegative("ADAPTIVE_LIMIT_MAX_LAG_BLOCKS", adaptiveLimitMaxLagBlocks);
+            
             String solidityNodePort = getEnv("SOLIDITY_NODE_PORT");
             if (solidityNodePort != null && !solidityNodePort.isEmpty()) {
                 configSolidityNodePort = solidityNodePort;
@@ -366,17 +918,49 @@ public class EntryPoint {
             
             // Configure event plugin if enabled
             if (configEventPluginEnabled) {
-                String kafkaServer = getEnv("EVENT_PLUGIN_KAFKA_SERVER");
-                if (kafkaServer != null && !kafkaServer.isEmpty()) {
-                    configEventPluginKafkaServer = kafkaServer;
+                String pluginType = getEnv("EVENT_PLUGIN_TYPE");
+                if (pluginType != null && !pluginType.isEmpty()) {
+                    if (!pluginType.equals(EventPluginBundle.TYPE_KAFKA) && !pluginType.equals(EventPluginBundle.TYPE_MONGODB)
+                            && !pluginType.equals(EventPluginBundle.TYPE_NATIVE)) {
+                        System.err.println("Invalid EVENT_PLUGIN_TYPE: " + pluginType + ". Must be one of: \"kafka\", \"mongodb\", \"native\"");
+                        System.exit(1);
+                    }
+                    configEventPluginType = pluginType;
+                }
+                
+                if (EventPluginBundle.TYPE_KAFKA.equals(configEventPluginType)) {
+                    String kafkaServer = getEnv("EVENT_PLUGIN_KAFKA_SERVER");
+                    if (kafkaServer != null && !kafkaServer.isEmpty()) {
+                        configEventPluginServer = kafkaServer;
+                    }
+                } else if (EventPluginBundle.TYPE_MONGODB.equals(configEventPluginType)) {
+                    configEventPluginServer = getEnv("EVENT_PLUGIN_MONGODB_SERVER");
+                    String database = getEnv("EVENT_PLUGIN_MONGODB_DATABASE");
+                    String username = getEnv("EVENT_PLUGIN_MONGODB_USERNAME");
+                    String password = getEnv("EVENT_PLUGIN_MONGODB_PASSWORD");
+                    try {
+                        configEventPluginDbConfig = EventPluginBundle.mongoDbConfig(
+                            database == null || database.isEmpty() ? "eventlog" : database,
+                            username == null ? "" : username, password == null ? "" : password, "2");
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Invalid EVENT_PLUGIN_MONGODB settings: " + e.getMessage());
+                        System.exit(1);
+                    }
+                } else {
+                    // Native queue: FullNode publishes triggers itself (ZeroMQ), no plugin and no server
+                    configEventPluginServer = "";
                 }
-                if (configEventPluginKafkaServer == null || configEventPluginKafkaServer.isEmpty()) {
-                    System.err.println("EVENT_PLUGIN_KAFKA_SERVER must be specified when event plugin is enabled");
+                if (!EventPluginBundle.TYPE_NATIVE.equals(configEventPluginType)
+                        && (configEventPluginServer == null || configEventPluginServer.isEmpty())) {
+                    System.err.println("EVENT_PLUGIN_" + configEventPluginType.toUpperCase(Locale.ROOT)
+                        + "_SERVER must be specified when the " + configEventPluginType + " event plugin is enabled");
                     System.exit(1);
                 }
                 
                 esFlag = "--es";
-                configEventPluginPath = "/usr/local/tron/plugins/plugin-kafka-1.0.0.zip";
+                if (!EventPluginBundle.TYPE_NATIVE.equals(configEventPluginType)) {
+                    configEventPluginPath = resolveEventPlugin(configEventPluginType);
+                }
                 
                 // Validate and set trigger flags
                 String blockTrigger = getEnv("EVENT_PLUGIN_BLOCK_TRIGGER_ENABLED");
@@ -421,70 +1005,93 @@ public class EntryPoint {
                     configSolidityLogTriggerEnabled = Boolean.parseBoolean(solidityLogTrigger);
                 }
                 
-                // Build filter strings
-                String addressFilter = buildFilter("EVENT_PLUGIN_ADDRESS_FILTER");
-                if (addressFilter != null) {
-                    configContractAddressFilter = addressFilter;
+                String solidifiedOnly = getEnv("EVENT_PLUGIN_SOLIDIFIED_ONLY");
+                validateBoolean("EVENT_PLUGIN_SOLIDIFIED_ONLY", solidifiedOnly);
+                if ("true".equals(solidifiedOnly)) {
+                    configSolidifiedOnly = true;
+                    // The contract event and log triggers have no solidified flag; their solidity twins replace them
+                    configSolidityEventTriggerEnabled |= configContracteventTriggerEnabled;
+                    configSolidityLogTriggerEnabled |= configContractlogTriggerEnabled;
+                    configContracteventTriggerEnabled = false;
+                    configContractlogTriggerEnabled = false;
+                    System.out.println("Event triggers: solidified only (block " + configBlockTriggerEnabled
+                        + ", transaction " + configTransactionTriggerEnabled + ", solidityevent " + configSolidityEventTriggerEnabled
+                        + ", soliditylog " + configSolidityLogTriggerEnabled + ")");
                 }
                 
-                String topicFilter = buildFilter("EVENT_PLUGIN_TOPIC_FILTER");
-                if (topicFilter != null) {
-                    configContractTopicFilter = topicFilter;
+                // Build the contract filter from the env vars and EVENT_PLUGIN_FILTER_FILE, validated and deduplicated
+                EventFilter eventFilter = new EventFilter();
+                String filterSource = "EVENT_PLUGIN_ADDRESS_FILTER";
+                String filterFile = getEnv("EVENT_PLUGIN_FILTER_FILE");
+                try {
+                    for (String address : filterItems("EVENT_PLUGIN_ADDRESS_FILTER")) {
+                        eventFilter.addAddress(address);
+                    }
+                    filterSource = "EVENT_PLUGIN_TOPIC_FILTER";
+                    for (String topic : filterItems("EVENT_PLUGIN_TOPIC_FILTER")) {
+                        eventFilter.addTopic(topic);
+                    }
+                    if (filterFile != null && !filterFile.isEmpty()) {
+                        filterSource = "EVENT_PLUGIN_FILTER_FILE " + filterFile;
+                        eventFilter.load(Paths.get(filterFile));
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Invalid " + filterSource + ": " + e.getMessage());
+                    System.exit(1);
+                }
+                configContractAddressFilter = eventFilter.renderAddresses(FILTER_INDENT);
+                configContractTopicFilter = eventFilter.renderTopics(FILTER_INDENT);
+                configFilterFromBlock = eventFilter.fromBlock();
+                configFilterToBlock = eventFilter.toBlock();
+                if (eventFilter.addressCount() > 0 || eventFilter.topicCount() > 0 || filterFile != null) {
+                    System.out.println("Event filter: " + eventFilter.addressCount() + " contract addresses, "
+                        + eventFilter.topicCount() + " topics, blocks " + configFilterFromBlock + " to " + configFilterToBlock
+                        + (eventFilter.duplicates() > 0 ? " (" + eventFilter.duplicates() + " duplicates dropped)" : ""));
                 }
             }
             
             // Detect system resources for dynamic configuration
-            // First, try to read from environment variables (set from tron.yml)
-            int cpuCount;
+            // cgroup v1/v2 limits are read at byte and fractional-core precision;
+            // SYSTEM_CPU_COUNT and SYSTEM_MEMORY_GB (set from tron.yml) override detection
+            ResourceDetector.Resources resources = detectResources(detector);
+            double cpuCores = resources.cpuCores;
+            String cpuSource = resources.cpuSource;
             String cpuCountEnv = getEnv("SYSTEM_CPU_COUNT");
             if (cpuCountEnv != null && !cpuCountEnv.isEmpty()) {
                 try {
-                    // Try parsing as integer first, then as double if that fails (handles "1.5" -> 2)
-                    try {
-                        cpuCount = Integer.parseInt(cpuCountEnv);
-                    } catch (NumberFormatException e) {
-                        // If integer parse fails, try double and round
-                        double cpuCountDouble = Double.parseDouble(cpuCountEnv);
-                        cpuCount = (int) Math.round(cpuCountDouble);
-                        if (cpuCount <= 0) {
-                            throw new NumberFormatException("CPU count must be positive");
-                        }
+                    double cpuCoresEnv = Double.parseDouble(cpuCountEnv);
+                    if (cpuCoresEnv <= 0) {
+                        throw new NumberFormatException("CPU count must be positive");
                     }
-                    System.out.println("Using SYSTEM_CPU_COUNT from environment: " + cpuCount);
+                    cpuCores = cpuCoresEnv;
+                    cpuSource = "SYSTEM_CPU_COUNT";
+                    System.out.println("Using SYSTEM_CPU_COUNT from environment: " + cpuCores);
                 } catch (NumberFormatException e) {
                     System.err.println("Invalid SYSTEM_CPU_COUNT: " + cpuCountEnv + ", falling back to auto-detection");
-                    cpuCount = Runtime.getRuntime().availableProcessors();
                 }
-            } else {
-                cpuCount = Runtime.getRuntime().availableProcessors();
             }
+            // Whole-CPU count for thread pools and JVM flags that only take integers
+            int cpuCount = Math.max(1, (int) Math.ceil(cpuCores));
             
-            long systemMemoryGB;
+            double systemMemoryGB = resources.memoryGB();
+            String memorySource = resources.memorySource;
             String memoryGBEnv = getEnv("SYSTEM_MEMORY_GB");
             if (memoryGBEnv != null && !memoryGBEnv.isEmpty()) {
                 try {
-                    // Try parsing as long first, then as double if that fails (handles "1.5" -> 2)
-                    try {
-                        systemMemoryGB = Long.parseLong(memoryGBEnv);
-                    } catch (NumberFormatException e) {
-                        // If long parse fails, try double and round
-                        double memoryGBDouble = Double.parseDouble(memoryGBEnv);
-                        systemMemoryGB = Math.round(memoryGBDouble);
-                        if (systemMemoryGB <= 0) {
-                            throw new NumberFormatException("Memory must be positive");
-                        }
+                    double memoryGBDouble = Double.parseDouble(memoryGBEnv);
+                    if (memoryGBDouble <= 0) {
+                        throw new NumberFormatException("Memory must be positive");
                     }
+                    systemMemoryGB = memoryGBDouble;
+                    memorySource = "SYSTEM_MEMORY_GB";
                     System.out.println("Using SYSTEM_MEMORY_GB from environment: " + systemMemoryGB);
                 } catch (NumberFormatException e) {
                     System.err.println("Invalid SYSTEM_MEMORY_GB: " + memoryGBEnv + ", falling back to auto-detection");
-                    systemMemoryGB = detectSystemMemoryGB();
                 }
-            } else {
-                systemMemoryGB = detectSystemMemoryGB();
             }
             
             // Calculate optimal configuration values based on CPU and RAM
-            int rpcThreadCount = calculateRpcThreadCount(cpuCount);
+            int rpcThreadCount = calculateRpcThreadCount(cpuCores);
             int maxConnections = calculateMaxConnections(systemMemoryGB);
             int maxHttpConnections = calculateMaxHttpConnections(systemMemoryGB);
             int maxConnectionsWithSameIp = Math.max(5, maxConnections / 20); // 5% of max connections
@@ -493,21 +1100,33 @@ public class EntryPoint {
             int maxOpenFiles = calculateMaxOpenFiles(systemMemoryGB);
             int maxOpenFilesM = (int) (maxOpenFiles * 1.5);
             int maxOpenFilesL = maxOpenFiles * 2;
-            int dbCompactThreads = calculateDbCompactThreads(cpuCount);
+            int dbCompactThreads = calculateDbCompactThreads(cpuCores);
             int dbMaxBytesForLevelBase = calculateDbMaxBytesForLevelBase(systemMemoryGB);
             int dbTargetFileSizeBase = dbMaxBytesForLevelBase;
-            int globalQps = calculateGlobalQps(cpuCount, systemMemoryGB);
+            int globalQps = calculateGlobalQps(cpuCores, systemMemoryGB);
             int globalIpQps = calculateGlobalIpQps(globalQps);
             
             // RPC-specific calculations
-            int rpcMaxConcurrentCalls = Math.min(50, cpuCount * 4); // Scale with CPU, max 50 (reduced from 100 and 8x)
+            int rpcMaxConcurrentCalls = Math.min(50, Math.max(4, (int) (cpuCores * 4))); // Scale with CPU, max 50 (reduced from 100 and 8x)
             int rpcFlowControlWindow = systemMemoryGB >= 64 ? 2097152 : 1048576; // 2MB for 64GB+, 1MB otherwise
             int rpcMaxMessageSize = systemMemoryGB >= 64 ? 8388608 : 4194304; // 8MB for 64GB+, 4MB otherwise
             int rpcMaxHeaderListSize = systemMemoryGB >= 64 ? 16384 : 8192; // 16KB for 64GB+, 8KB otherwise
             
+            // Disk class of /data drives the RocksDB sizing; DISK_CLASS overrides detection
+            String diskClass = getEnv("DISK_CLASS", "auto").toLowerCase(Locale.ROOT);
+            if ("auto".equals(diskClass)) {
+                diskClass = detector.detectDiskClass(Paths.get("/data"));
+            } else if (!"ssd".equals(diskClass) && !"hdd".equals(diskClass)) {
+                System.err.println("Invalid DISK_CLASS: " + getEnv("DISK_CLASS") + ". Must be one of: \"auto\", \"ssd\", \"hdd\"");
+                System.exit(1);
+            }
+            
             System.out.println("System Resources Detected:");
-            System.out.println("  CPU Cores: " + cpuCount);
-            System.out.println("  System Memory: " + systemMemoryGB + "GB");
+            System.out.println("  CPU Cores: " + cpuCores);
+            System.out.println("  System Memory: " + formatGB(systemMemoryGB) + "GB");
+            if (resources.numaNodes > 1) {
+                System.out.println("  NUMA Nodes: " + resources.numaNodes);
+            }
             System.out.println("Dynamic Configuration Calculated:");
             System.out.println("  RPC Threads: " + rpcThreadCount);
             System.out.println("  Max Connections: " + maxConnections);
@@ -515,209 +1134,124 @@ public class EntryPoint {
             System.out.println("  Storage Cache: " + (storageCacheSize / 1024 / 1024) + "MB");
             System.out.println("  Global QPS: " + globalQps);
             System.out.println("  Global IP QPS: " + globalIpQps);
+            System.out.println("  Storage Engine: " + configDbEngine + " (disk: " + diskClass + ")");
             
-            // Update config file with replacements
-            Path configPath = Paths.get(configFile);
+            // The config in the image is only a template and is never modified, so every start re-renders it
+            // for the current resources; FullNode reads the rendered copy from CONFIG_RENDER_DIR
+            // --config points a plan at a template outside the image
+            Path templatePath = Paths.get(configTemplateFile != null ? configTemplateFile : configFile);
+            Path configPath = Paths.get(getEnv("CONFIG_RENDER_DIR", LAUNCH_DIR.toString())).resolve(Paths.get(configFile).getFileName());
             
             // Validate config file exists
-            if (!Files.exists(configPath)) {
-                System.err.println("ERROR: Config file does not exist: " + configFile);
+            if (!Files.exists(templatePath)) {
+                System.err.println("ERROR: Config file does not exist: " + templatePath);
                 System.exit(1);
             }
             
-            if (!Files.isReadable(configPath)) {
-                System.err.println("ERROR: Config file is not readable: " + configFile);
+            if (!Files.isReadable(templatePath)) {
+                System.err.println("ERROR: Config file is not readable: " + templatePath);
                 System.exit(1);
             }
             
             // Read config file efficiently with explicit charset
-            byte[] configBytes = Files.readAllBytes(configPath);
-            StringBuilder contentBuilder = new StringBuilder(configBytes.length + 1024); // Pre-allocate with extra capacity
-            contentBuilder.append(new String(configBytes, java.nio.charset.StandardCharsets.UTF_8));
-            String content = contentBuilder.toString();
-            
-            // Check if config file uses placeholders (for mainnet/nile configs)
-            boolean usesPlaceholders = content.contains("{FULL_NODE_PORT}") || 
-                                      content.contains("{SOLIDITY_NODE_PORT}") ||
-                                      content.contains("{RPC_FULL_NODE}") ||
-                                      content.contains("{RPC_SOLIDITY_NODE}") ||
-                                      content.contains("{VM_MAX_TIME_RATIO_PLACEHOLDER}");
-            
-            // Pre-compute all string values once to avoid repeated conversions
-            String vmMaxTimeRatioStr = String.valueOf(configVmMaxTimeRatio);
-            String blockTriggerStr = String.valueOf(configBlockTriggerEnabled);
-            String transactionTriggerStr = String.valueOf(configTransactionTriggerEnabled);
-            String contracteventTriggerStr = String.valueOf(configContracteventTriggerEnabled);
-            String contractlogTriggerStr = String.valueOf(configContractlogTriggerEnabled);
-            String solidityBlockTriggerStr = String.valueOf(configSolidityBlockTriggerEnabled);
-            String solidityEventTriggerStr = String.valueOf(configSolidityEventTriggerEnabled);
-            String solidityLogTriggerStr = String.valueOf(configSolidityLogTriggerEnabled);
-            // Reuse rpcFullNodeStr and rpcSolidityNodeStr - convert final values to strings
-            rpcFullNodeStr = String.valueOf(rpcFullNode);
-            rpcSolidityNodeStr = String.valueOf(rpcSolidityNode);
-            String fullNodePortStr = String.valueOf(configFullNodePort);
-            String rpcThreadCountStr = String.valueOf(rpcThreadCount);
-            String rpcMaxConcurrentCallsStr = String.valueOf(rpcMaxConcurrentCalls);
-            String rpcFlowControlWindowStr = String.valueOf(rpcFlowControlWindow);
-            String rpcMaxMessageSizeStr = String.valueOf(rpcMaxMessageSize);
-            String rpcMaxHeaderListSizeStr = String.valueOf(rpcMaxHeaderListSize);
-            String maxConnectionsStr = String.valueOf(maxConnections);
-            String maxConnectionsWithSameIpStr = String.valueOf(maxConnectionsWithSameIp);
-            String maxHttpConnectionsStr = String.valueOf(maxHttpConnections);
-            String maxOpenFilesStr = String.valueOf(maxOpenFiles);
-            String maxOpenFilesMStr = String.valueOf(maxOpenFilesM);
-            String maxOpenFilesLStr = String.valueOf(maxOpenFilesL);
-            String storageWriteBufferSizeStr = String.valueOf(storageWriteBufferSize);
-            String storageCacheSizeStr = String.valueOf(storageCacheSize);
-            String dbCompactThreadsStr = String.valueOf(dbCompactThreads);
-            String dbMaxBytesForLevelBaseStr = String.valueOf(dbMaxBytesForLevelBase);
-            String dbTargetFileSizeBaseStr = String.valueOf(dbTargetFileSizeBase);
-            String globalQpsStr = String.valueOf(globalQps);
-            String globalIpQpsStr = String.valueOf(globalIpQps);
-            
-            // Regex replacements (like sed -i) - only if placeholders are not used
-            // This is for backward compatibility with configs that don't use placeholders
-            if (!usesPlaceholders) {
-                content = content.replaceAll("listen\\.port = .*", "listen.port = " + configP2pPort);
-                content = content.replaceAll("fullNodePort = .*", "fullNodePort = " + configFullNodePort);
-                if (configSolidityNodePort != null) {
-                    content = content.replaceAll("solidityPort = .*", "solidityPort = " + configSolidityNodePort);
+            // The original template is kept so the config can be re-rendered for another sync profile
+            final String rawConfig = new String(Files.readAllBytes(templatePath), java.nio.charset.StandardCharsets.UTF_8);
+            // Tokenize once; every render is a single pass over the segments
+            final ConfigTemplate configTemplate = ConfigTemplate.parse(rawConfig);
+            
+            // Pre-compute all placeholder values once to avoid repeated conversions
+            final Map<String, String> placeholders = new LinkedHashMap<>();
+            placeholders.put("{VM_MAX_TIME_RATIO_PLACEHOLDER}", String.valueOf(configVmMaxTimeRatio));
+            placeholders.put("{PLUGIN_PATH_PLACEHOLDER}", configEventPluginPath);
+            placeholders.put("{EVENT_PLUGIN_SERVER_PLACEHOLDER}", configEventPluginServer);
+            placeholders.put("{EVENT_PLUGIN_DBCONFIG_PLACEHOLDER}", configEventPluginDbConfig);
+            placeholders.put("{NATIVE_QUEUE_ENABLED_PLACEHOLDER}",
+                String.valueOf(configEventPluginEnabled && EventPluginBundle.TYPE_NATIVE.equals(configEventPluginType)));
+            placeholders.put("{BLOCK_TRIGGER_PLACEHOLDER}", String.valueOf(configBlockTriggerEnabled));
+            placeholders.put("{TRANSACTION_TRIGGER_PLACEHOLDER}", String.valueOf(configTransactionTriggerEnabled));
+            placeholders.put("{CONTRACTEVENT_TRIGGER_PLACEHOLDER}", String.valueOf(configContracteventTriggerEnabled));
+            placeholders.put("{CONTRACTLOG_TRIGGER_PLACEHOLDER}", String.valueOf(configContractlogTriggerEnabled));
+            placeholders.put("{SOLIDITY_BLOCK_TRIGGER_PLACEHOLDER}", String.valueOf(configSolidityBlockTriggerEnabled));
+            placeholders.put("{SOLIDITY_EVENT_TRIGGER_PLACEHOLDER}", String.valueOf(configSolidityEventTriggerEnabled));
+            placeholders.put("{SOLIDITY_LOG_TRIGGER_PLACEHOLDER}", String.valueOf(configSolidityLogTriggerEnabled));
+            placeholders.put("{BLOCK_TRIGGER_SOLIDIFIED_PLACEHOLDER}", String.valueOf(configSolidifiedOnly));
+            placeholders.put("{TRANSACTION_TRIGGER_SOLIDIFIED_PLACEHOLDER}", String.valueOf(configSolidifiedOnly));
+            placeholders.put("{CONTRACT_ADDRESS_FILTER_PLACEHOLDER}", configContractAddressFilter);
+            placeholders.put("{CONTRACT_TOPIC_FILTER_PLACEHOLDER}", configContractTopicFilter);
+            placeholders.put("{FILTER_FROMBLOCK_PLACEHOLDER}", configFilterFromBlock);
+            placeholders.put("{FILTER_TOBLOCK_PLACEHOLDER}", configFilterToBlock);
+            placeholders.put("{RPC_FULL_NODE}", String.valueOf(rpcFullNode));
+            placeholders.put("{RPC_SOLIDITY_NODE}", String.valueOf(rpcSolidityNode));
+            placeholders.put("{P2P_PORT}", String.valueOf(configP2pPort));
+            placeholders.put("{FULL_NODE_PORT}", String.valueOf(configFullNodePort));
+            // Without a solidity port the whole solidityPort line is dropped
+            placeholders.put("{SOLIDITY_NODE_PORT}", configSolidityNodePort != null ? configSolidityNodePort : ConfigTemplate.OMIT_LINE);
+            placeholders.put("{LITE_FULLNODE_SWITCH}", liteFullNodeSwitch);
+            // Dynamic configuration placeholders
+            placeholders.put("{RPC_THREAD_COUNT}", String.valueOf(rpcThreadCount));
+            placeholders.put("{RPC_MAX_CONCURRENT_CALLS}", String.valueOf(rpcMaxConcurrentCalls));
+            placeholders.put("{RPC_FLOW_CONTROL_WINDOW}", String.valueOf(rpcFlowControlWindow));
+            placeholders.put("{RPC_MAX_MESSAGE_SIZE}", String.valueOf(rpcMaxMessageSize));
+            placeholders.put("{RPC_MAX_HEADER_LIST_SIZE}", String.valueOf(rpcMaxHeaderListSize));
+            placeholders.put("{MAX_CONNECTIONS}", String.valueOf(maxConnections));
+            placeholders.put("{MAX_CONNECTIONS_WITH_SAME_IP}", String.valueOf(maxConnectionsWithSameIp));
+            placeholders.put("{MAX_HTTP_CONNECT_NUMBER}", String.valueOf(maxHttpConnections));
+            placeholders.put("{STORAGE_MAX_OPEN_FILES}", String.valueOf(maxOpenFiles));
+            placeholders.put("{STORAGE_MAX_OPEN_FILES_M}", String.valueOf(maxOpenFilesM));
+            placeholders.put("{STORAGE_MAX_OPEN_FILES_L}", String.valueOf(maxOpenFilesL));
+            placeholders.put("{STORAGE_CACHE_SIZE}", String.valueOf(storageCacheSize));
+            placeholders.put("{GLOBAL_QPS}", String.valueOf(globalQps));
+            placeholders.put("{GLOBAL_IP_QPS}", String.valueOf(globalIpQps));
+            int nativeSendQueueLength = (int) Math.min(Integer.MAX_VALUE,
+                getEnvNonNegative("EVENT_NATIVE_QUEUE_LENGTH", calculateNativeSendQueueLength(systemMemoryGB)));
+            placeholders.put("{NATIVE_SEND_QUEUE_LENGTH}", String.valueOf(nativeSendQueueLength));
+            placeholders.put("{NATIVE_QUEUE_PORT}", String.valueOf(configNativeQueuePort));
+            if (configEventPluginEnabled && EventPluginBundle.TYPE_NATIVE.equals(configEventPluginType)) {
+                System.out.println("Native event queue: tcp://0.0.0.0:" + configNativeQueuePort + " (send queue "
+                    + nativeSendQueueLength + " messages)");
+            }
+            String perApiRateLimits = getEnv("RATE_LIMIT_PER_API");
+            validateBoolean("RATE_LIMIT_PER_API", perApiRateLimits);
+            if (!"false".equals(perApiRateLimits)) {
+                rateLimitProfile = new RateLimitProfile(cpuCount);
+                String rateLimitProfileFile = getEnv("RATE_LIMIT_PROFILE_FILE");
+                if (rateLimitProfileFile != null && !rateLimitProfileFile.isEmpty()) {
+                    try {
+                        rateLimitProfile.load(Paths.get(rateLimitProfileFile));
+                    } catch (IOException | IllegalArgumentException e) {
+                        System.err.println("Invalid RATE_LIMIT_PROFILE_FILE " + rateLimitProfileFile + ": " + e.getMessage());
+                        System.exit(1);
+                    }
                 }
-                contentBuilder = new StringBuilder(content);
-            }
-            
-            // Efficient placeholder replacements using StringBuilder for better performance
-            // Replace all placeholders in a single pass through the content
-            int index;
-            while ((index = contentBuilder.indexOf("{VM_MAX_TIME_RATIO_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{VM_MAX_TIME_RATIO_PLACEHOLDER}".length(), vmMaxTimeRatioStr);
-            }
-            while ((index = contentBuilder.indexOf("{PLUGIN_PATH_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{PLUGIN_PATH_PLACEHOLDER}".length(), configEventPluginPath);
-            }
-            while ((index = contentBuilder.indexOf("{KAFKA_SERVER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{KAFKA_SERVER_PLACEHOLDER}".length(), configEventPluginKafkaServer);
-            }
-            while ((index = contentBuilder.indexOf("{BLOCK_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{BLOCK_TRIGGER_PLACEHOLDER}".length(), blockTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{TRANSACTION_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{TRANSACTION_TRIGGER_PLACEHOLDER}".length(), transactionTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{CONTRACTEVENT_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{CONTRACTEVENT_TRIGGER_PLACEHOLDER}".length(), contracteventTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{CONTRACTLOG_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{CONTRACTLOG_TRIGGER_PLACEHOLDER}".length(), contractlogTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{SOLIDITY_BLOCK_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{SOLIDITY_BLOCK_TRIGGER_PLACEHOLDER}".length(), solidityBlockTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{SOLIDITY_EVENT_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{SOLIDITY_EVENT_TRIGGER_PLACEHOLDER}".length(), solidityEventTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{SOLIDITY_LOG_TRIGGER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{SOLIDITY_LOG_TRIGGER_PLACEHOLDER}".length(), solidityLogTriggerStr);
-            }
-            while ((index = contentBuilder.indexOf("{CONTRACT_ADDRESS_FILTER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{CONTRACT_ADDRESS_FILTER_PLACEHOLDER}".length(), configContractAddressFilter);
-            }
-            while ((index = contentBuilder.indexOf("{CONTRACT_TOPIC_FILTER_PLACEHOLDER}")) >= 0) {
-                contentBuilder.replace(index, index + "{CONTRACT_TOPIC_FILTER_PLACEHOLDER}".length(), configContractTopicFilter);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_FULL_NODE}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_FULL_NODE}".length(), rpcFullNodeStr);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_SOLIDITY_NODE}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_SOLIDITY_NODE}".length(), rpcSolidityNodeStr);
-            }
-            while ((index = contentBuilder.indexOf("{FULL_NODE_PORT}")) >= 0) {
-                contentBuilder.replace(index, index + "{FULL_NODE_PORT}".length(), fullNodePortStr);
-            }
-            while ((index = contentBuilder.indexOf("{LITE_FULLNODE_SWITCH}")) >= 0) {
-                contentBuilder.replace(index, index + "{LITE_FULLNODE_SWITCH}".length(), liteFullNodeSwitch);
-            }
-            // Dynamic configuration placeholder replacements
-            while ((index = contentBuilder.indexOf("{RPC_THREAD_COUNT}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_THREAD_COUNT}".length(), rpcThreadCountStr);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_MAX_CONCURRENT_CALLS}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_MAX_CONCURRENT_CALLS}".length(), rpcMaxConcurrentCallsStr);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_FLOW_CONTROL_WINDOW}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_FLOW_CONTROL_WINDOW}".length(), rpcFlowControlWindowStr);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_MAX_MESSAGE_SIZE}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_MAX_MESSAGE_SIZE}".length(), rpcMaxMessageSizeStr);
-            }
-            while ((index = contentBuilder.indexOf("{RPC_MAX_HEADER_LIST_SIZE}")) >= 0) {
-                contentBuilder.replace(index, index + "{RPC_MAX_HEADER_LIST_SIZE}".length(), rpcMaxHeaderListSizeStr);
-            }
-            while ((index = contentBuilder.indexOf("{MAX_CONNECTIONS}")) >= 0) {
-                contentBuilder.replace(index, index + "{MAX_CONNECTIONS}".length(), maxConnectionsStr);
-            }
-            while ((index = contentBuilder.indexOf("{MAX_CONNECTIONS_WITH_SAME_IP}")) >= 0) {
-                contentBuilder.replace(index, index + "{MAX_CONNECTIONS_WITH_SAME_IP}".length(), maxConnectionsWithSameIpStr);
-            }
-            while ((index = contentBuilder.indexOf("{MAX_HTTP_CONNECT_NUMBER}")) >= 0) {
-                contentBuilder.replace(index, index + "{MAX_HTTP_CONNECT_NUMBER}".length(), maxHttpConnectionsStr);
-            }
-            while ((index = contentBuilder.indexOf("{STORAGE_MAX_OPEN_FILES}")) >= 0) {
-                contentBuilder.replace(index, index + "{STORAGE_MAX_OPEN_FILES}".length(), maxOpenFilesStr);
-            }
-            while ((index = contentBuilder.indexOf("{STORAGE_MAX_OPEN_FILES_M}")) >= 0) {
-                contentBuilder.replace(index, index + "{STORAGE_MAX_OPEN_FILES_M}".length(), maxOpenFilesMStr);
-            }
-            while ((index = contentBuilder.indexOf("{STORAGE_MAX_OPEN_FILES_L}")) >= 0) {
-                contentBuilder.replace(index, index + "{STORAGE_MAX_OPEN_FILES_L}".length(), maxOpenFilesLStr);
-            }
-            while ((index = contentBuilder.indexOf("{STORAGE_WRITE_BUFFER_SIZE}")) >= 0) {
-                contentBuilder.replace(index, index + "{STORAGE_WRITE_BUFFER_SIZE}".length(), storageWriteBufferSizeStr);
-            }
-            while ((index = contentBuilder.indexOf("{STORAGE_CACHE_SIZE}")) >= 0) {
-                contentBuilder.replace(index, index + "{STORAGE_CACHE_SIZE}".length(), storageCacheSizeStr);
-            }
-            while ((index = contentBuilder.indexOf("{DB_COMPACT_THREADS}")) >= 0) {
-                contentBuilder.replace(index, index + "{DB_COMPACT_THREADS}".length(), dbCompactThreadsStr);
-            }
-            while ((index = contentBuilder.indexOf("{DB_MAX_BYTES_FOR_LEVEL_BASE}")) >= 0) {
-                contentBuilder.replace(index, index + "{DB_MAX_BYTES_FOR_LEVEL_BASE}".length(), dbMaxBytesForLevelBaseStr);
-            }
-            while ((index = contentBuilder.indexOf("{DB_TARGET_FILE_SIZE_BASE}")) >= 0) {
-                contentBuilder.replace(index, index + "{DB_TARGET_FILE_SIZE_BASE}".length(), dbTargetFileSizeBaseStr);
-            }
-            while ((index = contentBuilder.indexOf("{GLOBAL_QPS}")) >= 0) {
-                contentBuilder.replace(index, index + "{GLOBAL_QPS}".length(), globalQpsStr);
-            }
-            while ((index = contentBuilder.indexOf("{GLOBAL_IP_QPS}")) >= 0) {
-                contentBuilder.replace(index, index + "{GLOBAL_IP_QPS}".length(), globalIpQpsStr);
-            }
-            
-            // Handle SOLIDITY_NODE_PORT placeholder
-            if (configSolidityNodePort != null) {
-                while ((index = contentBuilder.indexOf("{SOLIDITY_NODE_PORT}")) >= 0) {
-                    contentBuilder.replace(index, index + "{SOLIDITY_NODE_PORT}".length(), configSolidityNodePort);
+                System.out.println("Per-API rate limits: " + rateLimitProfile.size() + " medium and expensive APIs ("
+                    + rateLimitProfile.expensivePermits() + " concurrent calls per expensive API, "
+                    + rateLimitProfile.mediumIpQps() + " QPS per IP per medium API)");
+            }
+            placeholders.put("{RATE_LIMITER_HTTP_ENTRIES}", rateLimitProfile == null ? ConfigTemplate.OMIT_LINE : rateLimitProfile.render(false, "    "));
+            placeholders.put("{RATE_LIMITER_RPC_ENTRIES}", rateLimitProfile == null ? ConfigTemplate.OMIT_LINE : rateLimitProfile.render(true, "    "));
+            String perDbProperties = getEnv("STORAGE_PER_DB_PROPERTIES");
+            validateBoolean("STORAGE_PER_DB_PROPERTIES", perDbProperties);
+            if (!"false".equals(perDbProperties)) {
+                storageProfile = new StorageProfile(calculateStorageCacheBudget(systemMemoryGB));
+                String storageProfileFile = getEnv("STORAGE_PROFILE_FILE");
+                if (storageProfileFile != null && !storageProfileFile.isEmpty()) {
+                    try {
+                        storageProfile.load(Paths.get(storageProfileFile));
+                    } catch (IOException | IllegalArgumentException e) {
+                        System.err.println("Invalid STORAGE_PROFILE_FILE " + storageProfileFile + ": " + e.getMessage());
+                        System.exit(1);
+                    }
                 }
-            } else {
-                // If solidityNodePort is null, remove the entire solidityPort line to avoid leaving placeholder
-                content = contentBuilder.toString();
-                content = content.replaceAll("\\s+solidityPort\\s*=\\s*\\{SOLIDITY_NODE_PORT\\}\\s*\\r?\\n", "");
-                contentBuilder = new StringBuilder(content);
-            }
-            
-            // If placeholders were used, also update listen.port (which doesn't have a placeholder)
-            if (usesPlaceholders) {
-                content = contentBuilder.toString();
-                content = content.replaceAll("listen\\.port = .*", "listen.port = " + configP2pPort);
-                contentBuilder = new StringBuilder(content);
+                System.out.println("Per-database storage: " + storageProfile.size() + " databases sharing "
+                    + (storageProfile.cacheBudgetBytes() / 1024 / 1024) + "MB of cache");
             }
-            
-            // Write config file efficiently with explicit charset
-            Files.write(configPath, contentBuilder.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            applyDbEngine(placeholders, configDbEngine, diskClass, dbMaxBytesForLevelBase, dbTargetFileSizeBase);
+            // Storage write path values depend on the sync profile (see applySyncProfile)
+            applySyncProfile(placeholders, syncProfile, cpuCount, storageWriteBufferSize, dbCompactThreads);
             
             // Validate JAR file exists
             Path jarPath = Paths.get("/usr/local/tron/FullNode.jar");
-            if (!Files.exists(jarPath)) {
+            if (planValues == null && !Files.exists(jarPath)) {
                 System.err.println("ERROR: FullNode.jar does not exist: /usr/local/tron/FullNode.jar");
                 System.exit(1);
             }
@@ -755,15 +1289,11 @@ public class EntryPoint {
             
             // Auto-detect optimal heap size from system memory (default behavior)
             if (!heapSizeSet) {
-                // Re-detect system memory if needed (in case it wasn't detected earlier)
-                if (systemMemoryGB <= 0) {
-                    systemMemoryGB = detectSystemMemoryGB();
-                }
                 if (systemMemoryGB > 0) {
                     int calculatedHeap = calculateOptimalHeapSize(systemMemoryGB, network);
                     if (calculatedHeap > 0) {
                         heapSizeGB = calculatedHeap;
-                        System.out.println("Auto-detected optimal heap size: " + heapSizeGB + "GB (65% of " + systemMemoryGB + "GB system memory, optimized to prevent OOM)");
+                        System.out.println("Auto-detected optimal heap size: " + heapSizeGB + "GB (65% of " + formatGB(systemMemoryGB) + "GB system memory, optimized to prevent OOM)");
                     } else {
                         // Fall back to network-specific defaults (already set above)
                         System.out.println("Could not calculate optimal heap size, using network default: " + heapSizeGB + "GB");
@@ -775,139 +1305,88 @@ public class EntryPoint {
                 }
             }
             
-            // Calculate optimal GC threads based on CPU count
-            // For G1GC: use CPU/4 for concurrent threads, CPU/2 for parallel threads
-            int gcConcurrentThreads = Math.max(2, Math.min(cpuCount / 4, 16));
-            int gcParallelThreads = Math.max(2, Math.min(cpuCount / 2, 32));
+            // Reconcile heap, JVM native memory and storage caches with the memory limit
+            final int planCpuCount = cpuCount;
+            final int planRpcThreads = rpcThreadCount;
+            final long planWriteBuffers = Math.min(storageWriteBufferSize * 2, 268435456L) * 2 * StorageProfile.WRITE_HEAVY_DATABASE_COUNT;
+            MemoryPlanner.Plan memoryPlan = MemoryPlanner.plan(systemMemoryGB > 0 ? (long) (systemMemoryGB * MemoryPlanner.GB) : -1,
+                heapSizeGB, heapSizeSet, minHeapSize(network), storageCacheSize, 32 * MemoryPlanner.MB,
+                (heap, defaultCache) -> planMemoryConsumers(heap, defaultCache, planCpuCount, planRpcThreads, planWriteBuffers));
+            MemoryPlanner.print(memoryPlan);
+            if (memoryPlan.error != null) {
+                System.err.println("ERROR: " + memoryPlan.error + ".");
+                System.err.println("Lower JAVA_HEAP_SIZE or cacheBudgetMB in STORAGE_PROFILE_FILE, or raise the container memory limit.");
+                System.exit(1);
+            }
+            if (memoryPlan.warning != null) {
+                System.err.println("WARNING: " + memoryPlan.warning + ". FullNode may be OOM-killed under load.");
+                System.err.println("Raise the container memory limit; the heap is not reduced below the network minimum of " + minHeapSize(network) + "GB.");
+            }
+            heapSizeGB = memoryPlan.heapSizeGB;
+            storageCacheSize = memoryPlan.defaultCacheBytes;
+            placeholders.put("{STORAGE_CACHE_SIZE}", String.valueOf(storageCacheSize));
             
-            // Calculate optimal code cache size based on CPU and heap
-            // More CPUs and larger heaps benefit from larger code cache
-            String codeCacheSize;
-            if (heapSizeGB >= 48 && cpuCount >= 12) {
-                codeCacheSize = "768m";
-            } else if (heapSizeGB >= 32 || cpuCount >= 8) {
-                codeCacheSize = "512m";
-            } else {
-                codeCacheSize = "256m";
-            }
-            
-            // Calculate optimal metaspace size based on heap size
-            // Optimized metaspace for better performance with larger heaps
-            // Note: JVM requires integer values for memory options (no decimals)
-            String metaspaceSize;
-            String maxMetaspaceSize;
-            if (heapSizeGB >= 36) {
-                metaspaceSize = "512m";
-                maxMetaspaceSize = "2G"; // Optimized for large heaps
-            } else if (heapSizeGB >= 24) {
-                metaspaceSize = "512m";
-                maxMetaspaceSize = "1536m"; // 1.5G equivalent (JVM doesn't accept "1.5G")
-            } else if (heapSizeGB >= 16) {
-                metaspaceSize = "256m";
-                maxMetaspaceSize = "1G";
-            } else {
-                metaspaceSize = "256m";
-                maxMetaspaceSize = "512m";
-            }
-            
-            // Calculate optimal direct memory size based on heap
-            // Direct memory is used for NIO operations, optimized for better performance
-            String maxDirectMemorySize;
-            if (heapSizeGB >= 36) {
-                maxDirectMemorySize = "4G"; // Optimized for large heaps
-            } else if (heapSizeGB >= 24) {
-                maxDirectMemorySize = "3G";
-            } else if (heapSizeGB >= 16) {
-                maxDirectMemorySize = "2G";
-            } else {
-                maxDirectMemorySize = "1G";
-            }
-            
-            // Use G1GC for heaps >= 8GB (better than CMS for modern JVMs)
-            String javaOptsCommon;
-            if (heapSizeGB >= 8) {
-                // Calculate optimal G1GC region size based on heap
-                // Region size should be power of 2 between 1MB and 32MB
-                // For large heaps, use larger regions to reduce overhead
-                String g1RegionSize;
-                if (heapSizeGB >= 64) {
-                    g1RegionSize = "32m";
-                } else if (heapSizeGB >= 32) {
-                    g1RegionSize = "16m"; // Optimized for 32GB+ heaps
-                } else if (heapSizeGB >= 16) {
-                    g1RegionSize = "8m";
-                } else {
-                    g1RegionSize = "4m";
+            String renderedConfig = renderConfig(rawConfig, configTemplate, placeholders);
+            if (planValues == null) {
+                writeConfig(configPath, renderedConfig);
+            }
+            
+            String codeCacheSize = calculateCodeCacheSize(heapSizeGB, cpuCount);
+            String metaspaceSize = calculateMetaspaceSize(heapSizeGB);
+            String maxMetaspaceSize = calculateMaxMetaspaceSize(heapSizeGB);
+            String maxDirectMemorySize = calculateMaxDirectMemorySize(heapSizeGB);
+            
+            // Flags depend on the Java version that runs FullNode.jar (JDK 8 vs unified logging on 9+)
+            int javaVersion;
+            String javaVersionOverride = getEnv("FULLNODE_JAVA_VERSION");
+            if (javaVersionOverride != null && !javaVersionOverride.isEmpty()) {
+                javaVersion = JvmOptions.parseJavaVersion(javaVersionOverride);
+                if (javaVersion < 8) {
+                    System.err.println("Invalid FULLNODE_JAVA_VERSION: " + javaVersionOverride + ". Must be a Java version such as 8, 11, 17 or 21");
+                    System.exit(1);
                 }
-                
-                // Calculate optimal GC pause target based on heap size
-                // Reduced pause targets to improve responsiveness and reduce CPU spikes
-                int maxGCPauseMillis = heapSizeGB >= 32 ? 250 : (heapSizeGB >= 16 ? 150 : 100);
-                
-                // Calculate initiating heap occupancy percent
-                // Start GC earlier to prevent memory pressure and reduce CPU spikes
-                int initiatingHeapOccupancyPercent = heapSizeGB >= 32 ? 40 : (heapSizeGB >= 16 ? 45 : 50);
-                
-                // G1GC optimized for large heaps and multiple CPUs (Java 8 compatible)
-                javaOptsCommon = String.format(
-                    "-XX:ReservedCodeCacheSize=%s " +
-                    "-XX:MetaspaceSize=%s " +
-                    "-XX:MaxMetaspaceSize=%s " +
-                    "-XX:MaxDirectMemorySize=%s " +
-                    "-XX:+HeapDumpOnOutOfMemoryError " +
-                    "-XX:HeapDumpPath=/data/heap_dump.hprof " +
-                    "-XX:+PrintGCDetails " +
-                    "-XX:+PrintGCDateStamps " +
-                    "-XX:+PrintGCApplicationStoppedTime " +
-                    "-Xloggc:/data/gc.log " +
-                    "-XX:+UseG1GC " +
-                    "-XX:MaxGCPauseMillis=%d " +
-                    "-XX:G1HeapRegionSize=%s " +
-                    "-XX:InitiatingHeapOccupancyPercent=%d " +
-                    "-XX:ConcGCThreads=%d " +
-                    "-XX:ParallelGCThreads=%d " +
-                    "-XX:+ParallelRefProcEnabled " +
-                    "-XX:+UseStringDeduplication " +
-                    "-XX:+DisableExplicitGC",
-                    codeCacheSize, metaspaceSize, maxMetaspaceSize, maxDirectMemorySize,
-                    maxGCPauseMillis, g1RegionSize, initiatingHeapOccupancyPercent,
-                    gcConcurrentThreads, gcParallelThreads
-                );
+            } else if (planValues != null) {
+                // Plan mode starts no processes, so assume FullNode runs on the launcher's own runtime
+                javaVersion = JvmOptions.parseJavaVersion(System.getProperty("java.specification.version"));
             } else {
-                // CMS for smaller heaps (< 8GB)
-                javaOptsCommon = String.format(
-                    "-XX:ReservedCodeCacheSize=%s " +
-                    "-XX:MetaspaceSize=%s " +
-                    "-XX:MaxMetaspaceSize=%s " +
-                    "-XX:MaxDirectMemorySize=%s " +
-                    "-XX:+HeapDumpOnOutOfMemoryError " +
-                    "-XX:+PrintGCDetails " +
-                    "-XX:+PrintGCDateStamps " +
-                    "-XX:+UseConcMarkSweepGC " +
-                    "-XX:NewRatio=2 " +
-                    "-XX:+CMSScavengeBeforeRemark " +
-                    "-XX:+ParallelRefProcEnabled " +
-                    "-XX:+UseCMSInitiatingOccupancyOnly " +
-                    "-XX:CMSInitiatingOccupancyFraction=70 " +
-                    "-XX:ParallelGCThreads=%d",
-                    codeCacheSize, metaspaceSize, maxMetaspaceSize, maxDirectMemorySize,
-                    gcParallelThreads
-                );
+                javaVersion = JvmOptions.detectJavaVersion("java");
             }
             
+            // The GC profile picks the collector (unless JVM_GC sets one) and computes its pause, IHOP and thread settings
+            String gcCollector = JvmOptions.resolveCollector(getEnv("JVM_GC", JvmOptions.GC_AUTO), javaVersion,
+                gcProfile.defaultCollector(javaVersion, heapSizeGB));
+            if (gcCollector == null) {
+                System.err.println("Invalid JVM_GC: " + getEnv("JVM_GC") + ". Must be one of: \"auto\", \"g1\", \"parallel\", \"cms\", \"zgc\", \"shenandoah\"");
+                System.exit(1);
+            }
+            GcProfile.Settings gcSettings = gcProfile.settings(gcCollector, heapSizeGB, cpuCount, javaVersion);
+            
+            // GC log rotation keeps /data/gc.log* bounded
+            int gcLogFileCount = (int) getEnvInRange("GC_LOG_FILE_COUNT", 5, 1, Integer.MAX_VALUE);
+            int gcLogFileSizeMB = (int) getEnvInRange("GC_LOG_FILE_SIZE_MB", 20, 1, Integer.MAX_VALUE);
+            
+            String javaOptsCommon = String.format(
+                "-XX:ReservedCodeCacheSize=%s " +
+                "-XX:MetaspaceSize=%s " +
+                "-XX:MaxMetaspaceSize=%s " +
+                "-XX:MaxDirectMemorySize=%s " +
+                "-XX:+HeapDumpOnOutOfMemoryError " +
+                "-XX:HeapDumpPath=/data/heap_dump.hprof ",
+                codeCacheSize, metaspaceSize, maxMetaspaceSize, maxDirectMemorySize)
+                + JvmOptions.gcLogOptions(javaVersion, "/data/gc.log", gcLogFileCount, gcLogFileSizeMB) + " "
+                + JvmOptions.collectorOptions(gcSettings, javaVersion);
+            
             // Add NUMA support for large heaps on multi-socket systems
-            // NUMA helps when heap > 32GB and CPU >= 16 cores
+            // NUMA helps when heap > 32GB and the container spans more than one NUMA node
             String numaOpts = "";
-            if (heapSizeGB >= 32 && cpuCount >= 16) {
+            if (heapSizeGB >= 32 && cpuCount >= 16 && resources.numaNodes > 1) {
                 numaOpts = " -XX:+UseNUMA";
             } else {
                 numaOpts = " -XX:-UseNUMA";
             }
             
-            // For very large heaps, AlwaysPreTouch can take a long time or fail
-            // Only enable it for heaps <= 32GB to avoid startup issues
-            // For larger heaps, let OS handle memory allocation on demand
-            String alwaysPreTouch = (heapSizeGB <= 32) ? " -XX:+AlwaysPreTouch" : " -XX:-AlwaysPreTouch";
+            // Pre-touching is decided by the GC profile (never for very large heaps, where it can take a long time or fail)
+            String alwaysPreTouch = gcSettings.alwaysPreTouch ? " -XX:+AlwaysPreTouch" : " -XX:-AlwaysPreTouch";
             
             // Add JIT compiler optimizations for high-performance servers
             String compilerOpts = "";
@@ -921,22 +1400,15 @@ public class EntryPoint {
             }
             
             // Compressed OOPs: Only enable for heaps <= 32GB
-            // For heaps > 32GB, compressed OOPs are automatically disabled by JVM
-            // Explicitly disable to avoid warnings
-            if (heapSizeGB <= 32) {
-                compilerOpts += " -XX:+UseCompressedOops -XX:+UseCompressedClassPointers";
-            } else {
-                // Explicitly disable compressed OOPs for large heaps to avoid warnings
-                compilerOpts += " -XX:-UseCompressedOops -XX:-UseCompressedClassPointers";
-            }
+            compilerOpts += JvmOptions.compressedOopsOptions(gcCollector, heapSizeGB);
             
             // Add performance optimizations for large memory systems
             // Note: Large pages require system configuration and can cause shared memory errors
             // Only enable if system is properly configured (we'll disable by default to avoid errors)
             String performanceOpts = "";
             if (heapSizeGB >= 16) {
-                // Enable aggressive optimizations for large heaps
-                performanceOpts = " -XX:+AggressiveOpts";
+                // Enable aggressive optimizations for large heaps (Java 8-10 only)
+                performanceOpts = JvmOptions.aggressiveOptions(javaVersion);
                 // Large pages are disabled by default to avoid shared memory reservation errors
                 // To enable large pages, the system must be configured with:
                 // echo 20000 > /proc/sys/vm/nr_hugepages
@@ -948,7 +1420,7 @@ public class EntryPoint {
             }
             
             String javaOpts = javaOptsCommon + 
-                String.format(" -Xms%dG -Xmx%dG", heapSizeGB, heapSizeGB) +
+                String.format(" -Xms%dG -Xmx%dG", gcSettings.initialHeapGB, heapSizeGB) +
                 alwaysPreTouch +
                 numaOpts +
                 compilerOpts +
@@ -984,7 +1456,7 @@ public class EntryPoint {
             command.add("-jar");
             command.add("/usr/local/tron/FullNode.jar");
             command.add("-c");
-            command.add(configFile);
+            command.add(configPath.toString());
             command.add("-d");
             command.add("/data");
             if (!esFlag.isEmpty()) {
@@ -997,86 +1469,94 @@ public class EntryPoint {
             System.out.println("Executing: " + String.join(" ", command));
             System.out.println("Working directory: /data");
             System.out.println("Heap size: " + heapSizeGB + "GB");
-            System.out.println("CPU count: " + cpuCount);
-            if (heapSizeGB >= 8) {
-                System.out.println("GC Configuration (G1GC):");
-                System.out.println("  Concurrent GC threads: " + gcConcurrentThreads);
-                System.out.println("  Parallel GC threads: " + gcParallelThreads);
-            } else {
-                System.out.println("GC Configuration (CMS):");
-                System.out.println("  Parallel GC threads: " + gcParallelThreads);
+            System.out.println("CPU count: " + cpuCount + " (" + cpuCores + " cores)");
+            System.out.println("GC Configuration (" + gcProfile.name() + " profile, " + gcCollector + ", Java " + javaVersion + "):");
+            if (!JvmOptions.GC_CMS.equals(gcCollector) && !JvmOptions.GC_PARALLEL.equals(gcCollector)) {
+                System.out.println("  Concurrent GC threads: " + gcSettings.concurrentThreads);
             }
+            System.out.println("  Parallel GC threads: " + gcSettings.parallelThreads);
+            if (JvmOptions.GC_G1.equals(gcCollector)) {
+                System.out.println("  Pause target: " + gcSettings.maxPauseMillis + "ms, region size: " + gcSettings.regionSize
+                    + ", IHOP: " + gcSettings.initiatingHeapOccupancyPercent + "%");
+            }
+            if (gcSettings.initialHeapGB != heapSizeGB) {
+                System.out.println("  Initial heap: " + gcSettings.initialHeapGB + "GB");
+            }
+            System.out.println("  GC log: /data/gc.log (" + gcLogFileCount + " x " + gcLogFileSizeMB + "MB)");
             System.out.println("JVM Optimizations:");
             System.out.println("  Code Cache: " + codeCacheSize);
             System.out.println("  Metaspace: " + metaspaceSize + " (max: " + maxMetaspaceSize + ")");
             System.out.println("  Direct Memory: " + maxDirectMemorySize);
             
-            // Calculate total estimated memory usage
-            // Helper function to parse memory size strings (handles decimals like "1.5G")
-            int directMemGB = 0;
-            try {
-                if (maxDirectMemorySize.endsWith("G")) {
-                    String value = maxDirectMemorySize.replace("G", "");
-                    directMemGB = (int) Math.round(Double.parseDouble(value));
-                } else if (maxDirectMemorySize.endsWith("m")) {
-                    String value = maxDirectMemorySize.replace("m", "");
-                    directMemGB = (int) Math.round(Double.parseDouble(value)) / 1024;
+            if (planValues != null) {
+                String planAdjustment = memoryPlan.adjustments.isEmpty() ? "" : "; adjusted by the memory plan";
+                planValue("cpu_cores", cpuCores, cpuSource);
+                planValue("memory_gb", systemMemoryGB, memorySource);
+                planValue("numa_nodes", resources.numaNodes, "sys/devices/system/node within cpuset.mems");
+                planValue("disk_class", diskClass, "auto".equals(getEnv("DISK_CLASS", "auto")) ? "rotational flag of the /data device" : "DISK_CLASS");
+                planValue("db_engine", configDbEngine, getEnv("DB_ENGINE") != null ? "DB_ENGINE" : "default");
+                planValue("sync_profile", syncProfile, "SYNC_PROFILE=" + getEnv("SYNC_PROFILE", "auto")
+                    + (syncProfileAuto ? (SYNC_PROFILE_CATCHUP.equals(syncProfile) ? ", node has not reached head yet" : ", node reached head before") : ""));
+                planValue("launch_mode", launchMode, getEnv("LAUNCH_MODE") != null ? "LAUNCH_MODE" : "default");
+                planValue("rpc_threads", rpcThreadCount, "1 per CPU core, at most 32");
+                planValue("rpc_max_concurrent_calls", rpcMaxConcurrentCalls, "4 per CPU core, between 4 and 50");
+                planValue("rpc_max_message_size", rpcMaxMessageSize, "8MB with 64GB+ memory, otherwise 4MB");
+                planValue("max_connections", maxConnections, "5 per GB of memory, between 100 and 1000");
+                planValue("max_connections_with_same_ip", maxConnectionsWithSameIp, "5% of max connections, at least 5");
+                planValue("max_http_connections", maxHttpConnections, "3 per GB of memory, between 50 and 500");
+                planValue("global_qps", globalQps, "2000 per CPU core, x1.2 from 32GB and x1.3 from 64GB memory, at most 50000");
+                planValue("global_ip_qps", globalIpQps, "20% of global QPS");
+                planValue("native_send_queue_length", nativeSendQueueLength, getEnv("EVENT_NATIVE_QUEUE_LENGTH") != null
+                    ? "EVENT_NATIVE_QUEUE_LENGTH"
+                    : "about 300 messages per block per enabled transaction/event/log trigger, buffered for 20 blocks, 40 from 32GB and 100 from 64GB memory");
+                planValue("native_queue_port", configNativeQueuePort, "EVENT_NATIVE_QUEUE_PORT or 5555");
+                if (rateLimitProfile != null) {
+                    planValue("rate_limit_expensive_permits", rateLimitProfile.expensivePermits(), "a quarter of the CPU cores, at least 1");
+                    planValue("rate_limit_medium_ip_qps", rateLimitProfile.mediumIpQps(), "25 per CPU core, at least 10");
                 }
-            } catch (NumberFormatException e) {
-                // If parsing fails, default to 0
-                directMemGB = 0;
-            }
-            
-            int metaspaceGB = 0;
-            try {
-                if (maxMetaspaceSize.endsWith("G")) {
-                    String value = maxMetaspaceSize.replace("G", "");
-                    metaspaceGB = (int) Math.round(Double.parseDouble(value));
-                } else if (maxMetaspaceSize.endsWith("m")) {
-                    String value = maxMetaspaceSize.replace("m", "");
-                    metaspaceGB = (int) Math.round(Double.parseDouble(value)) / 1024;
+                planValue("storage_cache_bytes", storageCacheSize, "stepped by memory, 128MB up to 2GB from 64GB" + planAdjustment);
+                if (storageProfile != null) {
+                    planValue("storage_cache_budget_bytes", storageProfile.cacheBudgetBytes(), storageProfile.size()
+                        + " per-database entries; 8% of memory between 256MB and 8GB unless STORAGE_PROFILE_FILE sets cacheBudgetMB");
                 }
-            } catch (NumberFormatException e) {
-                // If parsing fails, default to 0
-                metaspaceGB = 0;
-            }
-            int totalEstimatedGB = heapSizeGB + directMemGB + metaspaceGB;
-            
-            System.out.println("Memory Configuration Summary:");
-            System.out.println("  Heap: " + heapSizeGB + "GB");
-            System.out.println("  Direct Memory (max): " + maxDirectMemorySize);
-            System.out.println("  Metaspace (max): " + maxMetaspaceSize);
-            System.out.println("  Storage Cache: " + (storageCacheSize / 1024 / 1024) + "MB");
-            System.out.println("  Estimated Total JVM Memory: ~" + totalEstimatedGB + "GB");
-            
-            // Warn if memory usage is high
-            if (totalEstimatedGB > 20) {
-                System.out.println("WARNING: Total estimated memory usage (" + totalEstimatedGB + "GB) is high.");
-                System.out.println("Make sure your Docker container has enough memory allocated and other containers have sufficient RAM.");
-            }
-            
-            // Check Docker memory limit and warn if too low
-            try {
-                Path dockerMemLimit = Paths.get("/sys/fs/cgroup/memory/memory.limit_in_bytes");
-                if (Files.exists(dockerMemLimit)) {
-                    String memLimitStr = new String(Files.readAllBytes(dockerMemLimit)).trim();
-                    try {
-                        long memLimitBytes = Long.parseLong(memLimitStr);
-                        if (memLimitBytes < Long.MAX_VALUE) {
-                            long memLimitGB = memLimitBytes / 1024 / 1024 / 1024;
-                            System.out.println("Docker container memory limit: " + memLimitGB + "GB");
-                            if (memLimitGB < totalEstimatedGB + 4) {
-                                System.err.println("WARNING: Docker memory limit (" + memLimitGB + "GB) may be too low for estimated usage (" + totalEstimatedGB + "GB).");
-                                System.err.println("Recommended: Set Docker memory limit to at least " + (totalEstimatedGB + 4) + "GB to allow for OS and other processes.");
-                                System.err.println("Example: docker run --memory=" + (totalEstimatedGB + 4) + "g ...");
-                            }
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignore
-                    }
+                planValue("storage_write_buffer_bytes", Long.parseLong(placeholders.get("{STORAGE_WRITE_BUFFER_SIZE}")),
+                    "stepped by memory, doubled (at most 256MB) for the catchup sync profile");
+                planValue("storage_max_open_files", maxOpenFiles, "25000, 50000 from 32GB and 100000 from 64GB memory");
+                planValue("db_compact_threads", Integer.parseInt(placeholders.get("{DB_COMPACT_THREADS}")),
+                    "half the CPU cores (at least 2), all cores while catching up, at most 2 for RocksDB on HDD");
+                planValue("db_block_size_kb", Integer.parseInt(placeholders.get("{DB_BLOCK_SIZE_KB}")), "16KB for RocksDB on SSD, otherwise 64KB");
+                planValue("db_max_bytes_for_level_base_mb", Integer.parseInt(placeholders.get("{DB_MAX_BYTES_FOR_LEVEL_BASE}")),
+                    "128MB, 256MB from 32GB and 512MB from 64GB memory, doubled for RocksDB on HDD");
+                planValue("heap_gb", heapSizeGB, (heapSizeSet ? "JAVA_HEAP_SIZE" : "65% of memory within the network's minimum and maximum") + planAdjustment);
+                planValue("java_version", javaVersion, javaVersionOverride != null && !javaVersionOverride.isEmpty()
+                    ? "FULLNODE_JAVA_VERSION" : "launcher runtime (not probed in plan mode)");
+                planValue("gc_profile", gcProfile.name(), getEnv("GC_PROFILE") != null ? "GC_PROFILE" : "default");
+                planValue("gc_collector", gcCollector, JvmOptions.GC_AUTO.equals(getEnv("JVM_GC", JvmOptions.GC_AUTO))
+                    ? "default of the " + gcProfile.name() + " profile for Java " + javaVersion + " and a " + heapSizeGB + "GB heap" : "JVM_GC");
+                planValue("gc_initial_heap_gb", gcSettings.initialHeapGB, gcProfile.name() + " profile");
+                planValue("gc_parallel_threads", gcSettings.parallelThreads, gcProfile.name() + " profile, from " + cpuCount + " CPUs");
+                planValue("gc_concurrent_threads", gcSettings.concurrentThreads, gcProfile.name() + " profile, from " + cpuCount + " CPUs");
+                planValue("code_cache", codeCacheSize, "768m with 48GB+ heap and 12+ CPUs, 512m with 32GB+ heap or 8+ CPUs, otherwise 256m");
+                planValue("max_metaspace", maxMetaspaceSize, "stepped by heap size");
+                planValue("max_direct_memory", maxDirectMemorySize, "stepped by heap size");
+                
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("network", network == null || network.isEmpty() ? "mainnet" : network);
+                report.put("values", planValues);
+                report.put("memoryPlan", MemoryPlanner.toMap(memoryPlan));
+                Map<String, Object> templateValues = new LinkedHashMap<>();
+                for (Map.Entry<String, String> entry : placeholders.entrySet()) {
+                    templateValues.put(entry.getKey(), entry.getValue() == ConfigTemplate.OMIT_LINE ? null : entry.getValue());
                 }
-            } catch (Exception e) {
-                // Ignore - may not be available
+                report.put("placeholders", templateValues);
+                report.put("jvmOptions", command.subList(1, command.indexOf("-jar")));
+                report.put("command", command);
+                report.put("configTemplate", templatePath.toString());
+                report.put("configFile", configPath.toString());
+                report.put("config", renderedConfig);
+                planOut.print(Json.write(report));
+                planOut.flush();
+                return;
             }
             
             // Check available memory (rough estimate)
@@ -1085,271 +1565,286 @@ public class EntryPoint {
             long totalMemory = runtime.totalMemory();
             System.out.println("EntryPoint JVM - Max memory: " + (maxMemory / 1024 / 1024 / 1024) + "GB, Total: " + (totalMemory / 1024 / 1024 / 1024) + "GB");
             
-            // Try to check system memory and Docker limits
-            try {
-                // Check /sys/fs/cgroup/memory/memory.limit_in_bytes (Docker memory limit)
-                Path dockerMemLimit = Paths.get("/sys/fs/cgroup/memory/memory.limit_in_bytes");
-                if (Files.exists(dockerMemLimit)) {
-                    String memLimitStr = new String(Files.readAllBytes(dockerMemLimit)).trim();
-                    try {
-                        long memLimitBytes = Long.parseLong(memLimitStr);
-                        if (memLimitBytes < Long.MAX_VALUE) {
-                            long memLimitGB = memLimitBytes / 1024 / 1024 / 1024;
-                            System.out.println("Docker memory limit: " + memLimitGB + "GB");
-                            if (memLimitGB < heapSizeGB + 4) {
-                                System.err.println("WARNING: Docker memory limit (" + memLimitGB + "GB) may be too low for " + heapSizeGB + "GB heap.");
-                                System.err.println("Recommended: Set Docker memory limit to at least " + (heapSizeGB + 4) + "GB");
-                            }
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignore
+            if (resources.hostMemoryBytes > 0) {
+                System.out.println("System total memory: " + formatGB(resources.hostMemoryBytes / 1024.0 / 1024.0 / 1024.0) + "GB");
+            }
+            
+            // Metrics endpoint, sampled on scrape; the head block is polled in the background every METRICS_HEAD_POLL_INTERVAL_MS
+            MetricsExporter metrics = null;
+            if (metricsPort > 0) {
+                metrics = new MetricsExporter(metricsPort, Paths.get("/data/gc.log"));
+                metrics.setting("heap_size_bytes", heapSizeGB * 1024.0 * 1024.0 * 1024.0);
+                metrics.setting("cpu_cores", cpuCores);
+                metrics.setting("memory_bytes", systemMemoryGB * 1024.0 * 1024.0 * 1024.0);
+                metrics.setting("rpc_threads", rpcThreadCount);
+                metrics.setting("rpc_max_concurrent_calls", rpcMaxConcurrentCalls);
+                metrics.setting("max_connections", maxConnections);
+                metrics.setting("max_http_connections", maxHttpConnections);
+                metrics.setting("storage_cache_bytes", storageCacheSize);
+                metrics.setting("storage_write_buffer_bytes", Double.parseDouble(placeholders.get("{STORAGE_WRITE_BUFFER_SIZE}")));
+                metrics.setting("storage_max_open_files", maxOpenFiles);
+                metrics.setting("db_compact_threads", Double.parseDouble(placeholders.get("{DB_COMPACT_THREADS}")));
+                metrics.setting("global_qps", globalQps);
+                metrics.setting("global_ip_qps", globalIpQps);
+                metrics.setting("native_send_queue_length", nativeSendQueueLength);
+                metrics.setting("gc_parallel_threads", gcSettings.parallelThreads);
+                metrics.setting("gc_concurrent_threads", gcSettings.concurrentThreads);
+                HeadTracker metricsTracker = new HeadTracker(configFullNodePort, METRICS_HEAD_POLL_INTERVAL_MS, null);
+                metricsTracker.start();
+                metrics.setHeadTracker(metricsTracker);
+                if (configEventPluginEnabled) {
+                    EventBrokerProbe brokerProbe = new EventBrokerProbe(configEventPluginServer);
+                    if (!brokerProbe.isEmpty()) {
+                        metrics.addCollector(brokerProbe::collect);
                     }
                 }
-                
-                // Check /proc/meminfo for system memory
-                Path memInfo = Paths.get("/proc/meminfo");
-                if (Files.exists(memInfo)) {
-                    List<String> memLines = Files.readAllLines(memInfo);
-                    for (String line : memLines) {
-                        if (line.startsWith("MemTotal:")) {
-                            String[] parts = line.split("\\s+");
-                            if (parts.length >= 2) {
-                                try {
-                                    long memTotalKB = Long.parseLong(parts[1]);
-                                    long memTotalGB = memTotalKB / 1024 / 1024;
-                                    System.out.println("System total memory: " + memTotalGB + "GB");
-                                } catch (NumberFormatException e) {
-                                    // Ignore
-                                }
-                            }
-                            break;
-                        }
+                metrics.start();
+                System.out.println("Metrics endpoint: http://0.0.0.0:" + metricsPort + "/metrics");
+            }
+            
+            // One adaptive limit shared by both proxies, since they load the same node
+            AdaptiveLimiter limiter = null;
+            if (adaptiveLimitLatencyMs > 0 && (apiCachePort > 0 || jsonRpcProxyPort > 0)) {
+                int minLimit = Math.max(2, cpuCount / 2);
+                int maxLimit = Math.max(8, cpuCount * 4);
+                limiter = new AdaptiveLimiter(configFullNodePort, minLimit, maxLimit, adaptiveLimitLatencyMs, adaptiveLimitMaxLagBlocks);
+                limiter.start();
+                if (metrics != null) {
+                    metrics.addCollector(limiter::collect);
+                }
+                System.out.println("Adaptive limit: " + minLimit + "-" + maxLimit + " concurrent proxy calls, target latency "
+                    + adaptiveLimitLatencyMs + "ms, max head lag " + adaptiveLimitMaxLagBlocks + " blocks");
+            }
+            
+            // API cache, started once and kept across FullNode restarts (it answers 502 while the node is down)
+            if (apiCachePort > 0) {
+                ApiCacheProxy apiCache = new ApiCacheProxy(apiCachePort, configFullNodePort, apiCacheSizeMB * 1024 * 1024,
+                    Math.max(4, cpuCount * 2));
+                apiCache.setLimiter(limiter);
+                apiCache.start();
+                if (metrics != null) {
+                    metrics.addCollector(apiCache::collect);
+                }
+                System.out.println("API cache: http://0.0.0.0:" + apiCachePort + " -> FullNode HTTP port " + configFullNodePort
+                    + " (" + apiCacheSizeMB + "MB)");
+            }
+            
+            // JSON-RPC proxy, kept across FullNode restarts like the API cache
+            if (jsonRpcProxyPort > 0) {
+                JsonRpcProxy jsonRpcProxy = new JsonRpcProxy(jsonRpcProxyPort, configFullNodePort, rpcFullNode,
+                    JsonRpcProxy.CHAIN_IDS.get(network == null || network.isEmpty() ? "mainnet" : network),
+                    rpcMaxConcurrentCalls, Math.max(4, cpuCount * 2));
+                jsonRpcProxy.setLimiter(limiter);
+                jsonRpcProxy.start();
+                if (metrics != null) {
+                    metrics.addCollector(jsonRpcProxy::collect);
+                }
+                System.out.println("JSON-RPC proxy: http://0.0.0.0:" + jsonRpcProxyPort + " -> FullNode JSON-RPC port " + rpcFullNode
+                    + " (" + rpcMaxConcurrentCalls + " concurrent calls per method)");
+            }
+            
+            // Exec mode: hand off to FullNode inside this JVM instead of keeping a second JVM resident
+            if (LAUNCH_MODE_EXEC.equals(launchMode)) {
+                writeLaunchFiles(command);
+                String toolOptions = System.getenv(JvmOptions.TOOL_OPTIONS_ENV);
+                List<String> mismatches = JvmOptions.optionMismatches(jvmOptionsLine(command), toolOptions);
+                if (mismatches.isEmpty()) {
+                    System.out.println("Launch mode: exec, starting FullNode in the launcher JVM");
+                    if (syncProfileAuto) {
+                        System.out.println("Note: automatic sync profile switching needs supervise mode, staying on the " + syncProfile + " profile");
+                    }
+                    if (watchdogStallSeconds > 0) {
+                        System.out.println("Note: the stall watchdog needs supervise mode and is disabled");
                     }
+                    System.out.flush();
+                    // FullNode's main returns once the node is running, so the gate keeps checking on its daemon thread
+                    Readiness readiness = new Readiness(getOwnProcessId(), configFullNodePort, readyMaxLagBlocks,
+                        readyWarmupFile, (int) readyWarmupRounds, READY_FILE);
+                    readiness.start();
+                    if (metrics != null) {
+                        metrics.inProcess();
+                        metrics.setReadiness(readiness);
+                    }
+                    runInProcess(command);
+                    return;
+                }
+                if (toolOptions != null && !toolOptions.trim().isEmpty()) {
+                    // This JVM already runs with FullNode-sized options; a supervised FullNode next to it would double the memory
+                    System.err.println("ERROR: LAUNCH_MODE=exec but JAVA_TOOL_OPTIONS does not match " + LAUNCH_JVM_OPTIONS_FILE + ":");
+                    for (String mismatch : mismatches) {
+                        System.err.println("  " + mismatch);
+                    }
+                    System.err.println("Set JAVA_TOOL_OPTIONS to the new contents of " + LAUNCH_JVM_OPTIONS_FILE
+                        + ", or unset it to start in supervise mode.");
+                    System.exit(1);
                 }
-            } catch (Exception e) {
-                // Ignore - these files may not be available
+                System.err.println("WARNING: LAUNCH_MODE=exec but JAVA_TOOL_OPTIONS is not set.");
+                System.err.println("Set JAVA_TOOL_OPTIONS to the contents of " + LAUNCH_JVM_OPTIONS_FILE + " to run FullNode as PID 1.");
+                System.err.println("Falling back to supervise mode for this start.");
             }
             
             System.out.flush();
             
             // Execute the command
-            ProcessBuilder pb = new ProcessBuilder(command);
+            // The child gets its options on the command line; inherited JAVA_TOOL_OPTIONS would be applied on top
+            ProcessBuilder pb = JvmOptions.withoutToolOptions(new ProcessBuilder(command));
             // Don't redirect error stream - capture both separately to see JVM errors
             pb.redirectErrorStream(false);
             
             // Set working directory
             pb.directory(new File("/data"));
             
-            Process process = pb.start();
-            System.out.println("Process started, PID: " + getProcessId(process));
-            System.out.flush();
+            Runtime.getRuntime().addShutdownHook(new Thread(EntryPoint::forwardShutdown, "shutdown-forwarder"));
             
-            // Use size-limited buffers to prevent EntryPoint OOM errors
-            // Only keep last 1MB of output and 512KB of errors for error reporting
-            // Since we're already streaming to stdout/stderr, we don't need full history
-            final int MAX_OUTPUT_BUFFER_SIZE = 1024 * 1024; // 1MB
-            final int MAX_ERROR_BUFFER_SIZE = 512 * 1024;   // 512KB
-            final java.util.List<String> outputLines = new java.util.ArrayList<>(1000);
-            final java.util.List<String> errorLines = new java.util.ArrayList<>(500);
-            final int[] outputBufferSize = {0};
-            final int[] errorBufferSize = {0};
-            final boolean[] processEnded = {false};
-            
-            // Stream stdout in real-time with size-limited buffering
-            Thread outputThread = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(process.getInputStream(), java.nio.charset.StandardCharsets.UTF_8), 8192)) {
-                    String line;
-                    while ((line = reader.readLine()) != null || !processEnded[0]) {
-                        if (line != null) {
-                            System.out.println(line);
-                            System.out.flush();
-                            // Only buffer for error reporting (size-limited circular buffer)
-                            try {
-                                int lineSize = line.length() + 1; // +1 for newline
-                                synchronized (outputLines) {
-                                    outputLines.add(line);
-                                    outputBufferSize[0] += lineSize;
-                                    // Remove oldest lines if buffer exceeds limit
-                                    while (outputBufferSize[0] > MAX_OUTPUT_BUFFER_SIZE && !outputLines.isEmpty()) {
-                                        String removed = outputLines.remove(0);
-                                        outputBufferSize[0] -= (removed.length() + 1);
-                                    }
-                                }
-                            } catch (OutOfMemoryError e) {
-                                // If buffer OOM, clear it and continue streaming
-                                System.err.println("WARNING: EntryPoint output buffer OOM, clearing buffer. Output will still be streamed.");
-                                synchronized (outputLines) {
-                                    outputLines.clear();
-                                    outputBufferSize[0] = 0;
-                                }
-                            }
-                        } else {
-                            // No more lines, but process might still be running
-                            try {
-                                Thread.sleep(100);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
-                        }
-                    }
-                } catch (OutOfMemoryError e) {
-                    // If we still get OOM, disable buffering completely
-                    System.err.println("WARNING: EntryPoint buffer OOM, disabling output buffering. Output will still be streamed.");
-                    synchronized (outputLines) {
-                        outputLines.clear();
-                        outputBufferSize[0] = 0;
-                    }
-                } catch (IOException e) {
-                    if (!processEnded[0]) {
-                        System.err.println("Error reading process stdout: " + e.getMessage());
-                        e.printStackTrace();
+            Watchdog.RestartBudget restartBudget = new Watchdog.RestartBudget((int) Math.min(watchdogMaxRestarts, Integer.MAX_VALUE),
+                watchdogRestartWindowSeconds * 1000, WATCHDOG_BASE_BACKOFF_MS, WATCHDOG_MAX_BACKOFF_MS);
+            if (watchdogStallSeconds > 0) {
+                System.out.println("Stall watchdog: restarting FullNode if its head does not advance for " + watchdogStallSeconds
+                    + "s (at most " + watchdogMaxRestarts + " restarts per " + watchdogRestartWindowSeconds + "s)");
+            }
+            
+            int exitCode;
+            while (true) {
+                Process process;
+                synchronized (SHUTDOWN_LOCK) {
+                    // Don't start (or restart) the node once the container is stopping
+                    if (shutdownRequested) {
+                        exitCode = 143;
+                        break;
                     }
+                    process = pb.start();
+                    currentProcess = process;
                 }
-            });
-            outputThread.setDaemon(true); // Don't prevent JVM shutdown
-            outputThread.start();
-            
-            // Stream stderr in real-time with size-limited buffering
-            Thread errorThread = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(process.getErrorStream(), java.nio.charset.StandardCharsets.UTF_8), 4096)) {
-                    String line;
-                    while ((line = reader.readLine()) != null || !processEnded[0]) {
-                        if (line != null) {
-                            System.err.println("[stderr] " + line);
-                            System.err.flush();
-                            // Only buffer for error reporting (size-limited circular buffer)
-                            try {
-                                int lineSize = line.length() + 1; // +1 for newline
-                                synchronized (errorLines) {
-                                    errorLines.add(line);
-                                    errorBufferSize[0] += lineSize;
-                                    // Remove oldest lines if buffer exceeds limit
-                                    while (errorBufferSize[0] > MAX_ERROR_BUFFER_SIZE && !errorLines.isEmpty()) {
-                                        String removed = errorLines.remove(0);
-                                        errorBufferSize[0] -= (removed.length() + 1);
-                                    }
-                                }
-                            } catch (OutOfMemoryError e) {
-                                // If buffer OOM, clear it and continue streaming
-                                System.err.println("WARNING: EntryPoint error buffer OOM, clearing buffer. Errors will still be streamed.");
-                                synchronized (errorLines) {
-                                    errorLines.clear();
-                                    errorBufferSize[0] = 0;
-                                }
-                            }
-                        } else {
-                            // No more lines, but process might still be running
-                            try {
-                                Thread.sleep(100);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
-                        }
-                    }
-                } catch (OutOfMemoryError e) {
-                    // If we still get OOM, disable buffering completely
-                    System.err.println("WARNING: EntryPoint buffer OOM, disabling error buffering. Errors will still be streamed.");
-                    synchronized (errorLines) {
-                        errorLines.clear();
-                        errorBufferSize[0] = 0;
-                    }
-                } catch (IOException e) {
-                    if (!processEnded[0]) {
-                        System.err.println("Error reading process stderr: " + e.getMessage());
-                        e.printStackTrace();
-                    }
+                System.out.println("Process started, PID: " + getProcessId(process));
+                System.out.flush();
+                
+                // While catching up, watch the head block and switch to the steady-state profile near head
+                HeadTracker syncMonitor = null;
+                if (syncProfileAuto && SYNC_PROFILE_CATCHUP.equals(syncProfile)) {
+                    syncMonitor = startSyncMonitor(process, configPath, rawConfig, configTemplate, placeholders,
+                        cpuCount, storageWriteBufferSize, dbCompactThreads);
                 }
-            });
-            errorThread.setDaemon(true); // Don't prevent JVM shutdown
-            errorThread.start();
-            
-            // Give threads a moment to start reading before checking process status
-            // This helps catch immediate failures
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            
-            // Check if process has already exited (immediate failure)
-            boolean exitedImmediately = false;
-            try {
-                int quickExitCode = process.exitValue(); // throws exception if still running
-                exitedImmediately = true;
-                System.err.println("WARNING: Process exited immediately with code: " + quickExitCode);
-                System.err.println("This usually indicates a JVM startup failure.");
-                System.err.flush();
-            } catch (IllegalThreadStateException e) {
-                // Process is still running, which is normal
-            }
-            
-            // Wait for process to complete
-            int exitCode = process.waitFor();
-            processEnded[0] = true;
-            
-            // Give output threads more time to finish reading, especially for immediate failures
-            int joinTimeout = exitedImmediately ? 3000 : 2000;
-            outputThread.join(joinTimeout);
-            errorThread.join(joinTimeout);
-            
-            // Try to read any remaining bytes from stderr if process exited quickly
-            if (exitedImmediately && errorLines.isEmpty()) {
+                
+                // Relay stdout/stderr byte-for-byte; only the last 1MB of output and 512KB of errors
+                // are kept (in fixed-size ring buffers) for error reporting
+                final int MAX_OUTPUT_BUFFER_SIZE = 1024 * 1024; // 1MB
+                final int MAX_ERROR_BUFFER_SIZE = 512 * 1024;   // 512KB
+                LogRelay outputRelay = LogRelay.toStdout(process.getInputStream(), MAX_OUTPUT_BUFFER_SIZE)
+                    .countMarker(DROPPED_TRIGGER_MARKER);
+                LogRelay errorRelay = LogRelay.toStderr(process.getErrorStream(), "[stderr] ", MAX_ERROR_BUFFER_SIZE)
+                    .countMarker(DROPPED_TRIGGER_MARKER);
+                Thread outputThread = outputRelay.start("stdout-relay");
+                Thread errorThread = errorRelay.start("stderr-relay");
+                if (metrics != null) {
+                    metrics.processStarted(getProcessId(process), outputRelay, errorRelay);
+                }
+                Watchdog watchdog = null;
+                if (watchdogStallSeconds > 0) {
+                    watchdog = new Watchdog(process, getProcessId(process), outputRelay, configFullNodePort,
+                        watchdogStallSeconds * 1000, watchdogStartupGraceSeconds * 1000, Paths.get("/data"), EntryPoint::stopProcess);
+                    watchdog.start();
+                }
+                Readiness readiness = new Readiness(getProcessId(process), configFullNodePort, readyMaxLagBlocks,
+                    readyWarmupFile, (int) readyWarmupRounds, READY_FILE);
+                readiness.start();
+                if (metrics != null) {
+                    metrics.setReadiness(readiness);
+                }
+                
+                // Give threads a moment to start reading before checking process status
+                // This helps catch immediate failures
                 try {
-                    // Try reading raw bytes from error stream
-                    InputStream errorStream = process.getErrorStream();
-                    byte[] buffer = new byte[8192];
-                    int bytesRead = errorStream.read(buffer);
-                    if (bytesRead > 0) {
-                        String errorText = new String(buffer, 0, bytesRead);
-                        System.err.println("[stderr-raw] " + errorText);
-                        synchronized (errorLines) {
-                            errorLines.add(errorText);
-                        }
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                
+                // Check if process has already exited (immediate failure)
+                boolean exitedImmediately = false;
+                try {
+                    int quickExitCode = process.exitValue(); // throws exception if still running
+                    exitedImmediately = true;
+                    System.err.println("WARNING: Process exited immediately with code: " + quickExitCode);
+                    System.err.println("This usually indicates a JVM startup failure.");
+                    System.err.flush();
+                } catch (IllegalThreadStateException e) {
+                    // Process is still running, which is normal
+                }
+                
+                // Wait for process to complete
+                exitCode = process.waitFor();
+                if (syncMonitor != null) {
+                    syncMonitor.stop();
+                }
+                if (watchdog != null) {
+                    watchdog.stop();
+                }
+                readiness.stop();
+                
+                // Give output threads more time to finish reading, especially for immediate failures
+                int joinTimeout = exitedImmediately ? 3000 : 2000;
+                outputThread.join(joinTimeout);
+                errorThread.join(joinTimeout);
+                
+                // Stopped by the shutdown hook; it reports the shutdown itself
+                if (shutdownRequested) {
+                    break;
+                }
+                
+                // Stopped by the watchdog: restart after a backoff, unless it keeps stalling
+                if (watchdog != null && watchdog.restartRequested()) {
+                    long delay = restartBudget.record(System.currentTimeMillis());
+                    if (delay < 0) {
+                        System.err.println("ERROR: FullNode stalled " + restartBudget.count() + " times within "
+                            + watchdogRestartWindowSeconds + "s, not restarting it again");
+                        exitCode = 1;
+                        break;
                     }
-                } catch (Exception e) {
-                    // Ignore - stream may already be closed
+                    System.out.println("Restarting stalled FullNode in " + (delay / 1000) + "s (restart " + restartBudget.count()
+                        + " of at most " + watchdogMaxRestarts + " within " + watchdogRestartWindowSeconds + "s)");
+                    System.out.flush();
+                    Thread.sleep(delay);
+                    continue;
                 }
-            }
-            
-            if (exitCode != 0) {
-                System.err.println("\n=== Process exited with code: " + exitCode + " ===");
-                synchronized (errorLines) {
-                    if (!errorLines.isEmpty()) {
-                        System.err.println("\n=== Error output (stderr) - last " + errorLines.size() + " lines ===");
-                        for (String line : errorLines) {
-                            System.err.println(line);
-                        }
+                
+                // Controlled restart into the steady-state sync profile
+                if (syncRestartRequested) {
+                    syncRestartRequested = false;
+                    System.out.println("FullNode stopped with code " + exitCode + ", restarting with " + syncProfile + " sync profile");
+                    System.out.flush();
+                    continue;
+                }
+                
+                if (exitCode != 0) {
+                    System.err.println("\n=== Process exited with code: " + exitCode + " ===");
+                    if (errorRelay.bytesRelayed() > 0) {
+                        System.err.println("\n=== Error output (stderr) - last 512KB ===");
+                        System.err.print(errorRelay.tail());
                         System.err.println("=== End of error output ===");
                     }
-                }
-                synchronized (outputLines) {
-                    if (!outputLines.isEmpty()) {
-                        System.err.println("\n=== Standard output (stdout) - last " + outputLines.size() + " lines ===");
-                        for (String line : outputLines) {
-                            System.err.println(line);
-                        }
+                    if (outputRelay.bytesRelayed() > 0) {
+                        System.err.println("\n=== Standard output (stdout) - last 1MB ===");
+                        System.err.print(outputRelay.tail());
                         System.err.println("=== End of standard output ===");
                     }
+                    if (outputRelay.bytesRelayed() == 0 && errorRelay.bytesRelayed() == 0) {
+                        System.err.println("No output captured from process (neither stdout nor stderr).");
+                        System.err.println("This usually means:");
+                        System.err.println("  1. JVM failed to start (check memory allocation)");
+                        System.err.println("  2. Config file has errors");
+                        System.err.println("  3. JAR file is corrupted");
+                        System.err.println("\nTrying to allocate " + heapSizeGB + "GB heap.");
+                        System.err.println("Available CPUs: " + cpuCount);
+                        System.err.println("EntryPoint JVM max memory: " + (maxMemory / 1024 / 1024 / 1024) + "GB");
+                        System.err.println("\nTroubleshooting:");
+                        System.err.println("  - Check if system has enough memory for " + heapSizeGB + "GB heap");
+                        System.err.println("  - Try reducing JAVA_HEAP_SIZE environment variable");
+                        System.err.println("  - Check Docker container memory limits if running in Docker");
+                    }
+                    System.err.flush();
                 }
-                if (outputLines.isEmpty() && errorLines.isEmpty()) {
-                    System.err.println("No output captured from process (neither stdout nor stderr).");
-                    System.err.println("This usually means:");
-                    System.err.println("  1. JVM failed to start (check memory allocation)");
-                    System.err.println("  2. Config file has errors");
-                    System.err.println("  3. JAR file is corrupted");
-                    System.err.println("\nTrying to allocate " + heapSizeGB + "GB heap.");
-                    System.err.println("Available CPUs: " + cpuCount);
-                    System.err.println("EntryPoint JVM max memory: " + (maxMemory / 1024 / 1024 / 1024) + "GB");
-                    System.err.println("\nTroubleshooting:");
-                    System.err.println("  - Check if system has enough memory for " + heapSizeGB + "GB heap");
-                    System.err.println("  - Try reducing JAVA_HEAP_SIZE environment variable");
-                    System.err.println("  - Check Docker container memory limits if running in Docker");
-                }
-                System.err.flush();
+                
+                break;
             }
             
             System.exit(exitCode);
@@ -1361,6 +1856,138 @@ public class EntryPoint {
         }
     }
     
+    /**
+     * Shutdown hook: forward SIGTERM to the running FullNode and wait for it to close its databases.
+     * The node is only killed once SHUTDOWN_DRAIN_TIMEOUT_SECONDS have passed, since a hard kill
+     * forces a long LevelDB/RocksDB recovery on the next start.
+     */
+    static void forwardShutdown() {
+        Process process;
+        synchronized (SHUTDOWN_LOCK) {
+            shutdownRequested = true;
+            process = currentProcess;
+        }
+        if (process == null || !process.isAlive()) {
+            return;
+        }
+        long started = System.nanoTime();
+        System.out.println("Shutdown requested, stopping FullNode (PID " + getProcessId(process) + "), waiting up to "
+            + shutdownDrainTimeoutSeconds + "s for databases to close");
+        System.out.flush();
+        try {
+            stopProcess(process);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "FullNode stopped with code %s after %.1fs",
+            process.isAlive() ? "unknown" : String.valueOf(process.exitValue()), elapsed));
+        System.out.flush();
+    }
+    
+    /**
+     * SIGTERM the node and wait for it to close its databases; kill it once SHUTDOWN_DRAIN_TIMEOUT_SECONDS have passed.
+     */
+    static void stopProcess(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(shutdownDrainTimeoutSeconds, java.util.concurrent.TimeUnit.SECONDS)) {
+            System.err.println("WARNING: FullNode did not stop within " + shutdownDrainTimeoutSeconds + "s, killing it."
+                + " The databases may need recovery on the next start.");
+            System.err.flush();
+            process.destroyForcibly();
+            process.waitFor();
+        }
+    }
+    
+    /**
+     * Start polling the head block of a node launched with the catch-up profile.
+     * Once the node is within SYNC_CATCHUP_THRESHOLD_BLOCKS of the wall clock, the config is
+     * re-rendered with the steady-state profile and the node is stopped so the main loop restarts it.
+     */
+    private static HeadTracker startSyncMonitor(final Process process, final Path configPath,
+                                                final String rawConfig, final ConfigTemplate configTemplate,
+                                                final Map<String, String> placeholders, final int cpuCount,
+                                                final long storageWriteBufferSize, final int dbCompactThreads) {
+        final long thresholdBlocks = syncCatchupThresholdBlocks;
+        long pollIntervalMs = syncPollIntervalSeconds * 1000L;
+        System.out.println("Sync profile: catchup (switching to steady within " + thresholdBlocks + " blocks of head)");
+        HeadTracker tracker = new HeadTracker(configFullNodePort, pollIntervalMs, t -> {
+            long lag = t.lagBlocks();
+            if (lag < 0 || lag > thresholdBlocks || syncRestartRequested) {
+                return;
+            }
+            System.out.println("Node is " + lag + " blocks behind head (block " + t.headNumber() + "), switching to steady-state sync profile");
+            try {
+                syncProfile = SYNC_PROFILE_STEADY;
+                applySyncProfile(placeholders, syncProfile, cpuCount, storageWriteBufferSize, dbCompactThreads);
+                writeConfig(configPath, renderConfig(rawConfig, configTemplate, placeholders));
+                Files.write(SYNC_PROFILE_MARKER, SYNC_PROFILE_STEADY.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                syncRestartRequested = true;
+                t.stop();
+                // SIGTERM lets java-tron close its databases cleanly before the restart
+                process.destroy();
+            } catch (IOException e) {
+                System.err.println("Warning: Could not switch to steady-state sync profile: " + e.getMessage());
+                syncProfile = SYNC_PROFILE_CATCHUP;
+            }
+        });
+        tracker.start();
+        return tracker;
+    }
+    
+    /**
+     * Write the resolved FullNode command for exec mode.
+     * fullnode.jvmopts holds the JVM options on one line (usable as JAVA_TOOL_OPTIONS),
+     * fullnode.cmd holds the whole command with one argument per line.
+     */
+    private static void writeLaunchFiles(List<String> command) throws IOException {
+        Files.createDirectories(LAUNCH_DIR);
+        Files.write(LAUNCH_JVM_OPTIONS_FILE, jvmOptionsLine(command).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        Files.write(LAUNCH_COMMAND_FILE, command, java.nio.charset.StandardCharsets.UTF_8);
+        System.out.println("Wrote FullNode JVM options to " + LAUNCH_JVM_OPTIONS_FILE);
+    }
+    
+    /**
+     * The JVM options of the FullNode command (between java and -jar) on one line, as written to fullnode.jvmopts.
+     * FullNode can only run in this JVM if JAVA_TOOL_OPTIONS holds exactly these options.
+     */
+    private static String jvmOptionsLine(List<String> command) {
+        return String.join(" ", command.subList(1, command.indexOf("-jar")));
+    }
+    
+    /**
+     * Load FullNode.jar and invoke its Main-Class in this JVM.
+     * The node then owns the process: its own shutdown hooks handle SIGTERM and close the databases.
+     */
+    private static void runInProcess(List<String> command) throws Exception {
+        int jarIndex = command.indexOf("-jar");
+        File jar = new File(command.get(jarIndex + 1));
+        List<String> nodeArgs = command.subList(jarIndex + 2, command.size());
+        String mainClass;
+        try (java.util.jar.JarFile jarFile = new java.util.jar.JarFile(jar)) {
+            mainClass = jarFile.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+        // Parent is the extension loader so launcher classes stay out of the node's class path
+        java.net.URLClassLoader loader = new java.net.URLClassLoader(
+            new java.net.URL[]{jar.toURI().toURL()}, ClassLoader.getSystemClassLoader().getParent());
+        Thread.currentThread().setContextClassLoader(loader);
+        Class.forName(mainClass, true, loader)
+            .getMethod("main", String[].class)
+            .invoke(null, (Object) nodeArgs.toArray(new String[0]));
+    }
+    
+    /**
+     * PID of this JVM; /proc/self links to it (Java 8 has no API for it).
+     */
+    private static long getOwnProcessId() {
+        try {
+            return Long.parseLong(new File("/proc/self").getCanonicalFile().getName());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+    
     // Helper method to get process ID (may not work on all systems)
     private static long getProcessId(Process process) {
         try {
@@ -1369,6 +1996,8 @@ public class EntryPoint {
                 field.setAccessible(true);
                 return field.getLong(process);
             }
+            // Java 9+ exposes Process.pid()
+            return (Long) Process.class.getMethod("pid").invoke(process);
         } catch (Exception e) {
             // Ignore
         }
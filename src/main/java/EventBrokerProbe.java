@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * Checks on every scrape whether the event plugin's broker accepts TCP connections, and how fast.
+ * A broker that is down or slow to accept is what backs up FullNode's trigger queue.
+ */
+public class EventBrokerProbe {
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+
+    private final List<InetSocketAddress> brokers = new ArrayList<>();
+
+    /**
+     * servers is the plugin's server setting: host:port, or several separated by commas.
+     */
+    public EventBrokerProbe(String servers) {
+        for (String server : servers.split(",")) {
+            server = server.trim();
+            int colon = server.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            try {
+                brokers.add(InetSocketAddress.createUnresolved(server.substring(0, colon),
+                    Integer.parseInt(server.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                // Not host:port; nothing to probe
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return brokers.isEmpty();
+    }
+
+    /**
+     * Broker metrics for the metrics endpoint: up if any broker accepts a connection.
+     */
+    public void collect(MetricsExporter metrics) {
+        long best = -1;
+        for (InetSocketAddress broker : brokers) {
+            long started = System.nanoTime();
+            try (Socket socket = new Socket()) {
+                // Resolve on every probe, the broker may have moved
+                socket.connect(new InetSocketAddress(broker.getHostString(), broker.getPort()), CONNECT_TIMEOUT_MS);
+                long elapsed = System.nanoTime() - started;
+                best = best < 0 ? elapsed : Math.min(best, elapsed);
+            } catch (IOException e) {
+                // Down, unresolvable or not accepting within the timeout
+            }
+        }
+        metrics.gauge("tron_event_broker_up", "1 if the event plugin's broker accepts TCP connections", best >= 0 ? 1 : 0);
+        if (best >= 0) {
+            metrics.gauge("tron_event_broker_connect_seconds", "Time to open a TCP connection to the event plugin's broker", best / 1e9);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The event plugin's contract filter: contract addresses, topics and the block range.
+ * Addresses are accepted as base58 (T...) or hex (41... or 0x...) and canonicalized to base58, which is
+ * the form FullNode compares trigger addresses against; topics are 32-byte hex, canonicalized to lower case
+ * without 0x. Duplicates are dropped. Large sets are rendered several entries per line to keep the config small.
+ * A filter file has one entry per line, "fromblock = ..." and "toblock = ...", and # comments.
+ */
+public class EventFilter {
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final byte ADDRESS_PREFIX = 0x41;
+    /** Lists up to this size get one entry per line; longer ones are packed */
+    static final int COMPACT_THRESHOLD = 64;
+    private static final int COMPACT_ENTRIES_PER_LINE = 8;
+
+    private final Set<String> addresses = new LinkedHashSet<>();
+    private final Set<String> topics = new LinkedHashSet<>();
+    private String fromBlock = "";
+    private String toBlock = "";
+    private int duplicates = 0;
+    private final MessageDigest sha256;
+
+    public EventFilter() {
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Add a contract address. Throws IllegalArgumentException if it is not a valid TRON address.
+     */
+    public void addAddress(String value) {
+        if (!addresses.add(canonicalAddress(value))) {
+            duplicates++;
+        }
+    }
+
+    /**
+     * Add an event topic. Throws IllegalArgumentException if it is not 32 bytes of hex.
+     */
+    public void addTopic(String value) {
+        if (!topics.add(canonicalTopic(value))) {
+            duplicates++;
+        }
+    }
+
+    /**
+     * Set the block range: from is "", "earliest" or a block number, to is "", "latest" or a block number.
+     */
+    public void setRange(String from, String to) {
+        if (!from.isEmpty() && !"earliest".equals(from) && blockNumber(from) < 0) {
+            throw new IllegalArgumentException("fromblock " + from + ": expected \"\", earliest or a block number");
+        }
+        if (!to.isEmpty() && !"latest".equals(to) && blockNumber(to) < 0) {
+            throw new IllegalArgumentException("toblock " + to + ": expected \"\", latest or a block number");
+        }
+        if (blockNumber(from) >= 0 && blockNumber(to) >= 0 && blockNumber(from) > blockNumber(to)) {
+            throw new IllegalArgumentException("fromblock " + from + " is after toblock " + to);
+        }
+        fromBlock = from;
+        toBlock = to;
+    }
+
+    /**
+     * Add the entries of a filter file. Throws IllegalArgumentException naming the offending line.
+     */
+    public void load(Path file) throws IOException {
+        String from = fromBlock;
+        String to = toBlock;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                line = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    int equals = line.indexOf('=');
+                    if (equals >= 0) {
+                        String key = line.substring(0, equals).trim();
+                        String value = unquote(line.substring(equals + 1).trim());
+                        if ("fromblock".equals(key)) {
+                            from = value;
+                        } else if ("toblock".equals(key)) {
+                            to = value;
+                        } else {
+                            throw new IllegalArgumentException(key + ": unknown setting; expected fromblock or toblock");
+                        }
+                    } else if (isTopic(line)) {
+                        addTopic(line);
+                    } else {
+                        addAddress(line);
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        setRange(from, to);
+    }
+
+    public int addressCount() {
+        return addresses.size();
+    }
+
+    public int topicCount() {
+        return topics.size();
+    }
+
+    public int duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * fromblock and toblock as HOCON strings.
+     */
+    public String fromBlock() {
+        return '"' + fromBlock + '"';
+    }
+
+    public String toBlock() {
+        return '"' + toBlock + '"';
+    }
+
+    /**
+     * The contractAddress list entries; indent is the indentation of the placeholder line.
+     */
+    public String renderAddresses(String indent) {
+        return render(addresses, indent);
+    }
+
+    /**
+     * The contractTopic list entries; indent is the indentation of the placeholder line.
+     */
+    public String renderTopics(String indent) {
+        return render(topics, indent);
+    }
+
+    private static String render(Set<String> entries, String indent) {
+        if (entries.isEmpty()) {
+            // An empty string is what the stock config has: no filter
+            return "\"\"";
+        }
+        int perLine = entries.size() > COMPACT_THRESHOLD ? COMPACT_ENTRIES_PER_LINE : 1;
+        StringBuilder out = new StringBuilder(entries.size() * 40);
+        int i = 0;
+        for (String entry : entries) {
+            if (i > 0) {
+                out.append(i % perLine == 0 ? ",\n" + indent : ", ");
+            }
+            out.append('"').append(entry).append('"');
+            i++;
+        }
+        return out.toString();
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+
+    /**
+     * -1 unless value is a non-negative block number.
+     */
+    private static long blockNumber(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    private static boolean isTopic(String value) {
+        String hex = value.startsWith("0x") || value.startsWith("0X") ? value.substring(2) : value;
+        return hex.length() == 64 && isHex(hex);
+    }
+
+    static String canonicalTopic(String value) {
+        if (!isTopic(value)) {
+            throw new IllegalArgumentException(value + ": a topic must be 32 bytes of hex");
+        }
+        return (value.length() == 66 ? value.substring(2) : value).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The base58check form of a TRON address given as base58, 41-prefixed hex or 0x-prefixed hex.
+     */
+    String canonicalAddress(String value) {
+        byte[] address;
+        if (value.length() == 42 && (value.startsWith("0x") || value.startsWith("0X")) && isHex(value.substring(2))) {
+            address = hexToBytes("41" + value.substring(2));
+        } else if (value.length() == 42 && value.startsWith("41") && isHex(value)) {
+            address = hexToBytes(value);
+        } else if (value.length() == 34 && value.charAt(0) == 'T') {
+            byte[] decoded = decodeBase58(value);
+            if (decoded == null || decoded.length != 25) {
+                throw new IllegalArgumentException(value + ": not a valid base58 TRON address");
+            }
+            address = Arrays.copyOf(decoded, 21);
+            if (!Arrays.equals(checksum(address), Arrays.copyOfRange(decoded, 21, 25))) {
+                throw new IllegalArgumentException(value + ": base58 checksum mismatch");
+            }
+            if (address[0] == ADDRESS_PREFIX) {
+                // Already canonical
+                return value;
+            }
+        } else {
+            throw new IllegalArgumentException(value + ": not a TRON address (T... base58, 41... or 0x... hex)");
+        }
+        if (address[0] != ADDRESS_PREFIX) {
+            throw new IllegalArgumentException(value + ": not a TRON mainnet/testnet address (prefix 0x41)");
+        }
+        return encodeBase58(concat(address, checksum(address)));
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * First four bytes of the double SHA-256, as in base58check.
+     */
+    private byte[] checksum(byte[] payload) {
+        return Arrays.copyOf(sha256.digest(sha256.digest(payload)), 4);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    /**
+     * Decode base58, or null if value has a character outside the alphabet.
+     */
+    private static byte[] decodeBase58(String value) {
+        // Big-endian base-256 digits, multiplied by 58 and added to for every character
+        byte[] bytes = new byte[value.length()];
+        int length = 0;
+        int leadingZeros = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int carry = BASE58_ALPHABET.indexOf(value.charAt(i));
+            if (carry < 0) {
+                return null;
+            }
+            if (carry == 0 && length == 0) {
+                leadingZeros++;
+                continue;
+            }
+            for (int j = 0; j < length; j++) {
+                carry += (bytes[bytes.length - 1 - j] & 0xff) * 58;
+                bytes[bytes.length - 1 - j] = (byte) carry;
+                carry >>= 8;
+            }
+            while (carry > 0) {
+                bytes[bytes.length - 1 - length++] = (byte) carry;
+                carry >>= 8;
+            }
+        }
+        byte[] out = new byte[leadingZeros + length];
+        System.arraycopy(bytes, bytes.length - length, out, leadingZeros, length);
+        return out;
+    }
+
+    private static String encodeBase58(byte[] bytes) {
+        // Little-endian base-58 digits, multiplied by 256 and added to for every byte
+        int[] digits = new int[bytes.length * 2];
+        int length = 0;
+        int leadingZeros = 0;
+        while (leadingZeros < bytes.length && bytes[leadingZeros] == 0) {
+            leadingZeros++;
+        }
+        for (int i = leadingZeros; i < bytes.length; i++) {
+            int carry = bytes[i] & 0xff;
+            for (int j = 0; j < length; j++) {
+                carry += digits[j] << 8;
+                digits[j] = carry % 58;
+                carry /= 58;
+            }
+            while (carry > 0) {
+                digits[length++] = carry % 58;
+                carry /= 58;
+            }
+        }
+        StringBuilder out = new StringBuilder(leadingZeros + length);
+        for (int i = 0; i < leadingZeros; i++) {
+            out.append(BASE58_ALPHABET.charAt(0));
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            out.append(BASE58_ALPHABET.charAt(digits[i]));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Locates and checks an event plugin bundle (a pf4j plugin zip) before FullNode is started,
+ * so a missing or wrong bundle fails the launch instead of FullNode's event service.
+ */
+public class EventPluginBundle {
+    public static final String TYPE_KAFKA = "kafka";
+    public static final String TYPE_MONGODB = "mongodb";
+    public static final String TYPE_NATIVE = "native";
+
+    final Path path;
+    final String pluginId;
+    final String pluginVersion;
+    final String pluginClass;
+
+    private EventPluginBundle(Path path, String pluginId, String pluginVersion, String pluginClass) {
+        this.path = path;
+        this.pluginId = pluginId;
+        this.pluginVersion = pluginVersion;
+        this.pluginClass = pluginClass;
+    }
+
+    /**
+     * The newest plugin-<type>-<version>.zip in dir, or null if there is none.
+     */
+    static Path find(Path dir, String type) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        String prefix = "plugin-" + type + "-";
+        List<Path> bundles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix + "*.zip")) {
+            for (Path bundle : stream) {
+                bundles.add(bundle);
+            }
+        }
+        if (bundles.isEmpty()) {
+            return null;
+        }
+        bundles.sort(Comparator.comparing(p -> versionKey(p.getFileName().toString().substring(prefix.length()))));
+        return bundles.get(bundles.size() - 1);
+    }
+
+    /**
+     * Sort key for a version like "1.10.0.zip": every number zero-padded, so 1.10 sorts after 1.9.
+     */
+    private static String versionKey(String version) {
+        StringBuilder key = new StringBuilder();
+        for (String part : version.split("[^0-9]+")) {
+            if (!part.isEmpty()) {
+                key.append(String.format(Locale.ROOT, "%10s", part)).append('.');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Read and check the bundle's manifest: Plugin-Id must be type, Plugin-Version and Plugin-Class must be set,
+     * and the plugin class must be in the bundle. Throws IllegalArgumentException describing the problem.
+     */
+    static EventPluginBundle load(Path path, String type) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException(path + " does not exist");
+        }
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            ZipEntry entry = zip.getEntry("META-INF/MANIFEST.MF");
+            if (entry == null) {
+                entry = zip.getEntry("classes/META-INF/MANIFEST.MF");
+            }
+            if (entry == null) {
+                throw new IllegalArgumentException(path + " has no META-INF/MANIFEST.MF; not a plugin bundle");
+            }
+            Attributes attributes;
+            try (InputStream in = zip.getInputStream(entry)) {
+                attributes = new Manifest(in).getMainAttributes();
+            }
+            String id = attributes.getValue("Plugin-Id");
+            String version = attributes.getValue("Plugin-Version");
+            String pluginClass = attributes.getValue("Plugin-Class");
+            if (id == null || version == null || pluginClass == null) {
+                throw new IllegalArgumentException(path + ": the manifest must set Plugin-Id, Plugin-Version and Plugin-Class");
+            }
+            if (!type.equals(id)) {
+                throw new IllegalArgumentException(path + " is the " + id + " plugin, not " + type);
+            }
+            String classFile = pluginClass.replace('.', '/') + ".class";
+            if (zip.getEntry("classes/" + classFile) == null && !inLibJar(zip, classFile)) {
+                throw new IllegalArgumentException(path + ": Plugin-Class " + pluginClass + " is not in the bundle");
+            }
+            return new EventPluginBundle(path, id, version, pluginClass);
+        } catch (java.util.zip.ZipException e) {
+            throw new IllegalArgumentException(path + " is not a valid zip: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a jar under lib/ in the bundle contains classFile.
+     */
+    private static boolean inLibJar(ZipFile zip, String classFile) throws IOException {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.getName().startsWith("lib/") || !entry.getName().endsWith(".jar")) {
+                continue;
+            }
+            try (java.util.zip.ZipInputStream jar = new java.util.zip.ZipInputStream(zip.getInputStream(entry))) {
+                ZipEntry inner;
+                while ((inner = jar.getNextEntry()) != null) {
+                    if (classFile.equals(inner.getName())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The MongoDB plugin's dbconfig string: dbname|username|password|version.
+     * Version 2 makes the plugin create the collection indexes.
+     */
+    static String mongoDbConfig(String database, String username, String password, String version) {
+        for (String part : new String[]{database, username, password, version}) {
+            if (part.contains("|") || part.contains("\"") || part.contains("\\")) {
+                throw new IllegalArgumentException("MongoDB settings must not contain |, \" or \\");
+            }
+        }
+        return database + "|" + username + "|" + password + "|" + version;
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Locale;
+
+/**
+ * Named GC strategies selected with GC_PROFILE. Each profile turns the heap size, CPU count and
+ * Java version into collector settings; JvmOptions renders them as flags for that Java version.
+ */
+public abstract class GcProfile {
+    public static final String THROUGHPUT = "throughput";
+    public static final String BALANCED = "balanced";
+    public static final String LOW_LATENCY = "low-latency";
+    public static final String SMALL_FOOTPRINT = "small-footprint";
+
+    /**
+     * Collector settings computed by a profile. Fields that do not apply to the collector are ignored.
+     */
+    public static class Settings {
+        String collector;
+        int initialHeapGB;
+        boolean alwaysPreTouch;
+        int maxPauseMillis;
+        String regionSize;
+        int initiatingHeapOccupancyPercent;
+        int parallelThreads;
+        int concurrentThreads;
+        String extraOptions = "";
+    }
+
+    /**
+     * Returns the profile with the given name, or null if there is none.
+     */
+    public static GcProfile forName(String name) {
+        switch (name == null ? "" : name.toLowerCase(Locale.ROOT)) {
+            case THROUGHPUT:
+                return new Throughput();
+            case "":
+            case BALANCED:
+                return new Balanced();
+            case LOW_LATENCY:
+                return new LowLatency();
+            case SMALL_FOOTPRINT:
+                return new SmallFootprint();
+            default:
+                return null;
+        }
+    }
+
+    public abstract String name();
+
+    /**
+     * Collector used when JVM_GC is "auto".
+     */
+    public abstract String defaultCollector(int javaVersion, int heapSizeGB);
+
+    /**
+     * Settings for the given collector, which is either defaultCollector() or the one set with JVM_GC.
+     */
+    public abstract Settings settings(String collector, int heapSizeGB, int cpuCount, int javaVersion);
+
+    /**
+     * G1 region size: power of 2 between 1MB and 32MB, larger for large heaps to reduce overhead.
+     */
+    static String g1RegionSize(int heapSizeGB) {
+        if (heapSizeGB >= 64) {
+            return "32m";
+        } else if (heapSizeGB >= 32) {
+            return "16m";
+        } else if (heapSizeGB >= 16) {
+            return "8m";
+        }
+        return "4m";
+    }
+
+    static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    /**
+     * Bulk sync on archive nodes: long pause target, late marking and every core for GC work.
+     * Small heaps use the parallel collector, whose full collections stay short at that size.
+     */
+    static class Throughput extends GcProfile {
+        @Override
+        public String name() {
+            return THROUGHPUT;
+        }
+
+        @Override
+        public String defaultCollector(int javaVersion, int heapSizeGB) {
+            return heapSizeGB < 8 ? JvmOptions.GC_PARALLEL : JvmOptions.GC_G1;
+        }
+
+        @Override
+        public Settings settings(String collector, int heapSizeGB, int cpuCount, int javaVersion) {
+            Settings s = new Settings();
+            s.collector = collector;
+            s.initialHeapGB = heapSizeGB;
+            s.alwaysPreTouch = heapSizeGB <= 32;
+            s.maxPauseMillis = 500;
+            // One size step up from the default: fewer, larger regions for a bulk-allocating node
+            s.regionSize = g1RegionSize(heapSizeGB * 2);
+            s.initiatingHeapOccupancyPercent = 60;
+            s.parallelThreads = clamp(cpuCount, 2, 32);
+            s.concurrentThreads = clamp(cpuCount / 8, 1, 8);
+            return s;
+        }
+    }
+
+    /**
+     * Default profile: G1 for heaps of 8GB and more, CMS below that on Java 8,
+     * with pause target and IHOP stepped by heap size.
+     */
+    static class Balanced extends GcProfile {
+        @Override
+        public String name() {
+            return BALANCED;
+        }
+
+        @Override
+        public String defaultCollector(int javaVersion, int heapSizeGB) {
+            return heapSizeGB < 8 && javaVersion < 9 ? JvmOptions.GC_CMS : JvmOptions.GC_G1;
+        }
+
+        @Override
+        public Settings settings(String collector, int heapSizeGB, int cpuCount, int javaVersion) {
+            Settings s = new Settings();
+            s.collector = collector;
+            s.initialHeapGB = heapSizeGB;
+            // For very large heaps AlwaysPreTouch can take a long time or fail
+            s.alwaysPreTouch = heapSizeGB <= 32;
+            // Reduced pause targets to improve responsiveness and reduce CPU spikes
+            s.maxPauseMillis = heapSizeGB >= 32 ? 250 : (heapSizeGB >= 16 ? 150 : 100);
+            s.regionSize = g1RegionSize(heapSizeGB);
+            // Start GC earlier to prevent memory pressure and reduce CPU spikes
+            s.initiatingHeapOccupancyPercent = heapSizeGB >= 32 ? 40 : (heapSizeGB >= 16 ? 45 : 50);
+            s.parallelThreads = clamp(cpuCount / 2, 2, 32);
+            s.concurrentThreads = clamp(cpuCount / 4, 2, 16);
+            return s;
+        }
+    }
+
+    /**
+     * API nodes: ZGC on Java 17+, otherwise G1 with a short pause target and early, well-staffed marking.
+     */
+    static class LowLatency extends GcProfile {
+        @Override
+        public String name() {
+            return LOW_LATENCY;
+        }
+
+        @Override
+        public String defaultCollector(int javaVersion, int heapSizeGB) {
+            return javaVersion >= 17 ? JvmOptions.GC_ZGC : JvmOptions.GC_G1;
+        }
+
+        @Override
+        public Settings settings(String collector, int heapSizeGB, int cpuCount, int javaVersion) {
+            Settings s = new Settings();
+            s.collector = collector;
+            s.initialHeapGB = heapSizeGB;
+            s.alwaysPreTouch = heapSizeGB <= 32;
+            s.maxPauseMillis = heapSizeGB >= 32 ? 100 : 50;
+            s.regionSize = g1RegionSize(heapSizeGB);
+            s.initiatingHeapOccupancyPercent = 35;
+            s.parallelThreads = clamp(cpuCount / 2, 2, 32);
+            // Concurrent marking has to keep up with allocation so pauses never fall back to full GCs
+            s.concurrentThreads = clamp(cpuCount / 3, 2, 16);
+            return s;
+        }
+    }
+
+    /**
+     * Shared or small hosts: start with a quarter of the heap, hand unused memory back and keep GC threads few.
+     */
+    static class SmallFootprint extends GcProfile {
+        @Override
+        public String name() {
+            return SMALL_FOOTPRINT;
+        }
+
+        @Override
+        public String defaultCollector(int javaVersion, int heapSizeGB) {
+            return JvmOptions.GC_G1;
+        }
+
+        @Override
+        public Settings settings(String collector, int heapSizeGB, int cpuCount, int javaVersion) {
+            Settings s = new Settings();
+            s.collector = collector;
+            s.initialHeapGB = Math.max(1, heapSizeGB / 4);
+            s.alwaysPreTouch = false;
+            s.maxPauseMillis = 200;
+            s.regionSize = g1RegionSize(heapSizeGB);
+            s.initiatingHeapOccupancyPercent = 45;
+            s.parallelThreads = clamp(cpuCount / 4, 1, 4);
+            s.concurrentThreads = 1;
+            s.extraOptions = "-XX:MinHeapFreeRatio=10 -XX:MaxHeapFreeRatio=30";
+            // Java 12+ G1 returns idle heap to the OS without waiting for a full GC
+            if (javaVersion >= 12 && JvmOptions.GC_G1.equals(collector)) {
+                s.extraOptions += " -XX:G1PeriodicGCInterval=300000";
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Polls the local FullNode HTTP API (/wallet/getnowblock, or /walletsolidity/getnowblock for the solid head)
+ * for the current head block.
+ * Runs on a daemon thread and publishes the latest head through volatile fields and an optional listener.
+ */
+public class HeadTracker implements Runnable {
+    /** Tron produces one block every 3 seconds */
+    public static final long BLOCK_INTERVAL_MS = 3000;
+
+    // The block header precedes the transaction list, so the first few KB are enough
+    private static final int MAX_HEADER_BYTES = 4096;
+    private static final Pattern NUMBER = Pattern.compile("\"number\"\\s*:\\s*(\\d+)");
+    private static final Pattern TIMESTAMP = Pattern.compile("\"timestamp\"\\s*:\\s*(\\d+)");
+
+    public interface Listener {
+        void onHead(HeadTracker tracker);
+    }
+
+    private final String url;
+    private final long intervalMs;
+    private final Listener listener;
+    private final byte[] buffer = new byte[MAX_HEADER_BYTES];
+    private volatile boolean running = true;
+    private volatile long headNumber = -1;
+    private volatile long headTimestamp = -1;
+    private volatile long lastProgressMillis = -1;
+    private Thread thread;
+
+    public HeadTracker(int fullNodePort, long intervalMs, Listener listener) {
+        this(fullNodePort, "/wallet/getnowblock", intervalMs, listener);
+    }
+
+    public HeadTracker(int fullNodePort, String path, long intervalMs, Listener listener) {
+        this.url = "http://127.0.0.1:" + fullNodePort + path;
+        this.intervalMs = intervalMs;
+        this.listener = listener;
+    }
+
+    public void start() {
+        thread = new Thread(this, "head-tracker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    public long headNumber() {
+        return headNumber;
+    }
+
+    public long headTimestamp() {
+        return headTimestamp;
+    }
+
+    /**
+     * Wall-clock time at which the head number last advanced, or -1 if no head was seen yet.
+     */
+    public long lastProgressMillis() {
+        return lastProgressMillis;
+    }
+
+    /**
+     * Number of blocks the head is behind the wall clock, or -1 if no head was seen yet.
+     */
+    public long lagBlocks() {
+        long ts = headTimestamp;
+        if (ts <= 0) {
+            return -1;
+        }
+        return Math.max(0, (System.currentTimeMillis() - ts) / BLOCK_INTERVAL_MS);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (poll() && listener != null && running) {
+                try {
+                    listener.onHead(this);
+                } catch (Exception e) {
+                    System.err.println("Warning: head tracker listener failed: " + e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Fetch the head block once. Returns false if the node is not reachable yet.
+     */
+    boolean poll() {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(5000);
+            if (conn.getResponseCode() != 200) {
+                return false;
+            }
+            int len = 0;
+            try (InputStream in = conn.getInputStream()) {
+                int n;
+                while (len < buffer.length && (n = in.read(buffer, len, buffer.length - len)) > 0) {
+                    len += n;
+                }
+            }
+            String header = new String(buffer, 0, len, StandardCharsets.UTF_8);
+            int txStart = header.indexOf("\"transactions\"");
+            if (txStart > 0) {
+                header = header.substring(0, txStart);
+            }
+            Matcher number = NUMBER.matcher(header);
+            Matcher timestamp = TIMESTAMP.matcher(header);
+            if (!number.find() || !timestamp.find()) {
+                return false;
+            }
+            long newNumber = Long.parseLong(number.group(1));
+            if (newNumber > headNumber) {
+                lastProgressMillis = System.currentTimeMillis();
+            }
+            headNumber = newNumber;
+            headTimestamp = Long.parseLong(timestamp.group(1));
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+}
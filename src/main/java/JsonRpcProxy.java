@@ -0,0 +1,415 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Proxy in front of the FullNode JSON-RPC endpoint. Batches are split into single calls that run
+ * concurrently and are answered in order; identical calls in flight (same method and params) share one
+ * upstream call; eth_chainId and eth_blockNumber are answered locally; and each method may have at most
+ * maxConcurrentPerMethod upstream calls at a time, so one expensive method cannot take every node thread.
+ */
+public class JsonRpcProxy {
+    private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+    private static final int MAX_BATCH_SIZE = 100;
+    // A call waits this long for a free slot of its method before it is rejected
+    private static final long SLOT_WAIT_MS = 10000;
+    private static final long HEAD_POLL_INTERVAL_MS = 1000;
+
+    // JSON-RPC error codes
+    private static final int PARSE_ERROR = -32700;
+    private static final int INVALID_REQUEST = -32600;
+    private static final int METHOD_NOT_FOUND = -32601;
+    private static final int INTERNAL_ERROR = -32603;
+    private static final int LIMIT_EXCEEDED = -32005;
+
+    // Filter calls change state on the node, so identical calls must not share a result
+    private static final Set<String> NOT_COLLAPSED = new HashSet<>(Arrays.asList(
+        "eth_newFilter", "eth_newBlockFilter", "eth_getFilterChanges", "eth_uninstallFilter"));
+
+    /**
+     * Chain ID (as returned by eth_chainId) for each network.
+     */
+    static final Map<String, String> CHAIN_IDS = new HashMap<>();
+
+    static {
+        CHAIN_IDS.put("mainnet", "0x2b6653dc");
+        CHAIN_IDS.put("nile", "0xcd8690dc");
+    }
+
+    private final String upstream;
+    private final String chainId;
+    private final int maxConcurrentPerMethod;
+    // Package-private so tests can shorten it
+    long slotWaitMs = SLOT_WAIT_MS;
+    private final HeadTracker headTracker;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ExecutorService callExecutor;
+    // Slots of the methods FullNode implements; the map only grows with methods FullNode has answered
+    private final ConcurrentHashMap<String, Semaphore> slots = new ConcurrentHashMap<>();
+    // Shared by the methods FullNode has not answered yet, so unknown method names cannot add slots
+    private final Semaphore unknownSlot;
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private volatile AdaptiveLimiter limiter;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong local = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong upstreamErrors = new AtomicLong();
+
+    /**
+     * chainId may be null, in which case eth_chainId is forwarded.
+     */
+    public JsonRpcProxy(int port, int fullNodePort, int jsonRpcPort, String chainId, int maxConcurrentPerMethod,
+                        int threads) throws IOException {
+        this.upstream = "http://127.0.0.1:" + jsonRpcPort + "/jsonrpc";
+        this.chainId = chainId;
+        this.maxConcurrentPerMethod = maxConcurrentPerMethod;
+        this.unknownSlot = new Semaphore(maxConcurrentPerMethod, true);
+        this.headTracker = new HeadTracker(fullNodePort, HEAD_POLL_INTERVAL_MS, null);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jsonrpc-proxy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.callExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "jsonrpc-call");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Also limit concurrent upstream calls across all methods with limiter. Call before start().
+     */
+    public void setLimiter(AdaptiveLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public void start() {
+        headTracker.start();
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        headTracker.stop();
+        executor.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "JSON-RPC requests must be sent with POST\n");
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                sendText(exchange, 413, "Request too large\n");
+                return;
+            }
+            Object request;
+            try {
+                request = Json.parse(new String(body, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                sendJson(exchange, error(null, PARSE_ERROR, "Parse error: " + e.getMessage()));
+                return;
+            }
+            if (!(request instanceof List)) {
+                sendJson(exchange, call(request));
+                return;
+            }
+            List<?> batch = (List<?>) request;
+            if (batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+                sendJson(exchange, error(null, INVALID_REQUEST, batch.isEmpty() ? "Empty batch"
+                    : "Batch larger than " + MAX_BATCH_SIZE + " calls"));
+                return;
+            }
+            batches.incrementAndGet();
+            List<Future<Map<String, Object>>> futures = new ArrayList<>(batch.size());
+            for (Object element : batch) {
+                futures.add(callExecutor.submit(() -> call(element)));
+            }
+            List<Object> responses = new ArrayList<>(batch.size());
+            for (Future<Map<String, Object>> future : futures) {
+                Map<String, Object> response = future.get();
+                if (response != null) {
+                    responses.add(response);
+                }
+            }
+            sendJson(exchange, responses.isEmpty() ? null : responses);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            sendJson(exchange, error(null, INTERNAL_ERROR, "Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answer one call. Returns null for a notification (a call without an id).
+     */
+    private Map<String, Object> call(Object element) throws InterruptedException, ExecutionException {
+        calls.incrementAndGet();
+        if (!(element instanceof Map)) {
+            return error(null, INVALID_REQUEST, "Invalid request");
+        }
+        Map<?, ?> request = (Map<?, ?>) element;
+        Object id = request.get("id");
+        boolean notification = !request.containsKey("id");
+        Object method = request.get("method");
+        if (!(method instanceof String)) {
+            return error(id, INVALID_REQUEST, "Invalid request");
+        }
+        Object params = request.containsKey("params") ? request.get("params") : Collections.emptyList();
+        Object result = localResult((String) method);
+        Map<String, Object> answer;
+        if (result != null) {
+            local.incrementAndGet();
+            answer = new LinkedHashMap<>();
+            answer.put("result", result);
+        } else if (NOT_COLLAPSED.contains(method)) {
+            answer = forward((String) method, params);
+        } else {
+            String key = method + " " + Json.compact(params);
+            CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+            CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(key, mine);
+            if (existing != null) {
+                collapsed.incrementAndGet();
+                answer = existing.get();
+            } else {
+                try {
+                    answer = forward((String) method, params);
+                    mine.complete(answer);
+                } catch (RuntimeException | InterruptedException e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, mine);
+                }
+            }
+        }
+        if (notification) {
+            return null;
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.putAll(answer);
+        return response;
+    }
+
+    /**
+     * Result for the calls the proxy answers itself, or null to forward the call.
+     */
+    private Object localResult(String method) {
+        if ("eth_chainId".equals(method)) {
+            return chainId;
+        }
+        if ("eth_blockNumber".equals(method)) {
+            long head = headTracker.headNumber();
+            return head >= 0 ? "0x" + Long.toHexString(head) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Send one call upstream within the method's concurrency limit.
+     * A method gets its own slot once FullNode has answered it with anything but "method not found";
+     * until then it shares unknownSlot.
+     * Returns the result or error member of the response (without jsonrpc and id).
+     */
+    private Map<String, Object> forward(String method, Object params) throws InterruptedException {
+        Semaphore known = slots.get(method);
+        Semaphore slot = known != null ? known : unknownSlot;
+        if (!slot.tryAcquire(slotWaitMs, TimeUnit.MILLISECONDS)) {
+            rejected.incrementAndGet();
+            return errorMember(LIMIT_EXCEEDED, "Too many concurrent " + method + " calls, try again later");
+        }
+        AdaptiveLimiter limiter = this.limiter;
+        if (limiter != null && !limiter.acquire(slotWaitMs)) {
+            slot.release();
+            rejected.incrementAndGet();
+            return errorMember(LIMIT_EXCEEDED, "FullNode is busy, try again later");
+        }
+        long started = System.nanoTime();
+        try {
+            upstreamCalls.incrementAndGet();
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("jsonrpc", "2.0");
+            request.put("id", 1);
+            request.put("method", method);
+            request.put("params", params);
+            Object response = Json.parse(post(Json.compact(request)));
+            Map<String, Object> answer = new LinkedHashMap<>();
+            if (response instanceof Map && ((Map<?, ?>) response).containsKey("error")) {
+                Object error = ((Map<?, ?>) response).get("error");
+                answer.put("error", error);
+                if (known == null && !isMethodNotFound(error)) {
+                    slots.putIfAbsent(method, new Semaphore(maxConcurrentPerMethod, true));
+                }
+            } else if (response instanceof Map && ((Map<?, ?>) response).containsKey("result")) {
+                answer.put("result", ((Map<?, ?>) response).get("result"));
+                if (known == null) {
+                    slots.putIfAbsent(method, new Semaphore(maxConcurrentPerMethod, true));
+                }
+            } else {
+                upstreamErrors.incrementAndGet();
+                return errorMember(INTERNAL_ERROR, "Invalid response from FullNode");
+            }
+            return answer;
+        } catch (IOException e) {
+            upstreamErrors.incrementAndGet();
+            return errorMember(INTERNAL_ERROR, "FullNode JSON-RPC is not reachable");
+        } catch (IllegalArgumentException e) {
+            upstreamErrors.incrementAndGet();
+            return errorMember(INTERNAL_ERROR, "Invalid response from FullNode");
+        } finally {
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - started);
+            }
+            slot.release();
+        }
+    }
+
+    private static boolean isMethodNotFound(Object error) {
+        Object code = error instanceof Map ? ((Map<?, ?>) error).get("code") : null;
+        return code instanceof Number && ((Number) code).intValue() == METHOD_NOT_FOUND;
+    }
+
+    /**
+     * Number of methods with their own concurrency slot.
+     */
+    int methodSlots() {
+        return slots.size();
+    }
+
+    private String post(String body) throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(upstream).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(60000);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            int status = conn.getResponseCode();
+            // Errors may come with a 500 status and a JSON-RPC error body
+            try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in == null) {
+                    throw new IOException("HTTP " + status);
+                }
+                return new String(readAll(in), StandardCharsets.UTF_8);
+            }
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private static Map<String, Object> error(Object id, int code, String message) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.putAll(errorMember(code, message));
+        return response;
+    }
+
+    private static Map<String, Object> errorMember(int code, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        Map<String, Object> member = new LinkedHashMap<>();
+        member.put("error", error);
+        return member;
+    }
+
+    /**
+     * Send a JSON response, or 204 when there is nothing to answer (only notifications).
+     */
+    private static void sendJson(HttpExchange exchange, Object response) throws IOException {
+        if (response == null) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+        byte[] body = Json.compact(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Read a request body, or return null if it exceeds MAX_REQUEST_BYTES.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            if (out.size() > MAX_REQUEST_BYTES) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Proxy metrics for the metrics endpoint.
+     */
+    public void collect(MetricsExporter metrics) {
+        metrics.counter("tron_jsonrpc_proxy_requests_total", "HTTP requests received by the JSON-RPC proxy", requests.get());
+        metrics.counter("tron_jsonrpc_proxy_batches_total", "Batch requests received by the JSON-RPC proxy", batches.get());
+        metrics.counter("tron_jsonrpc_proxy_calls_total", "Calls received, counting each call of a batch", calls.get());
+        metrics.counter("tron_jsonrpc_proxy_upstream_calls_total", "Calls sent to FullNode", upstreamCalls.get());
+        metrics.counter("tron_jsonrpc_proxy_collapsed_total", "Calls that shared an identical in-flight call", collapsed.get());
+        metrics.counter("tron_jsonrpc_proxy_local_total", "Calls answered by the proxy (eth_chainId, eth_blockNumber)", local.get());
+        metrics.counter("tron_jsonrpc_proxy_rejected_total", "Calls rejected by the per-method or adaptive concurrency limit", rejected.get());
+        metrics.counter("tron_jsonrpc_proxy_upstream_errors_total", "Calls that could not reach FullNode", upstreamErrors.get());
+        metrics.gauge("tron_jsonrpc_proxy_in_flight", "Distinct calls waiting for FullNode", inFlight.size());
+        metrics.gauge("tron_jsonrpc_proxy_methods", "Methods with their own concurrency slot", methodSlots());
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Version-specific JVM flags for the java runtime that executes FullNode.jar.
+ * JDK 8 uses the legacy -XX:+PrintGC* / -Xloggc flags; JDK 9+ uses unified logging (-Xlog).
+ * Flags removed in later JDKs (CMS, AggressiveOpts) are only emitted where the runtime accepts them.
+ */
+public class JvmOptions {
+    public static final String GC_AUTO = "auto";
+    public static final String GC_G1 = "g1";
+    public static final String GC_PARALLEL = "parallel";
+    public static final String GC_CMS = "cms";
+    public static final String GC_ZGC = "zgc";
+    public static final String GC_SHENANDOAH = "shenandoah";
+
+    // CMS was removed in JDK 14; ZGC and Shenandoah are only offered on the JDK 17 LTS and later
+    private static final int CMS_REMOVED_IN = 14;
+    private static final int CONCURRENT_COMPACTING_MIN_VERSION = 17;
+
+    private static final Pattern VERSION = Pattern.compile("version \"([^\"]+)\"");
+
+    /** Every JVM started in the container reads this; in exec mode it holds FullNode's options */
+    static final String TOOL_OPTIONS_ENV = "JAVA_TOOL_OPTIONS";
+
+    /**
+     * Keep JAVA_TOOL_OPTIONS away from a child process. In exec mode it carries FullNode's heap and
+     * pre-touch flags, which would make every java, jcmd or supervised FullNode reserve that much again.
+     */
+    static ProcessBuilder withoutToolOptions(ProcessBuilder pb) {
+        pb.environment().remove(TOOL_OPTIONS_ENV);
+        return pb;
+    }
+
+    /**
+     * Differences between the expected JVM options and the ones a JVM was started with, one per option
+     * ("missing -Xmx8G", "unexpected -XX:+AlwaysPreTouch"). Empty if both hold the same options in any order.
+     */
+    static List<String> optionMismatches(String expected, String actual) {
+        List<String> missing = tokens(expected);
+        List<String> unexpected = tokens(actual);
+        for (String option : tokens(expected)) {
+            if (unexpected.remove(option)) {
+                missing.remove(option);
+            }
+        }
+        List<String> mismatches = new ArrayList<>();
+        for (String option : missing) {
+            mismatches.add("missing " + option);
+        }
+        for (String option : unexpected) {
+            mismatches.add("unexpected " + option);
+        }
+        return mismatches;
+    }
+
+    private static List<String> tokens(String options) {
+        List<String> tokens = new ArrayList<>();
+        if (options != null) {
+            for (String token : options.trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Feature version of a version string: "1.8.0_392" and "1.8" are 8, "17.0.9" and "21" are 17 and 21.
+     * Returns -1 if the string cannot be parsed.
+     */
+    static int parseJavaVersion(String version) {
+        if (version == null) {
+            return -1;
+        }
+        String v = version.trim();
+        if (v.startsWith("1.")) {
+            v = v.substring(2);
+        }
+        int end = 0;
+        while (end < v.length() && Character.isDigit(v.charAt(end))) {
+            end++;
+        }
+        if (end == 0) {
+            return -1;
+        }
+        return Integer.parseInt(v.substring(0, end));
+    }
+
+    /**
+     * Feature version of the java binary that will run FullNode.
+     * When it is the binary running this launcher the answer is free; otherwise "java -version" is run once.
+     */
+    static int detectJavaVersion(String javaCommand) {
+        Path target = resolveOnPath(javaCommand);
+        Path own = Paths.get(System.getProperty("java.home"), "bin", "java");
+        try {
+            if (target != null && Files.exists(own) && target.toRealPath().equals(own.toRealPath())) {
+                return parseJavaVersion(System.getProperty("java.specification.version"));
+            }
+        } catch (IOException e) {
+            // Fall through to asking the binary
+        }
+        try {
+            Process process = withoutToolOptions(new ProcessBuilder(javaCommand, "-version")).redirectErrorStream(true).start();
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.append(line).append('\n');
+                }
+            }
+            process.waitFor();
+            Matcher matcher = VERSION.matcher(output);
+            if (matcher.find()) {
+                return parseJavaVersion(matcher.group(1));
+            }
+        } catch (IOException e) {
+            // Fall through
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Same binary name as this launcher on the image, so its version is the best guess
+        return parseJavaVersion(System.getProperty("java.specification.version"));
+    }
+
+    private static Path resolveOnPath(String command) {
+        if (command.indexOf('/') >= 0) {
+            return Paths.get(command);
+        }
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            Path candidate = Paths.get(dir, command);
+            if (Files.isExecutable(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the requested collector ("auto", "g1", "parallel", "cms", "zgc", "shenandoah") for a runtime version.
+     * "auto" is the GC profile's default collector.
+     * Returns null with the reason on stderr if the collector is not available on that runtime.
+     */
+    static String resolveCollector(String requested, int javaVersion, String defaultCollector) {
+        String gc = requested == null || requested.isEmpty() ? GC_AUTO : requested.toLowerCase(Locale.ROOT);
+        switch (gc) {
+            case GC_AUTO:
+                return defaultCollector;
+            case GC_G1:
+            case GC_PARALLEL:
+                return gc;
+            case GC_CMS:
+                if (javaVersion >= CMS_REMOVED_IN) {
+                    System.err.println("CMS is not available on Java " + javaVersion + " (removed in Java " + CMS_REMOVED_IN + ")");
+                    return null;
+                }
+                return GC_CMS;
+            case GC_ZGC:
+            case GC_SHENANDOAH:
+                if (javaVersion < CONCURRENT_COMPACTING_MIN_VERSION) {
+                    System.err.println(gc + " requires Java " + CONCURRENT_COMPACTING_MIN_VERSION + " or later (runtime is Java " + javaVersion + ")");
+                    return null;
+                }
+                return gc;
+            default:
+                System.err.println("Unknown collector: " + requested);
+                return null;
+        }
+    }
+
+    /**
+     * Collector flags for the settings computed by a GC profile.
+     * Thread counts apply to every collector; pause, region and IHOP tuning only to G1.
+     */
+    static String collectorOptions(GcProfile.Settings settings, int javaVersion) {
+        String options;
+        switch (settings.collector) {
+            case GC_PARALLEL:
+                options = String.format(
+                    "-XX:+UseParallelGC " +
+                    "-XX:ParallelGCThreads=%d " +
+                    "-XX:+DisableExplicitGC",
+                    settings.parallelThreads);
+                break;
+            case GC_CMS:
+                options = String.format(
+                    "-XX:+UseConcMarkSweepGC " +
+                    "-XX:NewRatio=2 " +
+                    "-XX:+CMSScavengeBeforeRemark " +
+                    "-XX:+ParallelRefProcEnabled " +
+                    "-XX:+UseCMSInitiatingOccupancyOnly " +
+                    "-XX:CMSInitiatingOccupancyFraction=70 " +
+                    "-XX:ParallelGCThreads=%d",
+                    settings.parallelThreads);
+                break;
+            case GC_ZGC:
+                // Generational ZGC is opt-in on 21 and 22 and the only mode from 23
+                options = String.format(
+                    "-XX:+UseZGC " +
+                    "%s" +
+                    "-XX:ConcGCThreads=%d " +
+                    "-XX:ParallelGCThreads=%d " +
+                    "-XX:+DisableExplicitGC",
+                    javaVersion == 21 || javaVersion == 22 ? "-XX:+ZGenerational " : "",
+                    settings.concurrentThreads, settings.parallelThreads);
+                break;
+            case GC_SHENANDOAH:
+                options = String.format(
+                    "-XX:+UseShenandoahGC " +
+                    "-XX:ConcGCThreads=%d " +
+                    "-XX:ParallelGCThreads=%d " +
+                    "-XX:+UseStringDeduplication " +
+                    "-XX:+DisableExplicitGC",
+                    settings.concurrentThreads, settings.parallelThreads);
+                break;
+            default:
+                options = String.format(
+                    "-XX:+UseG1GC " +
+                    "-XX:MaxGCPauseMillis=%d " +
+                    "-XX:G1HeapRegionSize=%s " +
+                    "-XX:InitiatingHeapOccupancyPercent=%d " +
+                    "-XX:ConcGCThreads=%d " +
+                    "-XX:ParallelGCThreads=%d " +
+                    "-XX:+ParallelRefProcEnabled " +
+                    "-XX:+UseStringDeduplication " +
+                    "-XX:+DisableExplicitGC",
+                    settings.maxPauseMillis, settings.regionSize, settings.initiatingHeapOccupancyPercent,
+                    settings.concurrentThreads, settings.parallelThreads);
+                break;
+        }
+        return settings.extraOptions.isEmpty() ? options : options + " " + settings.extraOptions;
+    }
+
+    /**
+     * GC logging to a rotating set of files: fileCount files of at most fileSizeMB each.
+     * JDK 8 names the active file "<path>.N.current"; JDK 9+ keeps writing to <path>.
+     */
+    static String gcLogOptions(int javaVersion, String path, int fileCount, int fileSizeMB) {
+        if (javaVersion < 9) {
+            return String.format(
+                "-XX:+PrintGCDetails " +
+                "-XX:+PrintGCDateStamps " +
+                "-XX:+PrintGCApplicationStoppedTime " +
+                "-Xloggc:%s " +
+                "-XX:+UseGCLogFileRotation " +
+                "-XX:NumberOfGCLogFiles=%d " +
+                "-XX:GCLogFileSize=%dM",
+                path, fileCount, fileSizeMB);
+        }
+        return String.format("-Xlog:gc*,safepoint:file=%s:time,uptime,level,tags:filecount=%d,filesize=%dM",
+            path, fileCount, fileSizeMB);
+    }
+
+    /**
+     * -XX:+AggressiveOpts was deprecated in JDK 11 and removed in JDK 12; its optimizations are defaults since.
+     */
+    static String aggressiveOptions(int javaVersion) {
+        return javaVersion < 11 ? " -XX:+AggressiveOpts" : "";
+    }
+
+    /**
+     * ZGC does not support compressed oops, so the flags are left to the JVM there.
+     */
+    static String compressedOopsOptions(String collector, int heapSizeGB) {
+        if (GC_ZGC.equals(collector)) {
+            return "";
+        }
+        // For heaps > 32GB, compressed OOPs are automatically disabled by JVM
+        // Explicitly disable to avoid warnings
+        return heapSizeGB <= 32
+            ? " -XX:+UseCompressedOops -XX:+UseCompressedClassPointers"
+            : " -XX:-UseCompressedOops -XX:-UseCompressedClassPointers";
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Relays a child process output stream to the container stdout/stderr at the byte level.
+ * Each chunk read is written with one batched write; no per-line decoding or String allocation.
+ * The last bytes relayed are kept in a fixed-size ring buffer for error reporting.
+ * Optionally counts occurrences of a marker (ASCII, case-insensitive), matched across chunk boundaries.
+ */
+public class LogRelay implements Runnable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Never closed: closing these channels would close the launcher's own stdout/stderr
+    private static final WritableByteChannel STDOUT = new FileOutputStream(FileDescriptor.out).getChannel();
+    private static final WritableByteChannel STDERR = new FileOutputStream(FileDescriptor.err).getChannel();
+
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+    private final byte[] prefix;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(CHUNK_SIZE);
+    private final ByteBuffer writeBuffer;
+    private final byte[] ring;
+    private int ringPos = 0;
+    private boolean ringFull = false;
+    private boolean atLineStart = true;
+    private volatile long bytesRelayed = 0;
+    private volatile long linesRelayed = 0;
+    private byte[] marker;
+    private int[] markerFallback;
+    private int markerMatched = 0;
+    private volatile long markerCount = 0;
+
+    public LogRelay(ReadableByteChannel in, WritableByteChannel out, String linePrefix, int tailCapacity) {
+        this.in = in;
+        this.out = out;
+        this.prefix = linePrefix == null ? new byte[0] : linePrefix.getBytes(StandardCharsets.UTF_8);
+        // Without a prefix the read buffer is written as-is
+        this.writeBuffer = prefix.length == 0 ? null : ByteBuffer.allocate(CHUNK_SIZE + prefix.length);
+        this.ring = new byte[tailCapacity];
+    }
+
+    public static LogRelay toStdout(InputStream in, int tailCapacity) {
+        return new LogRelay(Channels.newChannel(in), STDOUT, null, tailCapacity);
+    }
+
+    public static LogRelay toStderr(InputStream in, String linePrefix, int tailCapacity) {
+        return new LogRelay(Channels.newChannel(in), STDERR, linePrefix, tailCapacity);
+    }
+
+    /**
+     * Count occurrences of marker in the relayed output. Call before start().
+     */
+    public LogRelay countMarker(String marker) {
+        this.marker = marker.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        // KMP failure table, so a match split across two reads is still found
+        this.markerFallback = new int[this.marker.length];
+        for (int i = 1, k = 0; i < this.marker.length; i++) {
+            while (k > 0 && this.marker[i] != this.marker[k]) {
+                k = markerFallback[k - 1];
+            }
+            if (this.marker[i] == this.marker[k]) {
+                k++;
+            }
+            markerFallback[i] = k;
+        }
+        return this;
+    }
+
+    public long markerCount() {
+        return markerCount;
+    }
+
+    public Thread start(String name) {
+        Thread thread = new Thread(this, name);
+        thread.setDaemon(true); // Don't prevent JVM shutdown
+        thread.start();
+        return thread;
+    }
+
+    public long bytesRelayed() {
+        return bytesRelayed;
+    }
+
+    public long linesRelayed() {
+        return linesRelayed;
+    }
+
+    @Override
+    public void run() {
+        try {
+            // read() blocks until data is available and returns -1 once the child closes the stream
+            while (in.read(readBuffer) >= 0) {
+                readBuffer.flip();
+                relay();
+                readBuffer.clear();
+            }
+        } catch (IOException e) {
+            // Stream closed underneath us when the process is gone
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private void relay() throws IOException {
+        byte[] data = readBuffer.array();
+        int start = readBuffer.position();
+        int end = readBuffer.limit();
+        int lines = 0;
+        if (writeBuffer == null) {
+            for (int i = start; i < end; i++) {
+                if (data[i] == '\n') {
+                    lines++;
+                }
+            }
+            writeFully(readBuffer);
+        } else {
+            writeBuffer.clear();
+            int i = start;
+            while (i < end) {
+                if (atLineStart) {
+                    if (writeBuffer.remaining() < prefix.length) {
+                        flushWriteBuffer();
+                    }
+                    writeBuffer.put(prefix);
+                    atLineStart = false;
+                }
+                // Copy up to and including the next newline in bulk
+                int newline = i;
+                while (newline < end && data[newline] != '\n') {
+                    newline++;
+                }
+                int segmentEnd = newline < end ? newline + 1 : end;
+                while (i < segmentEnd) {
+                    if (!writeBuffer.hasRemaining()) {
+                        flushWriteBuffer();
+                    }
+                    int n = Math.min(segmentEnd - i, writeBuffer.remaining());
+                    writeBuffer.put(data, i, n);
+                    i += n;
+                }
+                if (newline < end) {
+                    lines++;
+                    atLineStart = true;
+                }
+            }
+            writeBuffer.flip();
+            writeFully(writeBuffer);
+        }
+        if (marker != null) {
+            countMarker(data, start, end);
+        }
+        synchronized (ring) {
+            appendToRing(data, start, end - start);
+        }
+        bytesRelayed += end - start;
+        linesRelayed += lines;
+    }
+
+    private void countMarker(byte[] data, int start, int end) {
+        int k = markerMatched;
+        long found = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            while (k > 0 && b != marker[k]) {
+                k = markerFallback[k - 1];
+            }
+            if (b == marker[k]) {
+                k++;
+            }
+            if (k == marker.length) {
+                found++;
+                k = markerFallback[k - 1];
+            }
+        }
+        markerMatched = k;
+        if (found > 0) {
+            markerCount += found;
+        }
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void appendToRing(byte[] data, int offset, int length) {
+        if (ring.length == 0) {
+            return;
+        }
+        if (length >= ring.length) {
+            System.arraycopy(data, offset + length - ring.length, ring, 0, ring.length);
+            ringPos = 0;
+            ringFull = true;
+            return;
+        }
+        int first = Math.min(length, ring.length - ringPos);
+        System.arraycopy(data, offset, ring, ringPos, first);
+        if (first < length) {
+            System.arraycopy(data, offset + first, ring, 0, length - first);
+        }
+        ringPos = (ringPos + length) % ring.length;
+        if (ringPos < length) {
+            ringFull = true;
+        }
+    }
+
+    /**
+     * The most recent output, starting at a line boundary once the ring buffer has wrapped.
+     */
+    public String tail() {
+        byte[] copy;
+        synchronized (ring) {
+            if (!ringFull) {
+                copy = new byte[ringPos];
+                System.arraycopy(ring, 0, copy, 0, ringPos);
+            } else {
+                copy = new byte[ring.length];
+                System.arraycopy(ring, ringPos, copy, 0, ring.length - ringPos);
+                System.arraycopy(ring, 0, copy, ring.length - ringPos, ringPos);
+            }
+        }
+        int start = 0;
+        if (ringFull) {
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] == '\n') {
+                    start = i + 1;
+                    break;
+                }
+            }
+        }
+        return new String(copy, start, copy.length - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+import java.util.*;
+
+/**
+ * Allocates the container memory limit across every consumer of the FullNode process:
+ * heap, JVM native areas (direct memory, metaspace, code cache, thread stacks, GC structures),
+ * the storage engine's caches and write buffers, and a safety margin.
+ * When the total does not fit, the default per-database cache is shrunk first and then the heap,
+ * unless the heap was set explicitly; a plan that still does not fit is rejected.
+ */
+public class MemoryPlanner {
+    static final long MB = 1024L * 1024L;
+    static final long GB = 1024L * MB;
+
+    // At least 512MB or 5% of the limit stays free for the OS, page tables and allocator fragmentation
+    private static final long MIN_SAFETY_MARGIN = 512 * MB;
+    private static final double SAFETY_MARGIN_FRACTION = 0.05;
+
+    /**
+     * One line of the plan.
+     */
+    public static class Item {
+        final String name;
+        final long bytes;
+        final String reason;
+
+        public Item(String name, long bytes, String reason) {
+            this.name = name;
+            this.bytes = bytes;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Non-heap consumers for a candidate heap size and default per-database cache size.
+     */
+    public interface Consumers {
+        List<Item> items(int heapSizeGB, long defaultCacheBytes);
+    }
+
+    /**
+     * The reconciled plan. When nothing fits the limit, error is set if the heap was set explicitly
+     * and warning otherwise (the minimum heap is used).
+     */
+    public static class Plan {
+        long limitBytes;
+        int heapSizeGB;
+        long defaultCacheBytes;
+        long totalBytes;
+        final List<Item> items = new ArrayList<>();
+        final List<String> adjustments = new ArrayList<>();
+        String error;
+        String warning;
+    }
+
+    /**
+     * Reconcile the consumers against limitBytes (-1 if unknown: nothing is adjusted).
+     */
+    public static Plan plan(long limitBytes, int heapSizeGB, boolean heapOverridden, int minHeapGB,
+                            long defaultCacheBytes, long minDefaultCacheBytes, Consumers consumers) {
+        Plan plan = new Plan();
+        plan.limitBytes = limitBytes;
+        plan.heapSizeGB = heapSizeGB;
+        plan.defaultCacheBytes = defaultCacheBytes;
+        long margin = limitBytes > 0 ? Math.max(MIN_SAFETY_MARGIN, (long) (limitBytes * SAFETY_MARGIN_FRACTION)) : 0;
+        while (true) {
+            List<Item> items = consumers.items(plan.heapSizeGB, plan.defaultCacheBytes);
+            long total = plan.heapSizeGB * GB;
+            for (Item item : items) {
+                total += item.bytes;
+            }
+            plan.items.clear();
+            plan.items.add(new Item("heap", plan.heapSizeGB * GB,
+                heapOverridden ? "JAVA_HEAP_SIZE" : "-Xmx, sized from memory and reconciled with the items below"));
+            plan.items.addAll(items);
+            if (limitBytes > 0) {
+                plan.items.add(new Item("safety margin", margin, "max(512MB, 5% of the limit) for the OS and fragmentation"));
+                total += margin;
+            }
+            plan.totalBytes = total;
+            if (limitBytes <= 0 || total <= limitBytes) {
+                break;
+            }
+            if (plan.defaultCacheBytes > minDefaultCacheBytes) {
+                plan.defaultCacheBytes = Math.max(minDefaultCacheBytes, plan.defaultCacheBytes / 2);
+            } else if (!heapOverridden && plan.heapSizeGB > minHeapGB) {
+                plan.heapSizeGB--;
+            } else if (heapOverridden) {
+                plan.error = "Planned memory " + format(total) + " exceeds the limit of " + format(limitBytes)
+                    + " with JAVA_HEAP_SIZE=" + plan.heapSizeGB + "GB";
+                break;
+            } else {
+                plan.warning = "Planned memory " + format(total) + " exceeds the limit of " + format(limitBytes)
+                    + " even with the minimum " + minHeapGB + "GB heap";
+                break;
+            }
+        }
+        if (plan.defaultCacheBytes != defaultCacheBytes) {
+            plan.adjustments.add("default database cache " + format(defaultCacheBytes) + " -> " + format(plan.defaultCacheBytes));
+        }
+        if (plan.heapSizeGB != heapSizeGB) {
+            plan.adjustments.add("heap " + heapSizeGB + "GB -> " + plan.heapSizeGB + "GB");
+        }
+        return plan;
+    }
+
+    /**
+     * Parse a JVM memory size such as "512m", "1536m", "2G" or "65536" (bytes). Returns -1 if invalid.
+     */
+    static long parseSize(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        long multiplier = 1;
+        String number = value;
+        if (unit == 'k' || unit == 'm' || unit == 'g' || unit == 't') {
+            multiplier = unit == 'k' ? 1024L : unit == 'm' ? MB : unit == 'g' ? GB : 1024L * GB;
+            number = value.substring(0, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(number.trim()) * multiplier;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String format(long bytes) {
+        if (bytes >= GB) {
+            return String.format(Locale.ROOT, "%.1fGB", bytes / (double) GB);
+        }
+        return (bytes / MB) + "MB";
+    }
+
+    /**
+     * The plan as maps and lists for a JSON report.
+     */
+    static Map<String, Object> toMap(Plan plan) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("limitBytes", plan.limitBytes);
+        map.put("totalBytes", plan.totalBytes);
+        List<Object> items = new ArrayList<>();
+        for (Item item : plan.items) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", item.name);
+            entry.put("bytes", item.bytes);
+            entry.put("reason", item.reason);
+            items.add(entry);
+        }
+        map.put("items", items);
+        map.put("adjustments", plan.adjustments);
+        map.put("warning", plan.warning);
+        return map;
+    }
+
+    /**
+     * Itemized plan for the startup log.
+     */
+    static void print(Plan plan) {
+        System.out.println("Memory Plan" + (plan.limitBytes > 0 ? " (limit " + format(plan.limitBytes) + "):" : " (no memory limit detected):"));
+        for (Item item : plan.items) {
+            System.out.println(String.format(Locale.ROOT, "  %-18s %9s  %s", item.name, format(item.bytes), item.reason));
+        }
+        System.out.println(String.format(Locale.ROOT, "  %-18s %9s", "total", format(plan.totalBytes)));
+        for (String adjustment : plan.adjustments) {
+            System.out.println("  Adjusted to fit: " + adjustment);
+        }
+    }
+}
@@ -0,0 +1,432 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prometheus text-format endpoint (/metrics) for the supervised FullNode.
+ * Everything is sampled on scrape by a single low-priority thread: /proc/<pid> for RSS and CPU,
+ * new lines of the GC log since the previous scrape, the last head seen by the head tracker (which polls
+ * in the background) and the log relay counters.
+ * Buffers are reused between scrapes, so an idle node costs nothing and a scrape allocates little.
+ */
+public class MetricsExporter {
+    // USER_HZ is 100 on every Linux platform the image runs on
+    private static final double CLOCK_TICKS_PER_SECOND = 100.0;
+    private static final int GC_LOG_CHUNK_SIZE = 64 * 1024;
+
+    // JDK 8: "[GC pause (G1 Evacuation Pause) (young), 0.0123456 secs]"; the last "secs]" on the line is the total
+    private static final Pattern JDK8_PAUSE = Pattern.compile(", (\\d+\\.\\d+) secs\\]");
+    // JDK 9+: "[gc] GC(12) Pause Young (Normal) (G1 Evacuation Pause) 24M->4M(256M) 3.456ms"
+    private static final Pattern UNIFIED_PAUSE = Pattern.compile("GC\\(\\d+\\) Pause .*?(\\d+(?:\\.\\d+)?)ms\\s*$");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path gcLog;
+    private final Map<String, Double> settings = new LinkedHashMap<>();
+    private final AtomicLong starts = new AtomicLong();
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    private volatile Path procDir;
+    private volatile HeadTracker headTracker;
+    private volatile Readiness readiness;
+    private volatile LogRelay outputRelay;
+    private volatile LogRelay errorRelay;
+
+    // Scrape state, only touched by the executor thread
+    private final StringBuilder body = new StringBuilder(4096);
+    private final byte[] procBuffer = new byte[4096];
+    private final ByteBuffer gcBuffer = ByteBuffer.allocate(GC_LOG_CHUNK_SIZE);
+    private final StringBuilder gcPartialLine = new StringBuilder();
+    private Path gcLogActive = null;
+    private long gcLogOffset = 0;
+    private long gcPauseCount = 0;
+    private double gcPauseSeconds = 0;
+    private double gcPauseMaxSeconds = 0;
+    private long lastScrapeNanos = -1;
+    private long lastHeadNumber = -1;
+    private long lastLogLines = 0;
+
+    /**
+     * Additional metrics written on every scrape, e.g. by the API proxies.
+     */
+    public interface Collector {
+        void collect(MetricsExporter metrics);
+    }
+
+    public MetricsExporter(int port, Path gcLog) throws IOException {
+        this.gcLog = gcLog;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-exporter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        server.createContext("/metrics", this::handle);
+        server.createContext("/ready", this::handleReady);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Export a dynamic setting chosen at startup as tron_launcher_setting{name="..."}.
+     */
+    public synchronized void setting(String name, double value) {
+        settings.put(name, value);
+    }
+
+    /**
+     * Track a newly started FullNode process. Every start after the first counts as a restart.
+     */
+    public void processStarted(long pid, LogRelay outputRelay, LogRelay errorRelay) {
+        this.procDir = pid > 0 ? Paths.get("/proc", String.valueOf(pid)) : null;
+        this.outputRelay = outputRelay;
+        this.errorRelay = errorRelay;
+        starts.incrementAndGet();
+    }
+
+    /**
+     * Track FullNode running inside this JVM (exec mode).
+     */
+    public void inProcess() {
+        this.procDir = Paths.get("/proc/self");
+        starts.incrementAndGet();
+    }
+
+    public void setHeadTracker(HeadTracker headTracker) {
+        this.headTracker = headTracker;
+    }
+
+    public void addCollector(Collector collector) {
+        collectors.add(collector);
+    }
+
+    public void setReadiness(Readiness readiness) {
+        this.readiness = readiness;
+    }
+
+    /**
+     * 200 once the node passed the readiness gate, 503 with the reason otherwise.
+     */
+    private void handleReady(HttpExchange exchange) throws IOException {
+        try {
+            Readiness r = readiness;
+            boolean ready = r != null && r.isReady();
+            byte[] response = ((r != null ? r.status() : "not started") + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(ready ? 200 : 503, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] response = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String scrape() {
+        body.setLength(0);
+        long now = System.nanoTime();
+        double elapsed = lastScrapeNanos > 0 ? (now - lastScrapeNanos) / 1e9 : 0;
+        lastScrapeNanos = now;
+
+        Path proc = procDir;
+        if (proc != null) {
+            long rssKb = readRssKb(proc);
+            if (rssKb >= 0) {
+                gauge("tron_fullnode_resident_memory_bytes", "Resident set size of the FullNode process", rssKb * 1024.0);
+            }
+            double cpu = readCpuSeconds(proc);
+            if (cpu >= 0) {
+                counter("tron_fullnode_cpu_seconds_total", "User and system CPU time of the FullNode process", cpu);
+            }
+        }
+        counter("tron_fullnode_restarts_total", "FullNode restarts by the launcher", Math.max(0, starts.get() - 1));
+
+        readGcLog();
+        counter("tron_fullnode_gc_pauses_total", "GC pauses recorded in the GC log", gcPauseCount);
+        counter("tron_fullnode_gc_pause_seconds_total", "Total GC pause time recorded in the GC log", gcPauseSeconds);
+        gauge("tron_fullnode_gc_pause_max_seconds", "Longest GC pause recorded in the GC log", gcPauseMaxSeconds);
+
+        Readiness r = readiness;
+        if (r != null) {
+            gauge("tron_fullnode_ready", "1 once the node passed the readiness gate (near head, warmed up, JIT settled)", r.isReady() ? 1 : 0);
+        }
+
+        HeadTracker tracker = headTracker;
+        if (tracker != null && tracker.headNumber() >= 0) {
+            long head = tracker.headNumber();
+            gauge("tron_fullnode_head_block", "Head block number reported by /wallet/getnowblock", head);
+            gauge("tron_fullnode_head_lag_blocks", "Blocks between the head block and the wall clock", tracker.lagBlocks());
+            if (elapsed > 0 && lastHeadNumber >= 0) {
+                gauge("tron_fullnode_blocks_per_second", "Head block rate since the previous scrape",
+                    Math.max(0, head - lastHeadNumber) / elapsed);
+            }
+            lastHeadNumber = head;
+        }
+
+        LogRelay out = outputRelay;
+        LogRelay err = errorRelay;
+        if (out != null && err != null) {
+            long lines = out.linesRelayed() + err.linesRelayed();
+            counter("tron_fullnode_log_lines_total", "Log lines relayed from FullNode stdout and stderr", lines);
+            counter("tron_fullnode_log_bytes_total", "Log bytes relayed from FullNode stdout and stderr",
+                out.bytesRelayed() + err.bytesRelayed());
+            if (elapsed > 0) {
+                // A restart resets the relay counters
+                gauge("tron_fullnode_log_lines_per_second", "Log line rate since the previous scrape",
+                    Math.max(0, lines - lastLogLines) / elapsed);
+            }
+            lastLogLines = lines;
+            counter("tron_event_triggers_dropped_total", "Event triggers FullNode dropped because its trigger queue was full",
+                out.markerCount() + err.markerCount());
+        }
+
+        for (Collector collector : collectors) {
+            collector.collect(this);
+        }
+
+        synchronized (this) {
+            if (!settings.isEmpty()) {
+                body.append("# HELP tron_launcher_setting Dynamic setting chosen by the launcher\n");
+                body.append("# TYPE tron_launcher_setting gauge\n");
+                for (Map.Entry<String, Double> entry : settings.entrySet()) {
+                    body.append("tron_launcher_setting{name=\"").append(entry.getKey()).append("\"} ");
+                    appendValue(entry.getValue());
+                    body.append('\n');
+                }
+            }
+        }
+        return body.toString();
+    }
+
+    void gauge(String name, String help, double value) {
+        metric(name, "gauge", help, value);
+    }
+
+    void counter(String name, String help, double value) {
+        metric(name, "counter", help, value);
+    }
+
+    private void metric(String name, String type, String help, double value) {
+        body.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        body.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        body.append(name).append(' ');
+        appendValue(value);
+        body.append('\n');
+    }
+
+    private void appendValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            body.append((long) value);
+        } else {
+            body.append(value);
+        }
+    }
+
+    private long readRssKb(Path proc) {
+        int len = readProcFile(proc.resolve("status"));
+        // "VmRSS:	  123456 kB"
+        int i = indexOf(len, "VmRSS:");
+        if (i < 0) {
+            return -1;
+        }
+        i += "VmRSS:".length();
+        while (i < len && (procBuffer[i] == ' ' || procBuffer[i] == '\t')) {
+            i++;
+        }
+        return parseLong(i, len);
+    }
+
+    private double readCpuSeconds(Path proc) {
+        int len = readProcFile(proc.resolve("stat"));
+        // The command name may contain spaces, so fields are counted from the closing parenthesis
+        int i = len - 1;
+        while (i >= 0 && procBuffer[i] != ')') {
+            i--;
+        }
+        if (i < 0) {
+            return -1;
+        }
+        // After ")" come state (field 3) ... utime (field 14) and stime (field 15)
+        int field = 2;
+        long utime = -1;
+        long stime = -1;
+        for (i = i + 1; i < len && stime < 0; i++) {
+            if (procBuffer[i] == ' ') {
+                field++;
+                if (field == 14) {
+                    utime = parseLong(i + 1, len);
+                } else if (field == 15) {
+                    stime = parseLong(i + 1, len);
+                }
+            }
+        }
+        if (utime < 0 || stime < 0) {
+            return -1;
+        }
+        return (utime + stime) / CLOCK_TICKS_PER_SECOND;
+    }
+
+    private int readProcFile(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            int len = 0;
+            int n;
+            while (len < procBuffer.length && (n = in.read(procBuffer, len, procBuffer.length - len)) > 0) {
+                len += n;
+            }
+            return len;
+        } catch (IOException e) {
+            // Process is gone or not started yet
+            return 0;
+        }
+    }
+
+    private int indexOf(int len, String needle) {
+        outer:
+        for (int i = 0; i + needle.length() <= len; i++) {
+            for (int j = 0; j < needle.length(); j++) {
+                if (procBuffer[i + j] != needle.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private long parseLong(int from, int len) {
+        long value = 0;
+        int i = from;
+        while (i < len && procBuffer[i] >= '0' && procBuffer[i] <= '9') {
+            value = value * 10 + (procBuffer[i] - '0');
+            i++;
+        }
+        return i > from ? value : -1;
+    }
+
+    /**
+     * Parse the GC log lines appended since the previous scrape.
+     * A file smaller than the last offset was rotated or truncated and is read from the start.
+     */
+    private void readGcLog() {
+        Path active = activeGcLog();
+        if (active == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(active, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < gcLogOffset || !active.equals(gcLogActive)) {
+                gcLogActive = active;
+                gcLogOffset = 0;
+                gcPartialLine.setLength(0);
+            }
+            channel.position(gcLogOffset);
+            gcBuffer.clear();
+            int n;
+            while ((n = channel.read(gcBuffer)) > 0) {
+                gcLogOffset += n;
+                byte[] data = gcBuffer.array();
+                int lineStart = 0;
+                for (int i = 0; i < gcBuffer.position(); i++) {
+                    if (data[i] == '\n') {
+                        // GC log lines are ASCII
+                        for (int j = lineStart; j < i; j++) {
+                            gcPartialLine.append((char) data[j]);
+                        }
+                        parseGcLine(gcPartialLine);
+                        gcPartialLine.setLength(0);
+                        lineStart = i + 1;
+                    }
+                }
+                for (int j = lineStart; j < gcBuffer.position(); j++) {
+                    gcPartialLine.append((char) data[j]);
+                }
+                gcBuffer.clear();
+            }
+        } catch (NoSuchFileException e) {
+            // Not written yet
+        } catch (IOException e) {
+            // Retry on the next scrape
+        }
+    }
+
+    /**
+     * The GC log being written: the configured path, or with JDK 8 log rotation "<path>.N.current".
+     */
+    private Path activeGcLog() {
+        if (gcLog == null) {
+            return null;
+        }
+        if (Files.exists(gcLog)) {
+            return gcLog;
+        }
+        Path dir = gcLog.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, gcLog.getFileName() + ".*.current")) {
+            for (Path path : stream) {
+                return path;
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+        return null;
+    }
+
+    private void parseGcLine(CharSequence line) {
+        double pause = -1;
+        Matcher unified = UNIFIED_PAUSE.matcher(line);
+        if (unified.find()) {
+            pause = Double.parseDouble(unified.group(1)) / 1000.0;
+        } else {
+            String text = line.toString();
+            if ((text.contains("[GC ") || text.contains("[Full GC ")) && !text.contains("[GC concurrent")) {
+                Matcher jdk8 = JDK8_PAUSE.matcher(text);
+                while (jdk8.find()) {
+                    pause = Double.parseDouble(jdk8.group(1));
+                }
+            }
+        }
+        if (pause >= 0) {
+            gcPauseCount++;
+            gcPauseSeconds += pause;
+            gcPauseMaxSeconds = Math.max(gcPauseMaxSeconds, pause);
+        }
+    }
+}
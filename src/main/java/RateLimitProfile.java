@@ -0,0 +1,138 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Per-API entries for java-tron's rate.limiter http and rpc lists.
+ * Each known component (HTTP servlet or gRPC method) has a cost class: cheap calls are left to global.qps,
+ * medium calls get a per-IP QPS limit and expensive calls (VM execution, whole-block scans) get a fixed
+ * number of concurrent permits, so they can never occupy the cores that block processing needs.
+ * A profile file (Java properties, "component = class") reclassifies known components.
+ */
+public class RateLimitProfile {
+    public static final String CLASS_CHEAP = "cheap";
+    public static final String CLASS_MEDIUM = "medium";
+    public static final String CLASS_EXPENSIVE = "expensive";
+
+    private static final String RPC_WALLET = "protocol.Wallet/";
+    private static final String RPC_SOLIDITY = "protocol.WalletSolidity/";
+
+    private final Map<String, String> classes = new TreeMap<>();
+    private final int cpuCount;
+
+    public RateLimitProfile(int cpuCount) {
+        this.cpuCount = cpuCount;
+        // Expensive: run the VM or read every transaction of a block or a range of blocks
+        http(CLASS_EXPENSIVE, "TriggerConstantContractServlet", "TriggerConstantContractOnSolidityServlet",
+            "EstimateEnergyServlet", "EstimateEnergyOnSolidityServlet",
+            "GetTransactionInfoByBlockNumServlet", "GetTransactionInfoByBlockNumOnSolidityServlet",
+            "GetBlockByLimitNextServlet", "GetBlockByLatestNumServlet", "GetBlockBalanceServlet",
+            "GetAssetIssueListServlet", "GetPaginatedAssetIssueListServlet");
+        rpc(CLASS_EXPENSIVE, RPC_WALLET, "TriggerConstantContract", "EstimateEnergy", "GetTransactionInfoByBlockNum",
+            "GetBlockByLimitNext2", "GetBlockByLatestNum2", "GetBlockBalanceTrace", "GetAssetIssueList",
+            "GetPaginatedAssetIssueList");
+        rpc(CLASS_EXPENSIVE, RPC_SOLIDITY, "TriggerConstantContract", "EstimateEnergy", "GetTransactionInfoByBlockNum");
+        // Medium: one block, one transaction or a transaction build with state lookups
+        http(CLASS_MEDIUM, "GetBlockByNumServlet", "GetBlockByIdServlet", "GetBlockServlet",
+            "GetTransactionByIdServlet", "GetTransactionInfoByIdServlet", "TriggerSmartContractServlet",
+            "BroadcastTransactionServlet", "BroadcastHexServlet", "GetRewardServlet",
+            "GetTransactionListFromPendingServlet", "GetMarketOrderListByPairServlet");
+        rpc(CLASS_MEDIUM, RPC_WALLET, "GetBlockByNum2", "GetBlockById", "GetTransactionById", "GetTransactionInfoById",
+            "TriggerContract", "BroadcastTransaction", "GetRewardInfo");
+        rpc(CLASS_MEDIUM, RPC_SOLIDITY, "GetBlockByNum2", "GetTransactionById", "GetTransactionInfoById");
+        // Cheap: a single key lookup or cached state; only global.qps applies
+        http(CLASS_CHEAP, "GetNowBlockServlet", "GetAccountServlet", "GetAccountResourceServlet",
+            "GetChainParametersServlet", "ListWitnessesServlet", "GetNodeInfoServlet", "GetContractServlet",
+            "GetContractInfoServlet", "GetBrokerageServlet", "ListProposalsServlet", "GetBandwidthPricesServlet",
+            "GetEnergyPricesServlet", "CreateTransactionServlet", "ValidateAddressServlet");
+        rpc(CLASS_CHEAP, RPC_WALLET, "GetNowBlock2", "GetAccount", "GetAccountResource", "GetChainParameters",
+            "ListWitnesses", "GetNodeInfo", "GetContract", "GetContractInfo", "GetBrokerageInfo", "ListProposals",
+            "CreateTransaction2");
+        rpc(CLASS_CHEAP, RPC_SOLIDITY, "GetNowBlock2", "GetAccount", "ListWitnesses");
+    }
+
+    private void http(String costClass, String... servlets) {
+        for (String servlet : servlets) {
+            classes.put(servlet, costClass);
+        }
+    }
+
+    private void rpc(String costClass, String service, String... methods) {
+        for (String method : methods) {
+            classes.put(service + method, costClass);
+        }
+    }
+
+    /**
+     * Apply a profile file. Lines are "component = class"; the component must be one of the known ones.
+     * Throws IllegalArgumentException naming the offending line.
+     */
+    public void load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        for (String component : new TreeSet<>(props.stringPropertyNames())) {
+            String costClass = props.getProperty(component).trim();
+            if (!classes.containsKey(component)) {
+                throw new IllegalArgumentException(component + ": unknown component; expected an HTTP servlet such as "
+                    + "TriggerConstantContractServlet or a gRPC method such as protocol.Wallet/TriggerConstantContract");
+            }
+            if (!CLASS_CHEAP.equals(costClass) && !CLASS_MEDIUM.equals(costClass) && !CLASS_EXPENSIVE.equals(costClass)) {
+                throw new IllegalArgumentException(component + " = " + costClass + ": class must be cheap, medium or expensive");
+            }
+            classes.put(component, costClass);
+        }
+    }
+
+    /**
+     * Concurrent calls allowed per expensive component: a quarter of the cores, at least 1.
+     */
+    int expensivePermits() {
+        return Math.max(1, cpuCount / 4);
+    }
+
+    /**
+     * Per-IP QPS allowed per medium component: 25 per core, at least 10.
+     */
+    int mediumIpQps() {
+        return Math.max(10, cpuCount * 25);
+    }
+
+    /**
+     * Number of generated entries (cheap components have none).
+     */
+    public int size() {
+        int n = 0;
+        for (String costClass : classes.values()) {
+            if (!CLASS_CHEAP.equals(costClass)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Render the HTTP (rpc false) or gRPC (rpc true) entries as HOCON objects for the rate.limiter lists.
+     */
+    public String render(boolean rpc, String indent) {
+        StringBuilder out = new StringBuilder(2048);
+        for (Map.Entry<String, String> entry : classes.entrySet()) {
+            String component = entry.getKey();
+            if (CLASS_CHEAP.equals(entry.getValue()) || component.contains("/") != rpc) {
+                continue;
+            }
+            boolean expensive = CLASS_EXPENSIVE.equals(entry.getValue());
+            if (out.length() > 0) {
+                out.append(",\n").append(indent);
+            }
+            out.append("{\n")
+                .append(indent).append("  component = \"").append(component).append("\",\n")
+                .append(indent).append("  strategy = \"").append(expensive ? "GlobalPreemptibleAdapter" : "IPQPSRateLimiterAdapter").append("\",\n")
+                .append(indent).append("  paramString = \"").append(expensive ? "permit=" + expensivePermits() : "qps=" + mediumIpQps()).append("\"\n")
+                .append(indent).append('}');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Readiness gate for a supervised FullNode. The node becomes ready once, in order:
+ * its head is within maxLagBlocks of the wall clock, a warm-up of typical API calls has run,
+ * and JIT compilation has settled (read from the node's hsperfdata file).
+ * After that it stays ready as long as it stays within maxLagBlocks.
+ * Readiness is published as a file (for --ready-check) and through isReady() (for /ready).
+ */
+public class Readiness implements Runnable {
+    private static final long CHECK_INTERVAL_MS = 10000;
+    // Settled: fewer JIT compilations than this during one check interval
+    private static final long JIT_SETTLED_COMPILES = 10;
+    private static final String JIT_COMPILES_COUNTER = "sun.ci.totalCompiles";
+    private static final int HSPERFDATA_MAGIC = 0xcafec0c0;
+
+    // Typical read calls, used when no warm-up file is given
+    private static final List<String> DEFAULT_WARMUP = Arrays.asList(
+        "/wallet/getnowblock",
+        "/wallet/getnodeinfo",
+        "/wallet/getchainparameters",
+        "/wallet/listwitnesses",
+        "/wallet/getblockbylatestnum {\"num\": 5}");
+
+    private final long pid;
+    private final int fullNodePort;
+    private final long maxLagBlocks;
+    private final List<String> warmup;
+    private final int warmupRounds;
+    private final Path readyFile;
+    private final HeadTracker tracker;
+    private volatile boolean running = true;
+    private volatile boolean ready = false;
+    private volatile String status = "starting";
+    private Thread thread;
+
+    /**
+     * warmupFile lists one call per line: a path on the FullNode HTTP port or a full URL,
+     * optionally followed by a JSON body. Empty lines and lines starting with # are skipped.
+     */
+    public Readiness(long pid, int fullNodePort, long maxLagBlocks, Path warmupFile, int warmupRounds, Path readyFile) throws IOException {
+        this.pid = pid;
+        this.fullNodePort = fullNodePort;
+        this.maxLagBlocks = maxLagBlocks;
+        this.warmupRounds = warmupRounds;
+        this.readyFile = readyFile;
+        this.tracker = new HeadTracker(fullNodePort, CHECK_INTERVAL_MS, null);
+        if (warmupFile == null) {
+            this.warmup = DEFAULT_WARMUP;
+        } else {
+            this.warmup = new ArrayList<>();
+            for (String line : Files.readAllLines(warmupFile, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    warmup.add(line);
+                }
+            }
+        }
+    }
+
+    public void start() throws IOException {
+        Files.deleteIfExists(readyFile);
+        tracker.start();
+        thread = new Thread(this, "readiness");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop checking and withdraw readiness, e.g. because the node stopped.
+     */
+    public void stop() {
+        running = false;
+        tracker.stop();
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+        setReady(false, "stopped");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String status() {
+        return status;
+    }
+
+    @Override
+    public void run() {
+        boolean warmedUp = false;
+        long lastCompiles = -1;
+        boolean jitSettled = false;
+        while (running) {
+            try {
+                Thread.sleep(CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long lag = tracker.lagBlocks();
+            boolean nearHead = lag >= 0 && lag <= maxLagBlocks;
+            if (!nearHead) {
+                setReady(false, lag < 0 ? "waiting for the HTTP API" : lag + " blocks behind head");
+                continue;
+            }
+            if (!warmedUp) {
+                setReady(false, "warming up");
+                System.out.println("Readiness: " + lag + " blocks behind head, running warm-up ("
+                    + warmup.size() + " calls x " + warmupRounds + " rounds)");
+                runWarmup();
+                warmedUp = true;
+                continue;
+            }
+            if (!jitSettled) {
+                long compiles = readPerfCounter(hsperfdataFile(pid), JIT_COMPILES_COUNTER);
+                if (compiles < 0) {
+                    System.out.println("Readiness: no hsperfdata for PID " + pid + ", not waiting for the JIT to settle");
+                    jitSettled = true;
+                } else if (lastCompiles >= 0 && compiles - lastCompiles < JIT_SETTLED_COMPILES) {
+                    System.out.println("Readiness: JIT settled (" + (compiles - lastCompiles) + " compilations in "
+                        + (CHECK_INTERVAL_MS / 1000) + "s)");
+                    jitSettled = true;
+                } else {
+                    setReady(false, "waiting for the JIT to settle (" + compiles + " compilations)");
+                    lastCompiles = compiles;
+                    continue;
+                }
+            }
+            setReady(true, "ready, " + lag + " blocks behind head");
+        }
+    }
+
+    private void runWarmup() {
+        int failed = 0;
+        for (int round = 0; round < warmupRounds && running; round++) {
+            for (String call : warmup) {
+                if (!running || !post(call)) {
+                    failed++;
+                }
+            }
+        }
+        if (failed > 0) {
+            System.err.println("Warning: " + failed + " warm-up calls failed");
+        }
+    }
+
+    /**
+     * POST one warm-up call and read the whole response. Returns false on a connection error or non-2xx status.
+     */
+    private boolean post(String call) {
+        int space = call.indexOf(' ');
+        String target = space > 0 ? call.substring(0, space) : call;
+        String body = space > 0 ? call.substring(space + 1).trim() : "{}";
+        String url = target.startsWith("http") ? target : "http://127.0.0.1:" + fullNodePort + target;
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(2000);
+            conn.setReadTimeout(30000);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            int code = conn.getResponseCode();
+            try (InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) > 0) {
+                        // Drain; the node does the work the warm-up is for
+                    }
+                }
+            }
+            return code >= 200 && code < 300;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private synchronized void setReady(boolean nowReady, String newStatus) {
+        status = newStatus;
+        if (nowReady == ready) {
+            return;
+        }
+        ready = nowReady;
+        System.out.println(nowReady ? "Node is ready: " + newStatus : "Node is not ready: " + newStatus);
+        try {
+            if (nowReady) {
+                Files.createDirectories(readyFile.toAbsolutePath().getParent());
+                Files.write(readyFile, String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+            } else {
+                Files.deleteIfExists(readyFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not update " + readyFile + ": " + e.getMessage());
+        }
+    }
+
+    static Path hsperfdataFile(long pid) {
+        return Paths.get("/tmp", "hsperfdata_" + System.getProperty("user.name"), String.valueOf(pid));
+    }
+
+    /**
+     * Read a long counter from a HotSpot hsperfdata file (the instrumentation jstat reads).
+     * Returns -1 if the file or the counter does not exist.
+     */
+    static long readPerfCounter(Path file, String name) {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (IOException e) {
+            return -1;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (data.length < 32 || buf.getInt(0) != HSPERFDATA_MAGIC) {
+            return -1;
+        }
+        // Prologue: magic, byte order (0 big endian, 1 little endian), versions, ..., entry offset at 24, entry count at 28
+        buf.order(data[4] == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        int offset = buf.getInt(24);
+        int entries = buf.getInt(28);
+        byte[] wanted = name.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < entries && offset > 0 && offset + 20 <= data.length; i++) {
+            int entryLength = buf.getInt(offset);
+            int nameOffset = buf.getInt(offset + 4);
+            int vectorLength = buf.getInt(offset + 8);
+            byte type = data[offset + 12];
+            int dataOffset = buf.getInt(offset + 16);
+            if (entryLength <= 0) {
+                break;
+            }
+            int n = offset + nameOffset;
+            if (type == 'J' && vectorLength == 0 && n + wanted.length < data.length && data[n + wanted.length] == 0
+                    && regionMatches(data, n, wanted) && offset + dataOffset + 8 <= data.length) {
+                return buf.getLong(offset + dataOffset);
+            }
+            offset += entryLength;
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] data, int start, byte[] wanted) {
+        for (int i = 0; i < wanted.length; i++) {
+            if (data[start + i] != wanted[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Detects the CPU and memory resources available to the container.
+ * Reads cgroup v2 (unified) and cgroup v1 controllers, then falls back to /proc and the JVM view.
+ * All roots are configurable so detection can be pointed at a fake /sys/fs/cgroup tree.
+ */
+public class ResourceDetector {
+    // cgroup v1 reports "no limit" as a page-aligned value close to Long.MAX_VALUE
+    private static final long V1_UNLIMITED_THRESHOLD = 1L << 62;
+    private static final double BYTES_PER_GB = 1024.0 * 1024.0 * 1024.0;
+
+    /**
+     * Detected resources, kept at byte and fractional-core precision.
+     * Values that could not be detected are -1.
+     */
+    public static class Resources {
+        int cgroupVersion = 0;
+        long memoryLimitBytes = -1;
+        long memoryMaxBytes = -1;
+        long memoryHighBytes = -1;
+        // cgroup v1 memory.soft_limit_in_bytes (docker --memory-reservation): a reclaim hint, not a cap
+        long memorySoftLimitBytes = -1;
+        long hostMemoryBytes = -1;
+        String memorySource = "unknown";
+        double cpuCores = -1;
+        double cpuQuotaCores = -1;
+        int cpusetCpus = -1;
+        int hostCpus = -1;
+        int cpusetMems = -1;
+        String cpuSource = "unknown";
+        int numaNodes = 1;
+
+        double memoryGB() {
+            return memoryLimitBytes > 0 ? memoryLimitBytes / BYTES_PER_GB : -1;
+        }
+    }
+
+    private final Path cgroupRoot;
+    private final Path procRoot;
+    private final Path sysRoot;
+
+    public ResourceDetector() {
+        this(Paths.get("/sys/fs/cgroup"), Paths.get("/proc"), Paths.get("/sys"));
+    }
+
+    public ResourceDetector(Path cgroupRoot, Path procRoot, Path sysRoot) {
+        this.cgroupRoot = cgroupRoot;
+        this.procRoot = procRoot;
+        this.sysRoot = sysRoot;
+    }
+
+    public Resources detect() {
+        Resources res = new Resources();
+        res.hostCpus = Runtime.getRuntime().availableProcessors();
+        res.hostMemoryBytes = readMemTotalBytes();
+        try {
+            if (Files.exists(cgroupRoot.resolve("cgroup.controllers"))) {
+                res.cgroupVersion = 2;
+                detectV2(res);
+            } else if (Files.isDirectory(cgroupRoot.resolve("memory")) || Files.isDirectory(cgroupRoot.resolve("cpu"))
+                    || Files.isDirectory(cgroupRoot.resolve("cpu,cpuacct")) || Files.isDirectory(cgroupRoot.resolve("cpuset"))) {
+                res.cgroupVersion = 1;
+                detectV1(res);
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Could not read cgroup limits: " + e.getMessage());
+        }
+        resolveMemory(res);
+        resolveCpu(res);
+        // Only the nodes the container may allocate from count
+        int hostNodes = Math.max(1, countNumaNodes());
+        res.numaNodes = res.cpusetMems > 0 ? Math.min(hostNodes, res.cpusetMems) : hostNodes;
+        return res;
+    }
+
+    private void detectV2(Resources res) throws IOException {
+        // Walk from the process' own cgroup up to the root; the tightest limit along the way wins
+        List<Path> dirs = v2Hierarchy();
+        for (Path dir : dirs) {
+            long max = parseLimit(readFirstLine(dir.resolve("memory.max")));
+            if (max > 0 && (res.memoryMaxBytes < 0 || max < res.memoryMaxBytes)) {
+                res.memoryMaxBytes = max;
+            }
+            long high = parseLimit(readFirstLine(dir.resolve("memory.high")));
+            if (high > 0 && (res.memoryHighBytes < 0 || high < res.memoryHighBytes)) {
+                res.memoryHighBytes = high;
+            }
+            String cpuMax = readFirstLine(dir.resolve("cpu.max"));
+            if (cpuMax != null) {
+                String[] parts = cpuMax.trim().split("\\s+");
+                if (parts.length >= 1 && !"max".equals(parts[0])) {
+                    double quota = parseDouble(parts[0]);
+                    double period = parts.length >= 2 ? parseDouble(parts[1]) : 100000;
+                    if (quota > 0 && period > 0) {
+                        double cores = quota / period;
+                        if (res.cpuQuotaCores < 0 || cores < res.cpuQuotaCores) {
+                            res.cpuQuotaCores = cores;
+                        }
+                    }
+                }
+            }
+            if (res.cpusetCpus < 0) {
+                String cpus = readFirstLine(dir.resolve("cpuset.cpus.effective"));
+                if (cpus == null || cpus.trim().isEmpty()) {
+                    cpus = readFirstLine(dir.resolve("cpuset.cpus"));
+                }
+                res.cpusetCpus = countCpuList(cpus);
+            }
+            if (res.cpusetMems < 0) {
+                String mems = readFirstLine(dir.resolve("cpuset.mems.effective"));
+                if (mems == null || mems.trim().isEmpty()) {
+                    mems = readFirstLine(dir.resolve("cpuset.mems"));
+                }
+                res.cpusetMems = countCpuList(mems);
+            }
+        }
+    }
+
+    private void detectV1(Resources res) throws IOException {
+        Path memDir = v1Controller("memory");
+        if (memDir != null) {
+            res.memoryMaxBytes = parseLimit(readFirstLine(memDir.resolve("memory.limit_in_bytes")));
+            // Unlike memory.high the soft limit does not throttle; it only steers reclaim, so it is not used for sizing
+            res.memorySoftLimitBytes = parseLimit(readFirstLine(memDir.resolve("memory.soft_limit_in_bytes")));
+        }
+        Path cpuDir = v1Controller("cpu");
+        if (cpuDir == null) {
+            cpuDir = v1Controller("cpu,cpuacct");
+        }
+        if (cpuDir != null) {
+            double quota = parseDouble(readFirstLine(cpuDir.resolve("cpu.cfs_quota_us")));
+            double period = parseDouble(readFirstLine(cpuDir.resolve("cpu.cfs_period_us")));
+            if (quota > 0 && period > 0) {
+                res.cpuQuotaCores = quota / period;
+            }
+        }
+        Path cpusetDir = v1Controller("cpuset");
+        if (cpusetDir != null) {
+            String cpus = readFirstLine(cpusetDir.resolve("cpuset.effective_cpus"));
+            if (cpus == null || cpus.trim().isEmpty()) {
+                cpus = readFirstLine(cpusetDir.resolve("cpuset.cpus"));
+            }
+            res.cpusetCpus = countCpuList(cpus);
+            String mems = readFirstLine(cpusetDir.resolve("cpuset.effective_mems"));
+            if (mems == null || mems.trim().isEmpty()) {
+                mems = readFirstLine(cpusetDir.resolve("cpuset.mems"));
+            }
+            res.cpusetMems = countCpuList(mems);
+        }
+    }
+
+    private void resolveMemory(Resources res) {
+        long limit = -1;
+        String source = null;
+        if (res.memoryMaxBytes > 0) {
+            limit = res.memoryMaxBytes;
+            source = res.cgroupVersion == 2 ? "cgroup v2 memory.max" : "cgroup v1 memory.limit_in_bytes";
+        }
+        if (res.memoryHighBytes > 0 && (limit < 0 || res.memoryHighBytes < limit)) {
+            limit = res.memoryHighBytes;
+            source = "cgroup v2 memory.high";
+        }
+        // A cgroup limit above physical memory is meaningless
+        if (res.hostMemoryBytes > 0 && (limit < 0 || res.hostMemoryBytes < limit)) {
+            limit = res.hostMemoryBytes;
+            source = "/proc/meminfo MemTotal";
+        }
+        res.memoryLimitBytes = limit;
+        if (source != null) {
+            res.memorySource = source;
+        }
+    }
+
+    private void resolveCpu(Resources res) {
+        double cores = res.hostCpus;
+        String source = "availableProcessors";
+        if (res.cpusetCpus > 0 && res.cpusetCpus < cores) {
+            cores = res.cpusetCpus;
+            source = "cpuset";
+        }
+        if (res.cpuQuotaCores > 0 && res.cpuQuotaCores < cores) {
+            cores = res.cpuQuotaCores;
+            source = res.cgroupVersion == 2 ? "cgroup v2 cpu.max" : "cgroup v1 cpu.cfs_quota_us";
+        }
+        res.cpuCores = cores;
+        res.cpuSource = source;
+    }
+
+    /**
+     * Disk class of the block device holding the given path: "ssd", "hdd", or "unknown"
+     * (e.g. overlay or network filesystems). Based on the device's queue/rotational flag.
+     */
+    public String detectDiskClass(Path path) {
+        String target = path.toAbsolutePath().toString();
+        String device = null;
+        int bestLength = -1;
+        // mountinfo: "36 35 8:1 / /data rw,relatime - ext4 /dev/sda1 rw"
+        for (String line : readLines(procRoot.resolve("self/mountinfo"))) {
+            String[] fields = line.split(" ");
+            if (fields.length < 5) {
+                continue;
+            }
+            String mountPoint = fields[4];
+            boolean contains = target.equals(mountPoint) || "/".equals(mountPoint)
+                || target.startsWith(mountPoint + "/");
+            if (contains && mountPoint.length() > bestLength) {
+                bestLength = mountPoint.length();
+                device = fields[2];
+            }
+        }
+        if (device == null || device.startsWith("0:")) {
+            return "unknown";
+        }
+        Path dev = sysRoot.resolve("dev/block").resolve(device);
+        String rotational = readFirstLine(dev.resolve("queue/rotational"));
+        if (rotational == null) {
+            // Partitions have no queue of their own; the parent device's applies
+            rotational = readFirstLine(dev.resolve("../queue/rotational"));
+        }
+        if (rotational == null) {
+            return "unknown";
+        }
+        return "0".equals(rotational.trim()) ? "ssd" : "hdd";
+    }
+
+    private List<Path> v2Hierarchy() {
+        List<Path> dirs = new ArrayList<>();
+        String own = null;
+        for (String line : readLines(procRoot.resolve("self/cgroup"))) {
+            if (line.startsWith("0::")) {
+                own = line.substring(3).trim();
+                break;
+            }
+        }
+        if (own != null && !own.isEmpty() && !"/".equals(own)) {
+            Path dir = cgroupRoot.resolve(own.substring(1));
+            while (dir != null && dir.startsWith(cgroupRoot) && !dir.equals(cgroupRoot)) {
+                if (Files.isDirectory(dir)) {
+                    dirs.add(dir);
+                }
+                dir = dir.getParent();
+            }
+        }
+        dirs.add(cgroupRoot);
+        return dirs;
+    }
+
+    private Path v1Controller(String controller) {
+        Path base = cgroupRoot.resolve(controller);
+        if (!Files.isDirectory(base)) {
+            return null;
+        }
+        // Without a cgroup namespace the process' own cgroup is nested below the controller mount
+        for (String line : readLines(procRoot.resolve("self/cgroup"))) {
+            String[] parts = line.split(":", 3);
+            if (parts.length == 3 && Arrays.asList(parts[1].split(",")).contains(controller.split(",")[0])) {
+                String own = parts[2].trim();
+                if (!own.isEmpty() && !"/".equals(own)) {
+                    Path nested = base.resolve(own.substring(1));
+                    if (Files.isDirectory(nested)) {
+                        return nested;
+                    }
+                }
+                break;
+            }
+        }
+        return base;
+    }
+
+    private long readMemTotalBytes() {
+        for (String line : readLines(procRoot.resolve("meminfo"))) {
+            if (line.startsWith("MemTotal:")) {
+                String[] parts = line.split("\\s+");
+                if (parts.length >= 2) {
+                    try {
+                        return Long.parseLong(parts[1]) * 1024L;
+                    } catch (NumberFormatException e) {
+                        // Ignore
+                    }
+                }
+                break;
+            }
+        }
+        return -1;
+    }
+
+    private int countNumaNodes() {
+        Path nodeDir = sysRoot.resolve("devices/system/node");
+        if (!Files.isDirectory(nodeDir)) {
+            return 1;
+        }
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(nodeDir, "node[0-9]*")) {
+            for (Path ignored : stream) {
+                count++;
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+        return count;
+    }
+
+    /**
+     * Parse a cgroup limit value. Returns -1 for "max", unlimited or unparsable values.
+     */
+    static long parseLimit(String value) {
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        if (value.isEmpty() || "max".equals(value)) {
+            return -1;
+        }
+        try {
+            long limit = Long.parseLong(value);
+            return limit > 0 && limit < V1_UNLIMITED_THRESHOLD ? limit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Count CPUs (or memory nodes) in a cpuset list such as "0-3,8,10-11". Returns -1 if the list is empty or invalid.
+     */
+    static int countCpuList(String list) {
+        if (list == null || list.trim().isEmpty()) {
+            return -1;
+        }
+        int count = 0;
+        try {
+            for (String range : list.trim().split(",")) {
+                int dash = range.indexOf('-');
+                if (dash >= 0) {
+                    count += Integer.parseInt(range.substring(dash + 1).trim()) - Integer.parseInt(range.substring(0, dash).trim()) + 1;
+                } else {
+                    Integer.parseInt(range.trim());
+                    count++;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return count > 0 ? count : -1;
+    }
+
+    private static double parseDouble(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readFirstLine(Path path) {
+        List<String> lines = readLines(path);
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    private static List<String> readLines(Path path) {
+        try {
+            if (Files.isReadable(path)) {
+                return Files.readAllLines(path, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            // Ignore - file may disappear or be unreadable in some runtimes
+        }
+        return Collections.emptyList();
+    }
+}
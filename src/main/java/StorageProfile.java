@@ -0,0 +1,186 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Per-database entries for java-tron's storage.properties list.
+ * Each database is assigned a tier (hot, warm or cold) and a weight; the cache budget is split by weight,
+ * and block size, write buffer and open file limits follow the tier.
+ * A profile file (Java properties, "name = tier:weight") overrides or extends the built-in table with other
+ * java-tron databases; a weight of 0 drops the entry so the database uses the default settings.
+ */
+public class StorageProfile {
+    public static final String TIER_HOT = "hot";
+    public static final String TIER_WARM = "warm";
+    public static final String TIER_COLD = "cold";
+
+    private static final long MIN_CACHE_SIZE = 8L * 1024 * 1024;
+
+    /** Databases java-tron opens (approximate; varies slightly between releases) */
+    static final int DATABASE_COUNT = 40;
+    /** Databases written on every block, whose memtables fill up (account, storage-row, block, trans, ...) */
+    static final int WRITE_HEAVY_DATABASE_COUNT = 8;
+
+    /** Databases a profile file may name: the built-in table plus the other java-tron databases */
+    static final Set<String> KNOWN_DATABASES = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+        "abi", "account", "account-asset", "account-index", "account-trace", "accountid-index", "asset-issue",
+        "asset-issue-v2", "balance-trace", "block", "block-index", "code", "common", "contract", "contract-state",
+        "delegation", "DelegatedResource", "DelegatedResourceAccountIndex", "exchange", "exchange-v2",
+        "IncrementalMerkleTree", "market_account", "market_order", "market_pair_price_to_order", "market_pair_to_price",
+        "nullifier", "pbft-sign-data", "properties", "proposal", "recent-block", "recent-transaction", "section-bloom",
+        "storage-row", "trans", "trans-cache", "transactionHistoryStore", "transactionRetStore", "tree-block-index",
+        "votes", "witness", "witness_schedule", "zkProof")));
+
+    static class Entry {
+        final String name;
+        final String tier;
+        final double weight;
+
+        Entry(String name, String tier, double weight) {
+            this.name = name;
+            this.tier = tier;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long cacheBudgetBytes;
+
+    public StorageProfile(long cacheBudgetBytes) {
+        this.cacheBudgetBytes = cacheBudgetBytes;
+        // Hot: random reads and writes on every block and transaction
+        put("account", TIER_HOT, 8);
+        put("storage-row", TIER_HOT, 6);
+        put("contract", TIER_HOT, 3);
+        put("code", TIER_HOT, 2);
+        put("abi", TIER_HOT, 1);
+        put("properties", TIER_HOT, 1);
+        put("recent-block", TIER_HOT, 1);
+        put("recent-transaction", TIER_HOT, 1);
+        // Warm: read on most blocks but small or slowly changing
+        put("witness", TIER_WARM, 0.5);
+        put("votes", TIER_WARM, 0.5);
+        put("delegation", TIER_WARM, 1);
+        put("DelegatedResource", TIER_WARM, 1);
+        put("asset-issue-v2", TIER_WARM, 0.5);
+        // Cold: append-mostly history and indexes, read only by API lookups
+        put("block", TIER_COLD, 1);
+        put("trans", TIER_COLD, 1);
+        put("transactionHistoryStore", TIER_COLD, 1);
+        put("transactionRetStore", TIER_COLD, 0.5);
+        put("block-index", TIER_COLD, 0.5);
+        put("account-index", TIER_COLD, 0.25);
+        put("accountid-index", TIER_COLD, 0.25);
+    }
+
+    private void put(String name, String tier, double weight) {
+        entries.put(name, new Entry(name, tier, weight));
+    }
+
+    /**
+     * Apply a profile file. Lines are "name = tier:weight"; the special key "cacheBudgetMB" replaces the budget.
+     * Names must be java-tron databases (KNOWN_DATABASES), so a misspelled name is not silently ignored.
+     * Throws IllegalArgumentException naming the offending line.
+     */
+    public void load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        for (String name : new TreeSet<>(props.stringPropertyNames())) {
+            String value = props.getProperty(name).trim();
+            if ("cacheBudgetMB".equals(name)) {
+                try {
+                    cacheBudgetBytes = Long.parseLong(value) * 1024L * 1024L;
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("cacheBudgetMB must be a number of MB: " + value);
+                }
+                continue;
+            }
+            if (!KNOWN_DATABASES.contains(name)) {
+                throw new IllegalArgumentException(name + " = " + value + ": unknown database; expected one of "
+                    + String.join(", ", KNOWN_DATABASES));
+            }
+            String[] parts = value.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(name + " = " + value + ": expected tier:weight, e.g. hot:4");
+            }
+            String tier = parts[0].trim();
+            if (!TIER_HOT.equals(tier) && !TIER_WARM.equals(tier) && !TIER_COLD.equals(tier)) {
+                throw new IllegalArgumentException(name + " = " + value + ": tier must be hot, warm or cold");
+            }
+            double weight;
+            try {
+                weight = Double.parseDouble(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " = " + value + ": weight must be a number");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException(name + " = " + value + ": weight must not be negative");
+            }
+            if (weight == 0) {
+                entries.remove(name);
+            } else {
+                put(name, tier, weight);
+            }
+        }
+    }
+
+    public long cacheBudgetBytes() {
+        return cacheBudgetBytes;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Cache size of one database: its share of the budget by weight, at least 8MB.
+     */
+    long cacheSize(Entry entry) {
+        double totalWeight = 0;
+        for (Entry e : entries.values()) {
+            totalWeight += e.weight;
+        }
+        return Math.max(MIN_CACHE_SIZE, (long) (cacheBudgetBytes * entry.weight / totalWeight));
+    }
+
+    /**
+     * Render the entries as HOCON objects for the storage.properties list.
+     * Hot databases get small blocks for point reads, the full write buffer and the large open-file limit;
+     * cold databases get large blocks, half the write buffer and the base open-file limit.
+     */
+    public String render(long writeBufferSize, int maxOpenFiles, int maxOpenFilesM, int maxOpenFilesL, String indent) {
+        StringBuilder out = new StringBuilder(entries.size() * 160);
+        for (Entry entry : entries.values()) {
+            int blockSize;
+            long writeBuffer;
+            int openFiles;
+            if (TIER_HOT.equals(entry.tier)) {
+                blockSize = 16384;
+                writeBuffer = writeBufferSize;
+                openFiles = maxOpenFilesL;
+            } else if (TIER_WARM.equals(entry.tier)) {
+                blockSize = 32768;
+                writeBuffer = writeBufferSize / 2;
+                openFiles = maxOpenFilesM;
+            } else {
+                blockSize = 65536;
+                writeBuffer = writeBufferSize / 2;
+                openFiles = maxOpenFiles;
+            }
+            if (out.length() > 0) {
+                out.append(",\n").append(indent);
+            }
+            out.append("{\n")
+                .append(indent).append("  name = \"").append(entry.name).append("\",\n")
+                .append(indent).append("  blockSize = ").append(blockSize).append(",\n")
+                .append(indent).append("  writeBufferSize = ").append(writeBuffer).append(",\n")
+                .append(indent).append("  cacheSize = ").append(cacheSize(entry)).append(",\n")
+                .append(indent).append("  maxOpenFiles = ").append(openFiles).append('\n')
+                .append(indent).append('}');
+        }
+        return out.toString();
+    }
+}
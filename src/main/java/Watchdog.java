@@ -0,0 +1,200 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarts a FullNode whose head block stops advancing while the process stays alive.
+ * A HeadTracker polls the node; when the head has not moved for the stall window (or the API never
+ * answered within the startup grace period), a thread dump is saved to the data directory and the
+ * process is stopped so the launcher can restart it.
+ */
+public class Watchdog implements Runnable {
+    // jcmd/kill get a few seconds; a SIGQUIT dump is printed to the node's stdout, which the relay keeps
+    private static final long DUMP_TIMEOUT_SECONDS = 10;
+    private static final long SIGQUIT_DUMP_WAIT_MS = 2000;
+
+    /**
+     * Stop the stalled process. Called on the watchdog thread.
+     */
+    public interface Action {
+        void stop(Process process) throws InterruptedException;
+    }
+
+    private final Process process;
+    private final long pid;
+    private final LogRelay output;
+    private final HeadTracker tracker;
+    private final long stallMillis;
+    private final long startupGraceMillis;
+    private final long checkIntervalMillis;
+    private final Path dumpDir;
+    private final Action action;
+    private volatile boolean running = true;
+    private volatile boolean restartRequested = false;
+    private Thread thread;
+
+    public Watchdog(Process process, long pid, LogRelay output, int fullNodePort, long stallMillis,
+                    long startupGraceMillis, Path dumpDir, Action action) {
+        this.process = process;
+        this.pid = pid;
+        this.output = output;
+        this.stallMillis = stallMillis;
+        this.startupGraceMillis = startupGraceMillis;
+        // Several polls per window, so a stall is noticed well before it is twice the window old
+        this.checkIntervalMillis = Math.max(1000, Math.min(30000, stallMillis / 4));
+        this.tracker = new HeadTracker(fullNodePort, checkIntervalMillis, null);
+        this.dumpDir = dumpDir;
+        this.action = action;
+    }
+
+    public void start() {
+        tracker.start();
+        thread = new Thread(this, "watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        tracker.stop();
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * True once the watchdog has stopped the process because it stalled.
+     */
+    public boolean restartRequested() {
+        return restartRequested;
+    }
+
+    @Override
+    public void run() {
+        long started = System.currentTimeMillis();
+        while (running && process.isAlive()) {
+            try {
+                Thread.sleep(checkIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long lastProgress = tracker.lastProgressMillis();
+            String reason = null;
+            if (lastProgress < 0) {
+                if (now - started > startupGraceMillis) {
+                    reason = "no head block from the HTTP API within " + (startupGraceMillis / 1000) + "s of starting";
+                }
+            } else if (now - lastProgress > stallMillis) {
+                reason = "head block " + tracker.headNumber() + " has not advanced for " + ((now - lastProgress) / 1000) + "s";
+            }
+            if (reason == null || !running) {
+                continue;
+            }
+            System.err.println("WARNING: FullNode stalled: " + reason + ", restarting it");
+            System.err.flush();
+            dumpThreads();
+            restartRequested = true;
+            tracker.stop();
+            try {
+                action.stop(process);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+    }
+
+    /**
+     * Save a thread dump of the node: jcmd when the image has it, otherwise SIGQUIT, which makes the JVM
+     * print the dump to its stdout; the relay's tail then holds it.
+     */
+    private void dumpThreads() {
+        if (pid <= 0) {
+            System.err.println("Warning: unknown FullNode PID, no thread dump taken");
+            return;
+        }
+        Path file = dumpDir.resolve("threaddump-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date()) + ".txt");
+        try {
+            if (run(file, "jcmd", String.valueOf(pid), "Thread.print")) {
+                System.err.println("Thread dump written to " + file);
+                return;
+            }
+            if (run(null, "kill", "-QUIT", String.valueOf(pid))) {
+                Thread.sleep(SIGQUIT_DUMP_WAIT_MS);
+                Files.write(file, output.tail().getBytes(StandardCharsets.UTF_8));
+                System.err.println("Thread dump (with the last output of FullNode) written to " + file);
+                return;
+            }
+            System.err.println("Warning: no thread dump taken, neither jcmd nor kill is available in the image");
+        } catch (IOException e) {
+            System.err.println("Warning: could not write thread dump: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a command, writing its output to file (or discarding it). Returns false if it is missing or fails.
+     */
+    private static boolean run(Path file, String... command) throws InterruptedException {
+        ProcessBuilder pb = JvmOptions.withoutToolOptions(new ProcessBuilder(command)).redirectErrorStream(true);
+        pb.redirectOutput(file != null ? ProcessBuilder.Redirect.to(file.toFile()) : ProcessBuilder.Redirect.INHERIT);
+        try {
+            Process p = pb.start();
+            if (!p.waitFor(DUMP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return false;
+            }
+            if (p.exitValue() != 0 && file != null) {
+                Files.deleteIfExists(file);
+            }
+            return p.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restart history for the backoff and the crash-loop circuit breaker:
+     * the n-th restart within the window waits baseDelay * 2^(n-1), up to maxDelay,
+     * and more than maxRestarts within the window opens the circuit.
+     */
+    public static class RestartBudget {
+        private final int maxRestarts;
+        private final long windowMillis;
+        private final long baseDelayMillis;
+        private final long maxDelayMillis;
+        private final Deque<Long> restarts = new ArrayDeque<>();
+
+        public RestartBudget(int maxRestarts, long windowMillis, long baseDelayMillis, long maxDelayMillis) {
+            this.maxRestarts = maxRestarts;
+            this.windowMillis = windowMillis;
+            this.baseDelayMillis = baseDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+        }
+
+        /**
+         * Record a restart at now. Returns the delay before restarting, or -1 if the circuit is open.
+         */
+        public long record(long now) {
+            while (!restarts.isEmpty() && now - restarts.peekFirst() > windowMillis) {
+                restarts.removeFirst();
+            }
+            restarts.addLast(now);
+            int n = restarts.size();
+            if (n > maxRestarts) {
+                return -1;
+            }
+            return Math.min(maxDelayMillis, baseDelayMillis << Math.min(n - 1, 20));
+        }
+
+        public int count() {
+            return restarts.size();
+        }
+    }
+}
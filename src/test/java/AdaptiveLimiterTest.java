@@ -0,0 +1,135 @@
+public class AdaptiveLimiterTest {
+    private static final long MS = 1000000L;
+
+    /**
+     * A limiter with a 100ms latency target, starting at (min + max) / 2; never started, so adjust is driven by hand.
+     */
+    private static AdaptiveLimiter limiter(int min, int max) {
+        return new AdaptiveLimiter(8090, min, max, 100, 5);
+    }
+
+    /**
+     * Take n slots and release them with the given latency.
+     */
+    private static void calls(AdaptiveLimiter limiter, int n, long latencyNanos) throws InterruptedException {
+        for (int i = 0; i < n; i++) {
+            Check.isTrue(limiter.acquire(0), "no free slot for call " + i);
+        }
+        for (int i = 0; i < n; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    public static void testStartsBetweenMinAndMax() {
+        Check.equal(34, limiter(4, 64).limit());
+        Check.equal(8, limiter(8, 8).limit());
+    }
+
+    public static void testGrowsByOneWhenSaturated() throws InterruptedException {
+        AdaptiveLimiter limiter = limiter(4, 12);
+        calls(limiter, 8, 10 * MS);
+        limiter.adjust(false);
+        Check.equal(9, limiter.limit());
+        // Below the limit: no reason to grow
+        calls(limiter, 5, 10 * MS);
+        limiter.adjust(false);
+        Check.equal(9, limiter.limit());
+    }
+
+    public static void testShrinksByAQuarterWhenSlowOrLagging() throws InterruptedException {
+        AdaptiveLimiter limiter = limiter(4, 60);
+        calls(limiter, 2, 150 * MS);
+        limiter.adjust(false);
+        Check.equal(24, limiter.limit());
+        // Lag cuts the limit even when calls are fast and the limit was reached
+        calls(limiter, 24, 10 * MS);
+        limiter.adjust(true);
+        Check.equal(18, limiter.limit());
+    }
+
+    public static void testAverageLatencyDecides() throws InterruptedException {
+        AdaptiveLimiter limiter = limiter(4, 60);
+        calls(limiter, 3, 10 * MS);
+        calls(limiter, 1, 250 * MS);
+        // Average 70ms is under the 100ms target
+        limiter.adjust(false);
+        Check.equal(32, limiter.limit());
+    }
+
+    public static void testClampedToMinAndMax() throws InterruptedException {
+        AdaptiveLimiter limiter = limiter(4, 6);
+        for (int i = 0; i < 5; i++) {
+            limiter.adjust(true);
+        }
+        Check.equal(4, limiter.limit());
+        for (int i = 0; i < 5; i++) {
+            calls(limiter, limiter.limit(), 10 * MS);
+            limiter.adjust(false);
+        }
+        Check.equal(6, limiter.limit());
+    }
+
+    public static void testRejectsWhenFull() throws InterruptedException {
+        AdaptiveLimiter limiter = limiter(2, 2);
+        Check.isTrue(limiter.acquire(0), "first slot");
+        Check.isTrue(limiter.acquire(0), "second slot");
+        Check.isTrue(!limiter.acquire(10), "acquired past the limit");
+        limiter.release(MS);
+        Check.isTrue(limiter.acquire(0), "slot not freed by release");
+    }
+
+    /**
+     * One interval of a model node with 8 worker slots and 20ms calls, loaded by 100 clients that always have a
+     * call to make: every client that gets a slot makes one call, and above 8 concurrent calls they queue, so
+     * latency grows with concurrency. Returns the number of calls made.
+     */
+    private static int modelInterval(AdaptiveLimiter limiter, boolean lagging) throws InterruptedException {
+        int admitted = 0;
+        for (int client = 0; client < 100; client++) {
+            if (limiter.acquire(0)) {
+                admitted++;
+            }
+        }
+        long latencyNanos = 20 * MS * Math.max(8, admitted) / 8;
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(latencyNanos);
+        }
+        limiter.adjust(lagging);
+        return admitted;
+    }
+
+    public static void testSettlesAndRecoversOnModelNode() throws InterruptedException {
+        // 50ms target: the node keeps up to 20 concurrent calls (8 slots * 50ms / 20ms) within it
+        AdaptiveLimiter limiter = new AdaptiveLimiter(8090, 2, 64, 50, 5);
+        for (int i = 0; i < 20; i++) {
+            modelInterval(limiter, false);
+        }
+        int low = Integer.MAX_VALUE;
+        int high = 0;
+        for (int i = 0; i < 200; i++) {
+            // Of the 100 clients, exactly limit get a slot
+            int limit = limiter.limit();
+            Check.equal(limit, modelInterval(limiter, false));
+            low = Math.min(low, limiter.limit());
+            high = Math.max(high, limiter.limit());
+        }
+        // A sawtooth at the knee: grows to one past 20, where latency exceeds the target, then is cut by a quarter
+        Check.equal(21, high);
+        Check.equal(15, low);
+
+        // The head falling behind cuts the limit whatever the latency
+        for (int i = 0; i < 5; i++) {
+            modelInterval(limiter, true);
+        }
+        Check.isTrue(limiter.limit() <= 5, "limit " + limiter.limit() + " after lag");
+        int intervals = 0;
+        while (limiter.limit() < 15) {
+            modelInterval(limiter, false);
+            Check.isTrue(++intervals <= 20, "limit " + limiter.limit() + " did not recover");
+        }
+        for (int i = 0; i < 50; i++) {
+            modelInterval(limiter, false);
+            Check.isTrue(limiter.limit() >= 15 && limiter.limit() <= 21, "limit " + limiter.limit() + " after recovery");
+        }
+    }
+}
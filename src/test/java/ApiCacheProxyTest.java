@@ -0,0 +1,157 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ApiCacheProxyTest {
+    /**
+     * A fake FullNode HTTP port that counts calls per path and answers with the body set for the path,
+     * or echoes the request body padded to 300 bytes.
+     */
+    private static final class Upstream implements Closeable {
+        final HttpServer server;
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final Map<String, String> bodies = new ConcurrentHashMap<>();
+
+        Upstream() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+                String request = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                String body = bodies.get(path);
+                if (body == null) {
+                    StringBuilder padded = new StringBuilder("{\"echo\":\"" + request.replace("\"", "'") + "\"");
+                    while (padded.length() < 299) {
+                        padded.append(' ');
+                    }
+                    body = padded.append('}').toString();
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        int calls(String path) {
+            AtomicInteger n = calls.get(path);
+            return n == null ? 0 : n.get();
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * POST body to the proxy and return the X-Cache header.
+     */
+    private static String post(int port, String path, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        Check.equal(200, conn.getResponseCode());
+        try (InputStream in = conn.getInputStream()) {
+            readAll(in);
+        }
+        return conn.getHeaderField("X-Cache");
+    }
+
+    private interface ProxyBody {
+        void run(Upstream upstream, int port) throws Exception;
+    }
+
+    private static void withProxy(long maxBytes, ProxyBody body) throws Exception {
+        try (Upstream upstream = new Upstream()) {
+            int port = freePort();
+            ApiCacheProxy proxy = new ApiCacheProxy(port, upstream.port(), maxBytes, 2);
+            proxy.start();
+            try {
+                body.run(upstream, port);
+            } finally {
+                proxy.stop();
+            }
+        }
+    }
+
+    public static void testCachesHotReads() throws Exception {
+        withProxy(1024 * 1024, (upstream, port) -> {
+            String account = "{\"address\":\"TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t\",\"visible\":true}";
+            Check.equal("MISS", post(port, "/wallet/getaccount", account));
+            Check.equal("HIT", post(port, "/wallet/getaccount", account));
+            Check.equal(1, upstream.calls("/wallet/getaccount"));
+            // The request body is part of the key
+            Check.equal("MISS", post(port, "/wallet/getaccount", account.replace("true", "false")));
+            Check.equal(2, upstream.calls("/wallet/getaccount"));
+        });
+    }
+
+    public static void testPassesThroughOtherEndpoints() throws Exception {
+        withProxy(1024 * 1024, (upstream, port) -> {
+            Check.equal("PASS", post(port, "/wallet/broadcasttransaction", "{}"));
+            Check.equal("PASS", post(port, "/wallet/broadcasttransaction", "{}"));
+            Check.equal(2, upstream.calls("/wallet/broadcasttransaction"));
+        });
+    }
+
+    public static void testErrorsAndEmptyResponsesAreNotCached() throws Exception {
+        withProxy(1024 * 1024, (upstream, port) -> {
+            upstream.bodies.put("/wallet/getaccount", "{}");
+            upstream.bodies.put("/wallet/getblockbynum", "{\"Error\":\"class java.lang.NullPointerException : null\"}");
+            Check.equal("MISS", post(port, "/wallet/getaccount", "{\"address\":\"41a614f803b6fd780986a42c78ec9c7f77e6ded13c\"}"));
+            Check.equal("MISS", post(port, "/wallet/getaccount", "{\"address\":\"41a614f803b6fd780986a42c78ec9c7f77e6ded13c\"}"));
+            Check.equal("MISS", post(port, "/wallet/getblockbynum", "{\"num\":1}"));
+            Check.equal("MISS", post(port, "/wallet/getblockbynum", "{\"num\":1}"));
+            Check.equal(2, upstream.calls("/wallet/getaccount"));
+            Check.equal(2, upstream.calls("/wallet/getblockbynum"));
+        });
+    }
+
+    public static void testEvictsLeastRecentlyUsed() throws Exception {
+        // Entries are about 556 bytes, so 8KB holds 14 of them
+        withProxy(8 * 1024, (upstream, port) -> {
+            for (int i = 0; i < 20; i++) {
+                Check.equal("MISS", post(port, "/wallet/getaccount", "{\"n\":" + i + "}"));
+                // Keep the first entry recently used
+                Check.equal("HIT", post(port, "/wallet/getaccount", "{\"n\":0}"));
+            }
+            Check.equal("HIT", post(port, "/wallet/getaccount", "{\"n\":19}"));
+            Check.equal("MISS", post(port, "/wallet/getaccount", "{\"n\":1}"));
+        });
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Objects;
+
+/**
+ * Assertions for the launcher's unit checks. A failed check throws AssertionError.
+ */
+public class Check {
+    private Check() {
+    }
+
+    public static void equal(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError("expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void equal(double expected, double actual, double tolerance) {
+        if (Math.abs(expected - actual) > tolerance) {
+            throw new AssertionError("expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void isTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public interface Body {
+        void run() throws Exception;
+    }
+
+    /**
+     * body must throw an exception of the given type; returns it so the message can be checked.
+     */
+    public static <T extends Throwable> T fails(Class<T> type, Body body) {
+        try {
+            body.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError("expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError("expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}
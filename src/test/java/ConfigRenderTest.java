@@ -0,0 +1,166 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class ConfigRenderTest {
+    private static final String[] NETWORKS = {"mainnet", "nile"};
+
+    /**
+     * Settings that change the rendered config, each with a line it must produce (or remove, with a leading -,
+     * for the settings that turn generated entries off). Lines are compared without whitespace.
+     */
+    private static final String[][] SETTINGS = {
+        {"P2P_PORT=19888", "listen.port = 19888"},
+        {"FULL_NODE_PORT=18090", "fullNodePort = 18090"},
+        {"SOLIDITY_NODE_PORT=18091", "solidityPort = 18091"},
+        {"VM_MAX_TIME_RATIO=7.5", "maxTimeRatio = 7.5"},
+        {"SYNC_PROFILE=steady", "level0FileNumCompactionTrigger = 2"},
+        {"DB_SYNC=true", "db.sync = true,"},
+        {"DB_ENGINE=ROCKSDB", "db.engine = \"ROCKSDB\","},
+        {"DISK_CLASS=hdd", "targetFileSizeBase = 256"},
+        {"STORAGE_PER_DB_PROPERTIES=false", "-name = \"account\","},
+        {"RATE_LIMIT_PER_API=false", "-component = \"EstimateEnergyServlet\","},
+        {"EVENT_PLUGIN_KAFKA_SERVER=broker:29092", "server = \"broker:29092\""},
+        {"EVENT_PLUGIN_PATH=/plugins/plugin-kafka-2.0.0.zip", "path = \"/plugins/plugin-kafka-2.0.0.zip\""},
+        {"EVENT_PLUGIN_ADDRESS_FILTER=TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t", "\"TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t\""},
+        {"EVENT_PLUGIN_TOPIC_FILTER=ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef",
+            "\"ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef\""},
+    };
+
+    private static String config(String network) {
+        return "configs/" + network + "_config.conf";
+    }
+
+    /**
+     * text without whitespace and without # and // comment lines, so commented samples do not match.
+     */
+    private static String squeeze(String text) {
+        return text.replaceAll("(?m)^[ \t]*(#|//).*\n", "").replaceAll("[ \t]+", "");
+    }
+
+    /**
+     * The body of the trigger block named name, up to its closing brace.
+     */
+    static String trigger(String config, String name) {
+        int start = config.indexOf("triggerName = \"" + name + "\"");
+        Check.isTrue(start >= 0, "no " + name + " trigger");
+        return config.substring(start, config.indexOf('}', start));
+    }
+
+    private static Fixtures.PlanRun plan(String network, String... values) throws Exception {
+        List<String> args = new ArrayList<>(Arrays.asList(values));
+        args.add("NETWORK=" + network);
+        Fixtures.PlanRun run = Fixtures.plan(config(network), args.toArray(new String[0]));
+        Check.isTrue(run.exitCode == 0, network + ": launcher failed: " + run.stderr);
+        for (String line : run.stderr.split("\n")) {
+            Check.isTrue(!line.contains("config template has no"), network + ": " + line);
+        }
+        return run;
+    }
+
+    public static void testEveryPlaceholderIsUsedOnEveryNetwork() throws Exception {
+        for (String network : NETWORKS) {
+            Set<String> template = ConfigTemplate.parse(
+                new String(Files.readAllBytes(Paths.get(config(network))), StandardCharsets.UTF_8)).placeholders();
+            @SuppressWarnings("unchecked")
+            Set<String> values = ((Map<String, Object>) plan(network).report.get("placeholders")).keySet();
+            Set<String> unresolved = new TreeSet<>(template);
+            unresolved.removeAll(values);
+            Set<String> unused = new TreeSet<>(values);
+            unused.removeAll(template);
+            Check.equal(network + " unresolved: []", network + " unresolved: " + unresolved);
+            Check.equal(network + " unused: []", network + " unused: " + unused);
+        }
+    }
+
+    public static void testEverySettingTakesEffectOnEveryNetwork() throws Exception {
+        // The EVENT_PLUGIN_* settings only apply with event subscription enabled
+        String[] values = new String[SETTINGS.length + 1];
+        for (int i = 0; i < SETTINGS.length; i++) {
+            values[i] = SETTINGS[i][0];
+        }
+        values[SETTINGS.length] = "EVENT_PLUGIN_ENABLED=true";
+        for (String network : NETWORKS) {
+            String defaults = squeeze(plan(network).config());
+            String configured = squeeze(plan(network, values).config());
+            for (String[] setting : SETTINGS) {
+                boolean removes = setting[1].startsWith("-");
+                String line = squeeze(removes ? setting[1].substring(1) : setting[1]);
+                Check.isTrue(defaults.contains(line) == removes, network + " " + setting[0] + ": default already renders " + setting[1]);
+                Check.isTrue(configured.contains(line) != removes, network + " " + setting[0] + ": not rendered as " + setting[1]);
+            }
+        }
+    }
+
+    public static void testCommandFlagsOnEveryNetwork() throws Exception {
+        for (String network : NETWORKS) {
+            List<?> defaults = (List<?>) plan(network).report.get("command");
+            List<?> configured = (List<?>) plan(network, "WITNESS_MODE=true", "EVENT_PLUGIN_ENABLED=true",
+                "EVENT_PLUGIN_TYPE=native").report.get("command");
+            Check.isTrue(!defaults.contains("--witness") && !defaults.contains("--es"), network + ": " + defaults);
+            Check.isTrue(configured.contains("--witness"), network + ": WITNESS_MODE has no effect");
+            Check.isTrue(configured.contains("--es"), network + ": EVENT_PLUGIN_ENABLED has no effect");
+        }
+    }
+
+    public static void testSolidifiedOnlyOnEveryNetwork() throws Exception {
+        for (String network : NETWORKS) {
+            String config = plan(network, "EVENT_PLUGIN_ENABLED=true", "EVENT_PLUGIN_TYPE=native",
+                "EVENT_PLUGIN_CONTRACTEVENT_TRIGGER_ENABLED=true", "EVENT_PLUGIN_CONTRACTLOG_TRIGGER_ENABLED=true",
+                "EVENT_PLUGIN_SOLIDIFIED_ONLY=true").config();
+            Check.isTrue(trigger(config, "block").contains("solidified = true"), network + ": block trigger not solidified");
+            Check.isTrue(trigger(config, "transaction").contains("solidified = true"), network + ": transaction trigger not solidified");
+            Check.isTrue(trigger(config, "contractevent").contains("enable = false"), network + ": contractevent still enabled");
+            Check.isTrue(trigger(config, "contractlog").contains("enable = false"), network + ": contractlog still enabled");
+            Check.isTrue(trigger(config, "solidityevent").contains("enable = true"), network + ": solidityevent not enabled");
+            Check.isTrue(trigger(config, "soliditylog").contains("enable = true"), network + ": soliditylog not enabled");
+
+            String defaults = plan(network, "EVENT_PLUGIN_ENABLED=true", "EVENT_PLUGIN_TYPE=native").config();
+            Check.isTrue(trigger(defaults, "block").contains("solidified = false"), network + ": block trigger solidified by default");
+            Check.isTrue(trigger(defaults, "transaction").contains("solidified = false"), network + ": transaction trigger solidified by default");
+        }
+    }
+
+    public static void testSolidityPortsOnEveryNetwork() throws Exception {
+        for (String network : NETWORKS) {
+            String config = squeeze(plan(network, "SOLIDITY_NODE_PORT=18091").config());
+            Check.isTrue(config.contains("solidityPort=18091\n"), network + ": no http solidityPort");
+            Check.isTrue(config.contains("httpSolidityPort=8555\n"), network + ": no jsonrpc httpSolidityPort");
+        }
+    }
+
+    public static void testNativeQueueOnEveryNetwork() throws Exception {
+        for (String network : NETWORKS) {
+            String defaults = squeeze(plan(network).config());
+            Check.isTrue(defaults.contains("useNativeQueue=false"), network + ": native queue on by default");
+
+            Fixtures.PlanRun run = plan(network, "EVENT_NATIVE_QUEUE=true", "EVENT_NATIVE_QUEUE_PORT=5600",
+                "EVENT_NATIVE_QUEUE_LENGTH=4321");
+            String config = squeeze(run.config());
+            Check.isTrue(config.contains("useNativeQueue=true"), network + ": useNativeQueue not set");
+            Check.isTrue(config.contains("bindport=5600"), network + ": bindport not set");
+            Check.isTrue(config.contains("sendqueuelength=4321"), network + ": sendqueuelength not set");
+            Check.isTrue(((List<?>) run.report.get("command")).contains("--es"), network + ": event service not enabled");
+
+            // Without an override the length is sized from memory and triggers, within 1000..200000
+            String sized = squeeze(plan(network, "EVENT_NATIVE_QUEUE=true").config());
+            int start = sized.indexOf("sendqueuelength=") + "sendqueuelength=".length();
+            int end = start;
+            while (Character.isDigit(sized.charAt(end))) {
+                end++;
+            }
+            long length = Long.parseLong(sized.substring(start, end));
+            Check.isTrue(length >= 1000 && length <= 200000, network + ": sendqueuelength " + length);
+        }
+    }
+
+    public static void testNativeQueueRejectsOtherPluginTypes() throws Exception {
+        Fixtures.PlanRun conflict = Fixtures.plan(config("mainnet"), "EVENT_NATIVE_QUEUE=true", "EVENT_PLUGIN_TYPE=kafka");
+        Check.equal(1, conflict.exitCode);
+        Check.isTrue(conflict.stderr.contains("EVENT_NATIVE_QUEUE=true conflicts with EVENT_PLUGIN_TYPE=kafka"), conflict.stderr);
+        Check.equal(0, Fixtures.plan(config("mainnet"), "EVENT_NATIVE_QUEUE=true", "EVENT_PLUGIN_TYPE=native").exitCode);
+        Fixtures.PlanRun badPort = Fixtures.plan(config("mainnet"), "EVENT_NATIVE_QUEUE=true", "EVENT_NATIVE_QUEUE_PORT=70000");
+        Check.equal(1, badPort.exitCode);
+        Check.isTrue(badPort.stderr.contains("Invalid EVENT_NATIVE_QUEUE_PORT: 70000"), badPort.stderr);
+    }
+}
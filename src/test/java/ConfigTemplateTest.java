@@ -0,0 +1,53 @@
+import java.util.*;
+
+public class ConfigTemplateTest {
+    private static Map<String, String> values(String... pairs) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            values.put(pairs[i], pairs[i + 1]);
+        }
+        return values;
+    }
+
+    public static void testRendersEveryPlaceholder() {
+        ConfigTemplate template = ConfigTemplate.parse("port = {PORT}\nhost = \"{HOST}\"\nbackup = {PORT}\n");
+        Check.equal("port = 18888\nhost = \"0.0.0.0\"\nbackup = 18888\n",
+            template.render(values("{PORT}", "18888", "{HOST}", "0.0.0.0")));
+    }
+
+    public static void testPlaceholdersInTemplateOrder() {
+        ConfigTemplate template = ConfigTemplate.parse("{B_2} {A} {B_2} {C}");
+        Check.equal(Arrays.asList("{B_2}", "{A}", "{C}"), new ArrayList<>(template.placeholders()));
+        Check.isTrue(template.hasPlaceholders(), "placeholders not found");
+    }
+
+    public static void testOnlyUpperCaseNamesArePlaceholders() {
+        // HOCON objects and lower-case braces are literal text
+        String text = "node { listen.port = 18888 }\nx = {lower}\ny = {1ABC}\nz = {OPEN\n";
+        ConfigTemplate template = ConfigTemplate.parse(text);
+        Check.isTrue(!template.hasPlaceholders(), "literal braces parsed as placeholders");
+        Check.equal(text, template.render(Collections.<String, String>emptyMap()));
+    }
+
+    public static void testUnresolvedPlaceholdersAreListed() {
+        ConfigTemplate template = ConfigTemplate.parse("a = {A}\nb = {B}\nc = {C}\nb2 = {B}\n");
+        IllegalStateException e = Check.fails(IllegalStateException.class, () -> template.render(values("{A}", "1")));
+        Check.equal("Unresolved config placeholders: {B}, {C}", e.getMessage());
+    }
+
+    public static void testOmitLineRemovesWholeLine() {
+        ConfigTemplate template = ConfigTemplate.parse("a = 1\n  b = {B} # {NOTE}\nc = {C}\n");
+        Check.equal("a = 1\nc = 3\n",
+            template.render(values("{B}", ConfigTemplate.OMIT_LINE, "{NOTE}", "x", "{C}", "3")));
+    }
+
+    public static void testOmitLineOnFirstAndLastLine() {
+        ConfigTemplate template = ConfigTemplate.parse("{A}\nmiddle\nlast = {B}");
+        Check.equal("middle\n", template.render(values("{A}", ConfigTemplate.OMIT_LINE, "{B}", ConfigTemplate.OMIT_LINE)));
+    }
+
+    public static void testOmitLineIsComparedByIdentity() {
+        ConfigTemplate template = ConfigTemplate.parse("a = {A}\n");
+        Check.equal("a = <omit line>\n", template.render(values("{A}", new String("<omit line>"))));
+    }
+}
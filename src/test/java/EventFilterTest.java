@@ -0,0 +1,101 @@
+import java.nio.file.Path;
+
+public class EventFilterTest {
+    private static final String USDT = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+    private static final String USDT_HEX = "a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+    private static final String TRANSFER = "ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+
+    public static void testCanonicalizesAddressesToBase58() {
+        EventFilter filter = new EventFilter();
+        Check.equal(USDT, filter.canonicalAddress(USDT));
+        Check.equal(USDT, filter.canonicalAddress("41" + USDT_HEX));
+        Check.equal(USDT, filter.canonicalAddress("0x" + USDT_HEX));
+        Check.equal(USDT, filter.canonicalAddress("0X" + USDT_HEX.toUpperCase()));
+    }
+
+    public static void testRejectsInvalidAddresses() {
+        EventFilter filter = new EventFilter();
+        IllegalArgumentException e = Check.fails(IllegalArgumentException.class,
+            () -> filter.canonicalAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6u"));
+        Check.equal("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6u: base58 checksum mismatch", e.getMessage());
+        // 0 is not in the base58 alphabet
+        Check.fails(IllegalArgumentException.class, () -> filter.canonicalAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj60"));
+        Check.fails(IllegalArgumentException.class, () -> filter.canonicalAddress("42" + USDT_HEX));
+        Check.fails(IllegalArgumentException.class, () -> filter.canonicalAddress(USDT_HEX));
+        Check.fails(IllegalArgumentException.class, () -> filter.canonicalAddress("0x" + USDT_HEX.substring(2) + "zz"));
+    }
+
+    public static void testCanonicalizesTopics() {
+        Check.equal(TRANSFER, EventFilter.canonicalTopic("0x" + TRANSFER.toUpperCase()));
+        Check.equal(TRANSFER, EventFilter.canonicalTopic(TRANSFER));
+        Check.fails(IllegalArgumentException.class, () -> EventFilter.canonicalTopic(TRANSFER.substring(2)));
+        Check.fails(IllegalArgumentException.class, () -> EventFilter.canonicalTopic("Transfer(address,address,uint256)"));
+    }
+
+    public static void testDropsDuplicatesInAnyForm() {
+        EventFilter filter = new EventFilter();
+        filter.addAddress(USDT);
+        filter.addAddress("41" + USDT_HEX);
+        filter.addAddress("0x" + USDT_HEX);
+        filter.addTopic(TRANSFER);
+        filter.addTopic("0x" + TRANSFER);
+        Check.equal(1, filter.addressCount());
+        Check.equal(1, filter.topicCount());
+        Check.equal(3, filter.duplicates());
+        Check.equal("\"" + USDT + "\"", filter.renderAddresses("  "));
+    }
+
+    public static void testBlockRange() {
+        EventFilter filter = new EventFilter();
+        filter.setRange("earliest", "latest");
+        Check.equal("\"earliest\"", filter.fromBlock());
+        filter.setRange("100", "100");
+        Check.equal("\"100\"", filter.toBlock());
+        Check.equal("fromblock 200 is after toblock 100",
+            Check.fails(IllegalArgumentException.class, () -> filter.setRange("200", "100")).getMessage());
+        Check.fails(IllegalArgumentException.class, () -> filter.setRange("latest", ""));
+        Check.fails(IllegalArgumentException.class, () -> filter.setRange("", "-1"));
+    }
+
+    public static void testLoadsFilterFile() throws Exception {
+        Path file = Fixtures.write(Fixtures.tempDir(), "filter.txt", "# USDT\n"
+            + USDT + "\n"
+            + "  0x" + USDT_HEX + "  # same contract\n"
+            + "\n"
+            + TRANSFER + "\n"
+            + "fromblock = \"1000\"\n"
+            + "toblock = latest\n");
+        EventFilter filter = new EventFilter();
+        filter.load(file);
+        Check.equal(1, filter.addressCount());
+        Check.equal(1, filter.topicCount());
+        Check.equal(1, filter.duplicates());
+        Check.equal("\"1000\"", filter.fromBlock());
+        Check.equal("\"latest\"", filter.toBlock());
+    }
+
+    public static void testLoadNamesOffendingLine() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Path badAddress = Fixtures.write(dir, "address.txt", USDT + "\n# comment\nTnotAnAddress\n");
+        Check.equal("line 3: TnotAnAddress: not a TRON address (T... base58, 41... or 0x... hex)",
+            Check.fails(IllegalArgumentException.class, () -> new EventFilter().load(badAddress)).getMessage());
+        Path badSetting = Fixtures.write(dir, "setting.txt", "fromblock = 1\nfrom = 2\n");
+        Check.equal("line 2: from: unknown setting; expected fromblock or toblock",
+            Check.fails(IllegalArgumentException.class, () -> new EventFilter().load(badSetting)).getMessage());
+    }
+
+    public static void testRendersLargeSetsCompactly() {
+        EventFilter filter = new EventFilter();
+        Check.equal("\"\"", filter.renderAddresses("  "));
+        for (int i = 0; i < EventFilter.COMPACT_THRESHOLD; i++) {
+            filter.addAddress(String.format("41%040x", i + 1));
+        }
+        Check.equal(EventFilter.COMPACT_THRESHOLD, filter.renderAddresses("  ").split("\n").length);
+        filter.addAddress(String.format("41%040x", 0));
+        String rendered = filter.renderAddresses("  ");
+        String[] lines = rendered.split("\n");
+        Check.equal((EventFilter.COMPACT_THRESHOLD + 1 + 7) / 8, lines.length);
+        Check.isTrue(lines[1].startsWith("  \"T"), "continuation lines are not indented: " + lines[1]);
+        Check.isTrue(lines[0].endsWith(","), "lines are not comma-separated: " + lines[0]);
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class EventPluginBundleTest {
+    private static final String KAFKA_CLASS = "org.tron.eventplugin.KafkaLogFilePlugin";
+
+    /**
+     * Zip entries given as name, content pairs; content null for an empty entry.
+     */
+    private static byte[] zip(Object... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                Object content = entries[i + 1];
+                if (content instanceof String) {
+                    zip.write(((String) content).getBytes(StandardCharsets.UTF_8));
+                } else if (content instanceof byte[]) {
+                    zip.write((byte[]) content);
+                }
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String manifest(String id, String version, String pluginClass) {
+        StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\n");
+        if (id != null) {
+            manifest.append("Plugin-Id: ").append(id).append('\n');
+        }
+        if (version != null) {
+            manifest.append("Plugin-Version: ").append(version).append('\n');
+        }
+        if (pluginClass != null) {
+            manifest.append("Plugin-Class: ").append(pluginClass).append('\n');
+        }
+        return manifest.toString();
+    }
+
+    private static Path bundle(Path dir, String name, byte[] content) throws IOException {
+        Path path = dir.resolve(name);
+        Files.write(path, content);
+        return path;
+    }
+
+    private static String loadError(Path path, String type) {
+        return Check.fails(IllegalArgumentException.class, () -> EventPluginBundle.load(path, type)).getMessage();
+    }
+
+    public static void testFindPicksNewestVersion() throws Exception {
+        Path dir = Fixtures.tempDir();
+        for (String name : new String[] {"plugin-kafka-1.9.0.zip", "plugin-kafka-1.10.0.zip", "plugin-kafka-1.2.zip",
+                "plugin-mongodb-2.0.0.zip", "plugin-kafka-9.0.0.tar.gz"}) {
+            Fixtures.write(dir, name, "");
+        }
+        Check.equal(dir.resolve("plugin-kafka-1.10.0.zip"), EventPluginBundle.find(dir, "kafka"));
+        Check.equal(dir.resolve("plugin-mongodb-2.0.0.zip"), EventPluginBundle.find(dir, "mongodb"));
+    }
+
+    public static void testFindWithoutBundle() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Check.equal(null, EventPluginBundle.find(dir, "kafka"));
+        Check.equal(null, EventPluginBundle.find(dir.resolve("missing"), "kafka"));
+    }
+
+    public static void testLoadsBundleWithClassInClasses() throws Exception {
+        Path path = bundle(Fixtures.tempDir(), "plugin-kafka-1.0.0.zip", zip(
+            "classes/META-INF/MANIFEST.MF", manifest("kafka", "1.0.0", KAFKA_CLASS),
+            "classes/org/tron/eventplugin/KafkaLogFilePlugin.class", "cafebabe"));
+        EventPluginBundle bundle = EventPluginBundle.load(path, "kafka");
+        Check.equal("kafka", bundle.pluginId);
+        Check.equal("1.0.0", bundle.pluginVersion);
+        Check.equal(KAFKA_CLASS, bundle.pluginClass);
+    }
+
+    public static void testLoadsBundleWithClassInLibJar() throws Exception {
+        byte[] jar = zip("org/tron/eventplugin/KafkaLogFilePlugin.class", "cafebabe");
+        Path path = bundle(Fixtures.tempDir(), "plugin-kafka-1.0.0.zip", zip(
+            "META-INF/MANIFEST.MF", manifest("kafka", "1.0.0", KAFKA_CLASS),
+            "lib/other.jar", zip("org/tron/Other.class", "cafebabe"),
+            "lib/plugin-kafka.jar", jar));
+        Check.equal("kafka", EventPluginBundle.load(path, "kafka").pluginId);
+    }
+
+    public static void testRejectsBadBundles() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Path missing = dir.resolve("plugin-kafka-1.0.0.zip");
+        Check.equal(missing + " does not exist", loadError(missing, "kafka"));
+
+        Path notZip = Fixtures.write(dir, "notzip.zip", "not a zip file");
+        Check.isTrue(loadError(notZip, "kafka").contains("is not a valid zip"), "not a zip accepted");
+
+        Path noManifest = bundle(dir, "nomanifest.zip", zip("classes/Plugin.class", "cafebabe"));
+        Check.equal(noManifest + " has no META-INF/MANIFEST.MF; not a plugin bundle", loadError(noManifest, "kafka"));
+
+        Path noClass = bundle(dir, "noclass.zip", zip("META-INF/MANIFEST.MF", manifest("kafka", "1.0.0", null)));
+        Check.equal(noClass + ": the manifest must set Plugin-Id, Plugin-Version and Plugin-Class", loadError(noClass, "kafka"));
+
+        Path mongo = bundle(dir, "mongo.zip", zip(
+            "META-INF/MANIFEST.MF", manifest("mongodb", "1.0.0", "org.tron.eventplugin.MongodbLogFilePlugin"),
+            "classes/org/tron/eventplugin/MongodbLogFilePlugin.class", "cafebabe"));
+        Check.equal(mongo + " is the mongodb plugin, not kafka", loadError(mongo, "kafka"));
+
+        Path classMissing = bundle(dir, "classmissing.zip", zip(
+            "META-INF/MANIFEST.MF", manifest("kafka", "1.0.0", KAFKA_CLASS),
+            "classes/org/tron/eventplugin/Other.class", "cafebabe",
+            "lib/plugin-kafka.jar", zip("org/tron/eventplugin/Other.class", "cafebabe")));
+        Check.equal(classMissing + ": Plugin-Class " + KAFKA_CLASS + " is not in the bundle", loadError(classMissing, "kafka"));
+    }
+
+    public static void testMongoDbConfig() {
+        Check.equal("eventlog|tron|secret|2", EventPluginBundle.mongoDbConfig("eventlog", "tron", "secret", "2"));
+        Check.equal("eventlog|||2", EventPluginBundle.mongoDbConfig("eventlog", "", "", "2"));
+        for (String password : new String[] {"a|b", "a\"b", "a\\b"}) {
+            Check.fails(IllegalArgumentException.class, () -> EventPluginBundle.mongoDbConfig("eventlog", "tron", password, "2"));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Scratch files for the unit checks: fake /sys/fs/cgroup, /proc and /sys trees, profile and filter files,
+ * and launcher runs in plan mode.
+ */
+public class Fixtures {
+    private Fixtures() {
+    }
+
+    public static Path tempDir() throws IOException {
+        Path dir = Files.createTempDirectory("tron-test");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Write content to root/relative, creating parent directories. Returns the file.
+     */
+    public static Path write(Path root, String relative, String content) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    public static Path mkdirs(Path root, String relative) throws IOException {
+        return Files.createDirectories(root.resolve(relative));
+    }
+
+    /**
+     * Outcome of a launcher run in plan mode.
+     */
+    public static final class PlanRun {
+        public final int exitCode;
+        public final String stderr;
+        /** The JSON report, or null if the launcher failed */
+        public final Map<String, Object> report;
+
+        PlanRun(int exitCode, String stderr, Map<String, Object> report) {
+            this.exitCode = exitCode;
+            this.stderr = stderr;
+            this.report = report;
+        }
+
+        /**
+         * The rendered config.
+         */
+        public String config() {
+            return (String) report.get("config");
+        }
+    }
+
+    /**
+     * Run the launcher with --plan on config (relative to the working directory, the repository root or /src
+     * in the image build) with the given NAME=VALUE settings and nothing from this process' environment.
+     */
+    @SuppressWarnings("unchecked")
+    public static PlanRun plan(String config, String... values) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), "EntryPoint", "--plan", "--config=" + config));
+        command.addAll(Arrays.asList(values));
+        Path stderr = Files.createTempFile("tron-plan", ".err");
+        ProcessBuilder pb = new ProcessBuilder(command).redirectError(stderr.toFile());
+        String path = pb.environment().get("PATH");
+        pb.environment().clear();
+        if (path != null) {
+            pb.environment().put("PATH", path);
+        }
+        Process process = pb.start();
+        process.getOutputStream().close();
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                stdout.write(buffer, 0, n);
+            }
+        }
+        int exitCode = process.waitFor();
+        String errors = new String(Files.readAllBytes(stderr), StandardCharsets.UTF_8);
+        Files.delete(stderr);
+        Map<String, Object> report = exitCode == 0
+            ? (Map<String, Object>) Json.parse(new String(stdout.toByteArray(), StandardCharsets.UTF_8)) : null;
+        return new PlanRun(exitCode, errors, report);
+    }
+}
@@ -0,0 +1,67 @@
+public class GcProfileTest {
+    public static void testResolveCollector() {
+        Check.equal("g1", JvmOptions.resolveCollector("auto", 8, "g1"));
+        Check.equal("cms", JvmOptions.resolveCollector("", 8, "cms"));
+        Check.equal("parallel", JvmOptions.resolveCollector("PARALLEL", 17, "g1"));
+        Check.equal("cms", JvmOptions.resolveCollector("cms", 11, "g1"));
+        Check.equal(null, JvmOptions.resolveCollector("cms", 14, "g1"));
+        Check.equal(null, JvmOptions.resolveCollector("zgc", 11, "g1"));
+        Check.equal("zgc", JvmOptions.resolveCollector("zgc", 17, "g1"));
+        Check.equal("shenandoah", JvmOptions.resolveCollector("shenandoah", 21, "g1"));
+        Check.equal(null, JvmOptions.resolveCollector("epsilon", 21, "g1"));
+    }
+
+    public static void testForName() {
+        Check.equal("balanced", GcProfile.forName(null).name());
+        Check.equal("balanced", GcProfile.forName("").name());
+        Check.equal("low-latency", GcProfile.forName("Low-Latency").name());
+        Check.equal(null, GcProfile.forName("fast"));
+    }
+
+    public static void testDefaultCollectors() {
+        Check.equal("cms", GcProfile.forName("balanced").defaultCollector(8, 4));
+        Check.equal("g1", GcProfile.forName("balanced").defaultCollector(17, 4));
+        Check.equal("g1", GcProfile.forName("balanced").defaultCollector(8, 8));
+        Check.equal("parallel", GcProfile.forName("throughput").defaultCollector(17, 6));
+        Check.equal("g1", GcProfile.forName("throughput").defaultCollector(17, 16));
+        Check.equal("zgc", GcProfile.forName("low-latency").defaultCollector(17, 16));
+        Check.equal("g1", GcProfile.forName("low-latency").defaultCollector(11, 16));
+        Check.equal("g1", GcProfile.forName("small-footprint").defaultCollector(8, 4));
+    }
+
+    public static void testBalancedStepsByHeap() {
+        GcProfile.Settings small = GcProfile.forName("balanced").settings("g1", 8, 8, 17);
+        Check.equal(100, small.maxPauseMillis);
+        Check.equal("4m", small.regionSize);
+        Check.equal(50, small.initiatingHeapOccupancyPercent);
+        Check.equal(true, small.alwaysPreTouch);
+        GcProfile.Settings large = GcProfile.forName("balanced").settings("g1", 48, 64, 17);
+        Check.equal(250, large.maxPauseMillis);
+        Check.equal("16m", large.regionSize);
+        Check.equal(40, large.initiatingHeapOccupancyPercent);
+        Check.equal(false, large.alwaysPreTouch);
+        Check.equal(32, large.parallelThreads);
+        Check.equal(16, large.concurrentThreads);
+    }
+
+    public static void testSmallFootprintReturnsHeap() {
+        GcProfile.Settings s = GcProfile.forName("small-footprint").settings("g1", 8, 16, 17);
+        Check.equal(2, s.initialHeapGB);
+        Check.equal(false, s.alwaysPreTouch);
+        Check.equal(4, s.parallelThreads);
+        Check.isTrue(s.extraOptions.contains("-XX:G1PeriodicGCInterval=300000"), "Java 17 G1 should return idle heap");
+        Check.isTrue(!GcProfile.forName("small-footprint").settings("g1", 8, 16, 11).extraOptions.contains("G1PeriodicGCInterval"),
+            "G1PeriodicGCInterval needs Java 12");
+    }
+
+    public static void testCollectorOptions() {
+        GcProfile.Settings zgc = GcProfile.forName("low-latency").settings("zgc", 16, 8, 21);
+        Check.isTrue(JvmOptions.collectorOptions(zgc, 21).contains("-XX:+ZGenerational"), "ZGC on 21 is generational by flag");
+        Check.isTrue(!JvmOptions.collectorOptions(zgc, 23).contains("-XX:+ZGenerational"), "ZGenerational is gone from 23");
+        GcProfile.Settings g1 = GcProfile.forName("balanced").settings("g1", 16, 8, 17);
+        Check.isTrue(JvmOptions.collectorOptions(g1, 17).startsWith("-XX:+UseG1GC -XX:MaxGCPauseMillis=150 -XX:G1HeapRegionSize=8m"),
+            JvmOptions.collectorOptions(g1, 17));
+        Check.equal("", JvmOptions.compressedOopsOptions("zgc", 16));
+        Check.equal(" -XX:-UseCompressedOops -XX:-UseCompressedClassPointers", JvmOptions.compressedOopsOptions("g1", 48));
+    }
+}
@@ -0,0 +1,272 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JsonRpcProxyTest {
+    private static final String CHAIN_ID = "0x2b6653dc";
+    // Head block served on /wallet/getnowblock
+    private static final long HEAD = 0x1234;
+
+    /**
+     * A fake FullNode serving /jsonrpc and /wallet/getnowblock. JSON-RPC calls are counted per method and
+     * answered with "method:params"; methods starting with nope_ get "method not found", and calls whose
+     * first param is a number sleep that many milliseconds first.
+     */
+    private static final class Upstream implements Closeable {
+        final HttpServer server;
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        Upstream() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/wallet/getnowblock", exchange -> respond(exchange,
+                "{\"blockID\":\"00\",\"block_header\":{\"raw_data\":{\"number\":" + HEAD + ",\"timestamp\":"
+                    + System.currentTimeMillis() + "}}}"));
+            server.createContext("/jsonrpc", exchange -> {
+                Map<?, ?> request = (Map<?, ?>) Json.parse(
+                    new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8));
+                String method = (String) request.get("method");
+                calls.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+                List<?> params = (List<?>) request.get("params");
+                if (!params.isEmpty() && params.get(0) instanceof Long) {
+                    try {
+                        Thread.sleep((Long) params.get(0));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("jsonrpc", "2.0");
+                response.put("id", request.get("id"));
+                if (method.startsWith("nope_")) {
+                    Map<String, Object> error = new LinkedHashMap<>();
+                    error.put("code", -32601);
+                    error.put("message", "method not found");
+                    response.put("error", error);
+                } else {
+                    response.put("result", method + ":" + Json.compact(params));
+                }
+                respond(exchange, Json.compact(response));
+            });
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private static void respond(com.sun.net.httpserver.HttpExchange exchange, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        int calls(String method) {
+            AtomicInteger n = calls.get(method);
+            return n == null ? 0 : n.get();
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * POST body to the proxy and return the parsed response, or null for 204 No Content.
+     */
+    private static Object rpc(int port, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = conn.getResponseCode();
+        if (status == 204) {
+            return null;
+        }
+        Check.equal(200, status);
+        try (InputStream in = conn.getInputStream()) {
+            return Json.parse(new String(readAll(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String call(Object id, String method, String params) {
+        return "{\"jsonrpc\":\"2.0\"" + (id == null ? "" : ",\"id\":" + id) + ",\"method\":\"" + method
+            + "\",\"params\":" + params + "}";
+    }
+
+    private static String batch(List<String> calls) {
+        return "[" + String.join(",", calls) + "]";
+    }
+
+    private static Object result(Object response) {
+        return ((Map<?, ?>) response).get("result");
+    }
+
+    private static Object errorCode(Object response) {
+        Map<?, ?> error = (Map<?, ?>) ((Map<?, ?>) response).get("error");
+        return error == null ? null : error.get("code");
+    }
+
+    private interface ProxyBody {
+        void run(Upstream upstream, JsonRpcProxy proxy, int port) throws Exception;
+    }
+
+    private static void withProxy(int maxConcurrentPerMethod, ProxyBody body) throws Exception {
+        try (Upstream upstream = new Upstream()) {
+            int port = freePort();
+            JsonRpcProxy proxy = new JsonRpcProxy(port, upstream.port(), upstream.port(), CHAIN_ID,
+                maxConcurrentPerMethod, 16);
+            proxy.start();
+            try {
+                body.run(upstream, proxy, port);
+            } finally {
+                proxy.stop();
+            }
+        }
+    }
+
+    public static void testBatchIsAnsweredInOrder() throws Exception {
+        withProxy(16, (upstream, proxy, port) -> {
+            // Earlier calls take longer, so they complete last
+            List<String> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(call(i, "eth_getBalance", "[" + (8 - i) * 25 + ",\"" + i + "\"]"));
+            }
+            List<?> responses = (List<?>) rpc(port, batch(calls));
+            Check.equal(8, responses.size());
+            for (int i = 0; i < 8; i++) {
+                Map<?, ?> response = (Map<?, ?>) responses.get(i);
+                Check.equal((long) i, response.get("id"));
+                Check.equal("2.0", response.get("jsonrpc"));
+                Check.equal("eth_getBalance:[" + (8 - i) * 25 + ",\"" + i + "\"]", result(response));
+            }
+        });
+    }
+
+    public static void testNotificationsGetNoResponse() throws Exception {
+        withProxy(16, (upstream, proxy, port) -> {
+            Check.equal(null, rpc(port, call(null, "eth_getBalance", "[\"a\"]")));
+            Check.equal(null, rpc(port, batch(Arrays.asList(
+                call(null, "eth_getBalance", "[\"b\"]"), call(null, "eth_getBalance", "[\"c\"]")))));
+            // Notifications are still sent upstream
+            Check.equal(3, upstream.calls("eth_getBalance"));
+
+            List<?> responses = (List<?>) rpc(port, batch(Arrays.asList(
+                call(null, "eth_getBalance", "[\"d\"]"), call(7, "eth_getBalance", "[\"e\"]"))));
+            Check.equal(1, responses.size());
+            Check.equal(7L, ((Map<?, ?>) responses.get(0)).get("id"));
+        });
+    }
+
+    public static void testCollapsesIdenticalCallsInFlight() throws Exception {
+        withProxy(16, (upstream, proxy, port) -> {
+            List<String> calls = new ArrayList<>();
+            List<String> filters = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                calls.add(call(i, "eth_call", "[300,\"same\"]"));
+                filters.add(call(i, "eth_getFilterChanges", "[300,\"0x1\"]"));
+            }
+            List<?> responses = (List<?>) rpc(port, batch(calls));
+            Check.equal(1, upstream.calls("eth_call"));
+            for (Object response : responses) {
+                Check.equal("eth_call:[300,\"same\"]", result(response));
+            }
+            // Filter calls change state on the node and are always forwarded
+            Check.equal(6, ((List<?>) rpc(port, batch(filters))).size());
+            Check.equal(6, upstream.calls("eth_getFilterChanges"));
+            // Once the first call completed, the same call goes upstream again
+            rpc(port, calls.get(0));
+            Check.equal(2, upstream.calls("eth_call"));
+        });
+    }
+
+    public static void testAnswersChainIdAndBlockNumberLocally() throws Exception {
+        withProxy(16, (upstream, proxy, port) -> {
+            Check.equal(CHAIN_ID, result(rpc(port, call(1, "eth_chainId", "[]"))));
+            Check.equal(0, upstream.calls("eth_chainId"));
+
+            // eth_blockNumber is forwarded until the head tracker has seen the head
+            long deadline = System.currentTimeMillis() + 10000;
+            Object blockNumber = null;
+            while (!("0x" + Long.toHexString(HEAD)).equals(blockNumber) && System.currentTimeMillis() < deadline) {
+                blockNumber = result(rpc(port, call(2, "eth_blockNumber", "[]")));
+                Thread.sleep(20);
+            }
+            Check.equal("0x" + Long.toHexString(HEAD), blockNumber);
+            int forwarded = upstream.calls("eth_blockNumber");
+            Check.equal("0x" + Long.toHexString(HEAD), result(rpc(port, call(3, "eth_blockNumber", "[]"))));
+            Check.equal(forwarded, upstream.calls("eth_blockNumber"));
+        });
+    }
+
+    public static void testRejectsCallsOverMethodLimit() throws Exception {
+        withProxy(2, (upstream, proxy, port) -> {
+            proxy.slotWaitMs = 200;
+            // The first answer gives eth_getLogs its own slot
+            Check.equal("eth_getLogs:[0]", result(rpc(port, call(1, "eth_getLogs", "[0]"))));
+            List<String> calls = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                calls.add(call(i, "eth_getLogs", "[1000,\"" + i + "\"]"));
+            }
+            // Another method is not held up by the busy one
+            calls.add(call(3, "eth_getBalance", "[1000]"));
+            List<?> responses = (List<?>) rpc(port, batch(calls));
+            int rejected = 0;
+            for (int i = 0; i < 3; i++) {
+                Object code = errorCode(responses.get(i));
+                if (code != null) {
+                    Check.equal(-32005L, code);
+                    rejected++;
+                }
+            }
+            Check.equal(1, rejected);
+            Check.equal("eth_getBalance:[1000]", result(responses.get(3)));
+            Check.equal(3, upstream.calls("eth_getLogs"));
+        });
+    }
+
+    public static void testUnknownMethodsGetNoSlot() throws Exception {
+        withProxy(2, (upstream, proxy, port) -> {
+            for (int i = 0; i < 5; i++) {
+                Check.equal(-32601L, errorCode(rpc(port, call(i, "nope_" + i, "[]"))));
+            }
+            Check.equal(0, proxy.methodSlots());
+            result(rpc(port, call(1, "eth_getBalance", "[]")));
+            Check.equal(1, proxy.methodSlots());
+        });
+    }
+}
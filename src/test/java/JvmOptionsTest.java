@@ -0,0 +1,48 @@
+import java.util.Arrays;
+import java.util.Collections;
+
+public class JvmOptionsTest {
+    public static void testParseJavaVersion() {
+        Check.equal(8, JvmOptions.parseJavaVersion("1.8.0_392"));
+        Check.equal(8, JvmOptions.parseJavaVersion("1.8"));
+        Check.equal(11, JvmOptions.parseJavaVersion("11.0.21"));
+        Check.equal(17, JvmOptions.parseJavaVersion(" 17.0.9 "));
+        Check.equal(21, JvmOptions.parseJavaVersion("21"));
+        Check.equal(22, JvmOptions.parseJavaVersion("22-ea"));
+        Check.equal(-1, JvmOptions.parseJavaVersion("openjdk"));
+        Check.equal(-1, JvmOptions.parseJavaVersion(""));
+        Check.equal(-1, JvmOptions.parseJavaVersion(null));
+    }
+
+    public static void testGcLogOptionsByVersion() {
+        Check.equal("-XX:+PrintGCDetails -XX:+PrintGCDateStamps -XX:+PrintGCApplicationStoppedTime -Xloggc:/data/gc.log "
+            + "-XX:+UseGCLogFileRotation -XX:NumberOfGCLogFiles=5 -XX:GCLogFileSize=20M",
+            JvmOptions.gcLogOptions(8, "/data/gc.log", 5, 20));
+        Check.equal("-Xlog:gc*,safepoint:file=/data/gc.log:time,uptime,level,tags:filecount=3,filesize=50M",
+            JvmOptions.gcLogOptions(11, "/data/gc.log", 3, 50));
+    }
+
+    public static void testAggressiveOptsOnlyBeforeJava11() {
+        Check.equal(" -XX:+AggressiveOpts", JvmOptions.aggressiveOptions(8));
+        Check.equal("", JvmOptions.aggressiveOptions(11));
+        Check.equal("", JvmOptions.aggressiveOptions(17));
+    }
+
+    public static void testOptionMismatchesIgnoresOrderAndSpacing() {
+        Check.equal(Collections.emptyList(), JvmOptions.optionMismatches("-Xms8G -Xmx8G -XX:+UseG1GC", " -XX:+UseG1GC  -Xmx8G -Xms8G"));
+    }
+
+    public static void testOptionMismatchesNamesStaleOptions() {
+        Check.equal(Arrays.asList("missing -Xmx8G", "missing -XX:+UseG1GC", "unexpected -Xmx30G", "unexpected -XX:+UseZGC"),
+            JvmOptions.optionMismatches("-Xms8G -Xmx8G -XX:+UseG1GC", "-Xms8G -Xmx30G -XX:+UseZGC"));
+        Check.equal(Arrays.asList("missing -XX:+AlwaysPreTouch"), JvmOptions.optionMismatches("-Xmx8G -XX:+AlwaysPreTouch", "-Xmx8G"));
+        Check.equal(Arrays.asList("missing -Xmx8G"), JvmOptions.optionMismatches("-Xmx8G", null));
+    }
+
+    public static void testWithoutToolOptions() {
+        ProcessBuilder pb = new ProcessBuilder("true");
+        pb.environment().put(JvmOptions.TOOL_OPTIONS_ENV, "-Xmx30G");
+        Check.isTrue(!JvmOptions.withoutToolOptions(pb).environment().containsKey(JvmOptions.TOOL_OPTIONS_ENV),
+            "JAVA_TOOL_OPTIONS must not reach child processes");
+    }
+}
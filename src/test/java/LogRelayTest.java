@@ -0,0 +1,77 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class LogRelayTest {
+    /**
+     * A channel that returns text in reads of at most chunk bytes, so markers can straddle reads.
+     */
+    private static ReadableByteChannel chunked(String text, int chunk) {
+        ByteBuffer data = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(chunk, Math.min(dst.remaining(), data.remaining()));
+                ByteBuffer slice = data.slice();
+                slice.limit(n);
+                dst.put(slice);
+                data.position(data.position() + n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    private static LogRelay relay(String text, int chunk, String marker, ByteArrayOutputStream out) {
+        LogRelay relay = new LogRelay(chunked(text, chunk), Channels.newChannel(out), null, 1024).countMarker(marker);
+        relay.run();
+        return relay;
+    }
+
+    public static void testCountsMarkerSplitAcrossReads() {
+        String text = "INFO started\nWARN Dropped trigger: queue full\nERROR dropped TRIGGER again\nINFO dropped\n";
+        for (int chunk = 1; chunk <= text.length(); chunk++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            LogRelay relay = relay(text, chunk, "dropped trigger", out);
+            Check.equal("chunk " + chunk + ": 2", "chunk " + chunk + ": " + relay.markerCount());
+            Check.equal(text, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    public static void testCountsSelfOverlappingMarker() {
+        // A partial match that fails must fall back, not restart: "aab" inside "aaab"
+        for (int chunk = 1; chunk <= 3; chunk++) {
+            Check.equal(2L, relay("xaaab aab aa", chunk, "aab", new ByteArrayOutputStream()).markerCount());
+        }
+        Check.equal(3L, relay("abababab", 3, "abab", new ByteArrayOutputStream()).markerCount());
+    }
+
+    public static void testMarkerIsCaseInsensitive() {
+        Check.equal(3L, relay("OOM oom OoM", 2, "Oom", new ByteArrayOutputStream()).markerCount());
+    }
+
+    public static void testNoMarkerNoCount() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LogRelay relay = new LogRelay(chunked("a\nb\n", 1), Channels.newChannel(out), null, 1024);
+        relay.run();
+        Check.equal(0L, relay.markerCount());
+        Check.equal(2L, relay.linesRelayed());
+        Check.equal(4L, relay.bytesRelayed());
+    }
+}
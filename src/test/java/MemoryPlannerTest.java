@@ -0,0 +1,84 @@
+import java.util.*;
+
+public class MemoryPlannerTest {
+    private static final long MB = MemoryPlanner.MB;
+    private static final long GB = MemoryPlanner.GB;
+
+    /**
+     * network, memory limit (GB), expected heap (GB), expected default database cache (MB), warning expected
+     */
+    private static final Object[][] AUTO_HEAP = {
+        {"mainnet", 8, 8, 32L, true},
+        {"mainnet", 24, 15, 64L, false},
+        {"mainnet", 50, 32, 128L, false},
+        {"mainnet", 256, 32, 2048L, false},
+        {"nile", 8, 4, 32L, true},
+        {"nile", 24, 12, 128L, false},
+        {"nile", 50, 12, 512L, false},
+        {"nile", 256, 12, 2048L, false},
+    };
+
+    private static MemoryPlanner.Plan plan(String network, int limitGB, int heapSizeGB, boolean heapOverridden) {
+        return MemoryPlanner.plan(limitGB * GB, heapSizeGB, heapOverridden, EntryPoint.minHeapSize(network),
+            EntryPoint.calculateStorageCacheSize(limitGB), 32 * MB,
+            (heap, defaultCache) -> EntryPoint.planMemoryConsumers(heap, defaultCache, 4, 4, 16 * 64 * MB));
+    }
+
+    public static void testAutoHeapByLimit() {
+        for (Object[] row : AUTO_HEAP) {
+            String network = (String) row[0];
+            int limitGB = (Integer) row[1];
+            String label = network + " " + limitGB + "GB: ";
+            MemoryPlanner.Plan plan = plan(network, limitGB, EntryPoint.calculateOptimalHeapSize(limitGB, network), false);
+            Check.equal(label + row[2] + "GB heap", label + plan.heapSizeGB + "GB heap");
+            Check.equal(label + row[3] + "MB cache", label + plan.defaultCacheBytes / MB + "MB cache");
+            Check.equal(label + "warning " + row[4], label + "warning " + (plan.warning != null));
+            Check.equal(null, plan.error);
+            Check.isTrue(plan.heapSizeGB >= EntryPoint.minHeapSize(network), label + "heap below the network minimum");
+            Check.isTrue(plan.warning != null || plan.totalBytes <= limitGB * GB, label + "plan exceeds the limit without a warning");
+        }
+    }
+
+    public static void testHeapNotReducedBelowNetworkMinimum() {
+        MemoryPlanner.Plan plan = plan("mainnet", 8, 8, false);
+        Check.equal(8, plan.heapSizeGB);
+        Check.isTrue(plan.warning.contains("minimum 8GB heap"), plan.warning);
+        Check.equal(Collections.singletonList("default database cache 128MB -> 32MB"), plan.adjustments);
+    }
+
+    public static void testHeapReducedToFit() {
+        MemoryPlanner.Plan plan = plan("mainnet", 24, 20, false);
+        Check.equal(16, plan.heapSizeGB);
+        Check.equal(Arrays.asList("default database cache 256MB -> 32MB", "heap 20GB -> 16GB"), plan.adjustments);
+        Check.isTrue(plan.totalBytes <= 24 * GB, "plan exceeds the limit");
+    }
+
+    public static void testOverriddenHeapIsRejected() {
+        MemoryPlanner.Plan plan = plan("mainnet", 24, 22, true);
+        Check.equal(22, plan.heapSizeGB);
+        Check.equal(null, plan.warning);
+        Check.isTrue(plan.error.contains("JAVA_HEAP_SIZE=22GB"), plan.error);
+    }
+
+    public static void testUnknownLimitKeepsSizes() {
+        MemoryPlanner.Plan plan = MemoryPlanner.plan(-1, 8, false, 8, 512 * MB, 32 * MB,
+            (heap, defaultCache) -> Collections.singletonList(new MemoryPlanner.Item("cache", 40 * defaultCache, "")));
+        Check.equal(8, plan.heapSizeGB);
+        Check.equal(512 * MB, plan.defaultCacheBytes);
+        Check.equal(28 * GB, plan.totalBytes);
+        Check.isTrue(plan.adjustments.isEmpty(), "adjusted without a limit");
+    }
+
+    public static void testParseSize() {
+        Check.equal(512 * MB, MemoryPlanner.parseSize("512m"));
+        Check.equal(2 * GB, MemoryPlanner.parseSize("2G"));
+        Check.equal(65536L, MemoryPlanner.parseSize("65536"));
+        Check.equal(-1L, MemoryPlanner.parseSize("lots"));
+        Check.equal(-1L, MemoryPlanner.parseSize(""));
+    }
+
+    public static void testFormat() {
+        Check.equal("512MB", MemoryPlanner.format(512 * MB));
+        Check.equal("1.5GB", MemoryPlanner.format(1536 * MB));
+    }
+}
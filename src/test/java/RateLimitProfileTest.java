@@ -0,0 +1,72 @@
+import java.nio.file.Path;
+
+public class RateLimitProfileTest {
+    /**
+     * The rendered entry for component, or null if it has none.
+     */
+    private static String entry(String rendered, String component) {
+        int start = rendered.indexOf("component = \"" + component + "\"");
+        return start < 0 ? null : rendered.substring(start, rendered.indexOf('}', start));
+    }
+
+    public static void testSplitsHttpAndGrpc() {
+        RateLimitProfile profile = new RateLimitProfile(8);
+        String http = profile.render(false, "  ");
+        String rpc = profile.render(true, "  ");
+        Check.isTrue(entry(http, "TriggerConstantContractServlet") != null, "no servlet entry in " + http);
+        Check.isTrue(!http.contains("protocol."), "gRPC method in the HTTP list");
+        Check.isTrue(entry(rpc, "protocol.Wallet/TriggerConstantContract") != null, "no gRPC entry in " + rpc);
+        Check.isTrue(entry(rpc, "protocol.WalletSolidity/EstimateEnergy") != null, "no solidity gRPC entry in " + rpc);
+        Check.isTrue(!rpc.contains("Servlet"), "servlet in the gRPC list");
+        int entries = http.split("component = ").length - 1 + rpc.split("component = ").length - 1;
+        Check.equal(profile.size(), entries);
+    }
+
+    public static void testOmitsCheapComponents() {
+        RateLimitProfile profile = new RateLimitProfile(8);
+        Check.equal(null, entry(profile.render(false, "  "), "GetNowBlockServlet"));
+        Check.equal(null, entry(profile.render(true, "  "), "protocol.Wallet/GetAccount"));
+    }
+
+    public static void testScalesWithCpuCount() {
+        Check.equal(1, new RateLimitProfile(1).expensivePermits());
+        Check.equal(1, new RateLimitProfile(7).expensivePermits());
+        Check.equal(4, new RateLimitProfile(16).expensivePermits());
+        Check.equal(10, new RateLimitProfile(0).mediumIpQps());
+        Check.equal(25, new RateLimitProfile(1).mediumIpQps());
+        Check.equal(400, new RateLimitProfile(16).mediumIpQps());
+
+        String http = new RateLimitProfile(16).render(false, "  ");
+        String expensive = entry(http, "EstimateEnergyServlet");
+        Check.isTrue(expensive.contains("strategy = \"GlobalPreemptibleAdapter\""), expensive);
+        Check.isTrue(expensive.contains("paramString = \"permit=4\""), expensive);
+        String medium = entry(http, "GetBlockByNumServlet");
+        Check.isTrue(medium.contains("strategy = \"IPQPSRateLimiterAdapter\""), medium);
+        Check.isTrue(medium.contains("paramString = \"qps=400\""), medium);
+    }
+
+    public static void testLoadReclassifies() throws Exception {
+        Path file = Fixtures.write(Fixtures.tempDir(), "ratelimit.properties", "# node behind a cache\n"
+            + "GetNowBlockServlet = expensive\n"
+            + "EstimateEnergyServlet = cheap\n"
+            + "protocol.Wallet/GetAccount = medium\n");
+        RateLimitProfile profile = new RateLimitProfile(4);
+        int size = profile.size();
+        profile.load(file);
+        Check.equal(size + 1, profile.size());
+        String http = profile.render(false, "  ");
+        Check.isTrue(entry(http, "GetNowBlockServlet").contains("permit=1"), http);
+        Check.equal(null, entry(http, "EstimateEnergyServlet"));
+        Check.isTrue(entry(profile.render(true, "  "), "protocol.Wallet/GetAccount").contains("qps=100"), "GetAccount not medium");
+    }
+
+    public static void testLoadRejectsUnknownComponentsAndClasses() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Path unknown = Fixtures.write(dir, "unknown.properties", "GetNowBlock = expensive\n");
+        Check.isTrue(Check.fails(IllegalArgumentException.class, () -> new RateLimitProfile(4).load(unknown))
+            .getMessage().startsWith("GetNowBlock: unknown component"), "unknown component accepted");
+        Path badClass = Fixtures.write(dir, "class.properties", "GetNowBlockServlet = costly\n");
+        Check.equal("GetNowBlockServlet = costly: class must be cheap, medium or expensive",
+            Check.fails(IllegalArgumentException.class, () -> new RateLimitProfile(4).load(badClass)).getMessage());
+    }
+}
@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+public class ReadinessTest {
+    /**
+     * An hsperfdata file with one entry per name: long counters, except names ending in "[]",
+     * which become byte vectors.
+     */
+    private static Path perfData(ByteOrder order, String[] names, long[] values) throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(4096).order(order);
+        // The magic is always big endian; the byte order field applies to the rest
+        buf.put(0, (byte) 0xca).put(1, (byte) 0xfe).put(2, (byte) 0xc0).put(3, (byte) 0xc0);
+        buf.put(4, (byte) (order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+        buf.putInt(24, 32);
+        buf.putInt(28, names.length);
+        int offset = 32;
+        for (int i = 0; i < names.length; i++) {
+            boolean vector = names[i].endsWith("[]");
+            byte[] name = names[i].replace("[]", "").getBytes(StandardCharsets.US_ASCII);
+            int nameOffset = 20;
+            int dataOffset = (nameOffset + name.length + 1 + 7) / 8 * 8;
+            int entryLength = dataOffset + 8;
+            buf.putInt(offset, entryLength);
+            buf.putInt(offset + 4, nameOffset);
+            buf.putInt(offset + 8, vector ? 8 : 0);
+            buf.put(offset + 12, (byte) (vector ? 'B' : 'J'));
+            buf.putInt(offset + 16, dataOffset);
+            for (int j = 0; j < name.length; j++) {
+                buf.put(offset + nameOffset + j, name[j]);
+            }
+            buf.putLong(offset + dataOffset, values[i]);
+            offset += entryLength;
+        }
+        Path file = Fixtures.tempDir().resolve("perfdata");
+        byte[] data = new byte[offset];
+        System.arraycopy(buf.array(), 0, data, 0, offset);
+        Files.write(file, data);
+        return file;
+    }
+
+    public static void testReadsCounterInEitherByteOrder() throws Exception {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            Path file = perfData(order, new String[] {"sun.ci.totalTime", "sun.ci.totalCompiles", "java.cls.loadedClasses"},
+                new long[] {123456789L, 4242L, 7000L});
+            Check.equal(4242L, Readiness.readPerfCounter(file, "sun.ci.totalCompiles"));
+            Check.equal(123456789L, Readiness.readPerfCounter(file, "sun.ci.totalTime"));
+            Check.equal(7000L, Readiness.readPerfCounter(file, "java.cls.loadedClasses"));
+        }
+    }
+
+    public static void testNameMustMatchExactly() throws Exception {
+        Path file = perfData(ByteOrder.LITTLE_ENDIAN, new String[] {"sun.ci.totalCompilesExtra", "sun.ci.total"},
+            new long[] {1L, 2L});
+        Check.equal(-1L, Readiness.readPerfCounter(file, "sun.ci.totalCompiles"));
+        Check.equal(2L, Readiness.readPerfCounter(file, "sun.ci.total"));
+    }
+
+    public static void testVectorsAreNotCounters() throws Exception {
+        Path file = perfData(ByteOrder.LITTLE_ENDIAN, new String[] {"sun.ci.totalCompiles[]"}, new long[] {5L});
+        Check.equal(-1L, Readiness.readPerfCounter(file, "sun.ci.totalCompiles"));
+    }
+
+    public static void testMissingOrInvalidFile() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Check.equal(-1L, Readiness.readPerfCounter(dir.resolve("12345"), "sun.ci.totalCompiles"));
+        Path garbage = Fixtures.write(dir, "garbage", "not an hsperfdata file, just some text of some length");
+        Check.equal(-1L, Readiness.readPerfCounter(garbage, "sun.ci.totalCompiles"));
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.file.Path;
+
+public class ResourceDetectorTest {
+    private static final long GB = 1024L * 1024 * 1024;
+
+    private static Path proc(long memTotalGB) throws Exception {
+        Path proc = Fixtures.tempDir();
+        Fixtures.write(proc, "meminfo", "MemTotal:       " + (memTotalGB * 1024 * 1024) + " kB\n");
+        return proc;
+    }
+
+    private static Path sys(int numaNodes) throws Exception {
+        Path sys = Fixtures.tempDir();
+        for (int i = 0; i < numaNodes; i++) {
+            Fixtures.mkdirs(sys, "devices/system/node/node" + i);
+        }
+        return sys;
+    }
+
+    public static void testV2TightestOfMaxAndHigh() throws Exception {
+        Path cgroup = Fixtures.tempDir();
+        Fixtures.write(cgroup, "cgroup.controllers", "cpu memory cpuset\n");
+        Fixtures.write(cgroup, "memory.max", String.valueOf(8 * GB));
+        Fixtures.write(cgroup, "memory.high", String.valueOf(6 * GB));
+        Fixtures.write(cgroup, "cpu.max", "150000 100000");
+        ResourceDetector.Resources res = new ResourceDetector(cgroup, proc(64), sys(1)).detect();
+        Check.equal(2, res.cgroupVersion);
+        Check.equal(6 * GB, res.memoryLimitBytes);
+        Check.equal("cgroup v2 memory.high", res.memorySource);
+        Check.equal(Math.min(1.5, Runtime.getRuntime().availableProcessors()), res.cpuCores, 1e-9);
+    }
+
+    public static void testV2UnlimitedFallsBackToMemTotal() throws Exception {
+        Path cgroup = Fixtures.tempDir();
+        Fixtures.write(cgroup, "cgroup.controllers", "cpu memory\n");
+        Fixtures.write(cgroup, "memory.max", "max");
+        Fixtures.write(cgroup, "cpu.max", "max 100000");
+        ResourceDetector.Resources res = new ResourceDetector(cgroup, proc(16), sys(1)).detect();
+        Check.equal(16 * GB, res.memoryLimitBytes);
+        Check.equal("/proc/meminfo MemTotal", res.memorySource);
+    }
+
+    public static void testV1SoftLimitIsNotASizingLimit() throws Exception {
+        Path cgroup = Fixtures.tempDir();
+        Fixtures.write(cgroup, "memory/memory.limit_in_bytes", String.valueOf(32 * GB));
+        Fixtures.write(cgroup, "memory/memory.soft_limit_in_bytes", String.valueOf(4 * GB));
+        ResourceDetector.Resources res = new ResourceDetector(cgroup, proc(128), sys(1)).detect();
+        Check.equal(1, res.cgroupVersion);
+        Check.equal(32 * GB, res.memoryLimitBytes);
+        Check.equal("cgroup v1 memory.limit_in_bytes", res.memorySource);
+        Check.equal(4 * GB, res.memorySoftLimitBytes);
+    }
+
+    public static void testV1UnlimitedIsIgnored() throws Exception {
+        Path cgroup = Fixtures.tempDir();
+        Fixtures.write(cgroup, "memory/memory.limit_in_bytes", "9223372036854771712");
+        ResourceDetector.Resources res = new ResourceDetector(cgroup, proc(24), sys(1)).detect();
+        Check.equal(24 * GB, res.memoryLimitBytes);
+    }
+
+    public static void testV1CpuQuota() throws Exception {
+        Path cgroup = Fixtures.tempDir();
+        Fixtures.write(cgroup, "cpu,cpuacct/cpu.cfs_quota_us", "50000");
+        Fixtures.write(cgroup, "cpu,cpuacct/cpu.cfs_period_us", "100000");
+        ResourceDetector.Resources res = new ResourceDetector(cgroup, proc(8), sys(1)).detect();
+        Check.equal(0.5, res.cpuCores, 1e-9);
+        Check.equal("cgroup v1 cpu.cfs_quota_us", res.cpuSource);
+    }
+
+    public static void testNumaNodesScopedToCpusetMems() throws Exception {
+        Path v1 = Fixtures.tempDir();
+        Fixtures.write(v1, "cpuset/cpuset.mems", "0-1");
+        Check.equal(2, new ResourceDetector(v1, proc(64), sys(4)).detect().numaNodes);
+
+        Path v2 = Fixtures.tempDir();
+        Fixtures.write(v2, "cgroup.controllers", "cpuset\n");
+        Fixtures.write(v2, "cpuset.mems.effective", "1");
+        Check.equal(1, new ResourceDetector(v2, proc(64), sys(2)).detect().numaNodes);
+
+        Path none = Fixtures.tempDir();
+        Fixtures.write(none, "cgroup.controllers", "cpu\n");
+        Check.equal(2, new ResourceDetector(none, proc(64), sys(2)).detect().numaNodes);
+    }
+
+    public static void testParseLimit() {
+        Check.equal(-1L, ResourceDetector.parseLimit("max"));
+        Check.equal(-1L, ResourceDetector.parseLimit(""));
+        Check.equal(-1L, ResourceDetector.parseLimit(null));
+        Check.equal(-1L, ResourceDetector.parseLimit("9223372036854771712"));
+        Check.equal(1073741824L, ResourceDetector.parseLimit("1073741824\n"));
+    }
+
+    public static void testCountCpuList() {
+        Check.equal(7, ResourceDetector.countCpuList("0-3,8,10-11"));
+        Check.equal(1, ResourceDetector.countCpuList("0"));
+        Check.equal(-1, ResourceDetector.countCpuList(""));
+        Check.equal(-1, ResourceDetector.countCpuList("a-b"));
+    }
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public class ShutdownTest {
+    /**
+     * Stand-in for FullNode: on SIGTERM it spends flushMs "closing its databases" before it exits.
+     * Progress is appended to the file given as the first argument: ready, term, flushed.
+     */
+    public static final class SlowChild {
+        public static void main(String[] args) throws Exception {
+            Path log = Paths.get(args[0]);
+            long flushMs = Long.parseLong(args[1]);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    append(log, "term");
+                    Thread.sleep(flushMs);
+                    append(log, "flushed");
+                } catch (Exception e) {
+                    // Killed while flushing
+                }
+            }));
+            append(log, "ready");
+            Thread.sleep(Long.MAX_VALUE);
+        }
+
+        private static void append(Path log, String line) throws IOException {
+            Files.write(log, (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+    }
+
+    private static Process start(Path log, long flushMs) throws Exception {
+        Files.write(log, new byte[0]);
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), SlowChild.class.getName(), log.toString(), String.valueOf(flushMs))
+            .inheritIO().start();
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!progress(log).contains("ready")) {
+            Check.isTrue(process.isAlive() && System.currentTimeMillis() < deadline, "child did not start");
+            Thread.sleep(20);
+        }
+        return process;
+    }
+
+    private static String progress(Path log) throws IOException {
+        return Arrays.toString(new String(Files.readAllBytes(log), StandardCharsets.UTF_8).trim().split("\n"));
+    }
+
+    public static void testForwardsTermAndWaitsForFlush() throws Exception {
+        Path log = Fixtures.tempDir().resolve("child.log");
+        Process process = start(log, 1500);
+        long saved = EntryPoint.shutdownDrainTimeoutSeconds;
+        EntryPoint.shutdownDrainTimeoutSeconds = 20;
+        EntryPoint.currentProcess = process;
+        try {
+            long started = System.nanoTime();
+            EntryPoint.forwardShutdown();
+            long elapsedMs = (System.nanoTime() - started) / 1000000;
+            Check.isTrue(!process.isAlive(), "child still running");
+            Check.equal("[ready, term, flushed]", progress(log));
+            // 143 = 128 + SIGTERM: the JVM exits through its shutdown hooks, not a kill
+            Check.equal(143, process.exitValue());
+            Check.isTrue(elapsedMs >= 1500 && elapsedMs < 20000, "stopped after " + elapsedMs + "ms");
+        } finally {
+            EntryPoint.currentProcess = null;
+            EntryPoint.shutdownDrainTimeoutSeconds = saved;
+            process.destroyForcibly();
+        }
+    }
+
+    public static void testKillsChildAfterGracePeriod() throws Exception {
+        Path log = Fixtures.tempDir().resolve("child.log");
+        Process process = start(log, 60000);
+        long saved = EntryPoint.shutdownDrainTimeoutSeconds;
+        EntryPoint.shutdownDrainTimeoutSeconds = 1;
+        try {
+            long started = System.nanoTime();
+            EntryPoint.stopProcess(process);
+            long elapsedMs = (System.nanoTime() - started) / 1000000;
+            Check.isTrue(!process.isAlive(), "child still running");
+            Check.equal("[ready, term]", progress(log));
+            // 137 = 128 + SIGKILL
+            Check.equal(137, process.exitValue());
+            Check.isTrue(elapsedMs >= 1000 && elapsedMs < 10000, "killed after " + elapsedMs + "ms");
+        } finally {
+            EntryPoint.shutdownDrainTimeoutSeconds = saved;
+            process.destroyForcibly();
+        }
+    }
+
+    public static void testNothingToForwardWithoutChild() {
+        EntryPoint.currentProcess = null;
+        long started = System.nanoTime();
+        EntryPoint.forwardShutdown();
+        Check.isTrue(System.nanoTime() - started < 1000000000L, "forwardShutdown waited without a child");
+    }
+}
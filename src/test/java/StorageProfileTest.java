@@ -0,0 +1,47 @@
+import java.nio.file.Path;
+
+public class StorageProfileTest {
+    private static final long MB = 1024L * 1024;
+
+    public static void testBuiltInTableIsKnown() {
+        for (String name : new String[]{"account", "storage-row", "DelegatedResource", "accountid-index", "transactionRetStore"}) {
+            Check.isTrue(StorageProfile.KNOWN_DATABASES.contains(name), name + " must be a known database");
+        }
+    }
+
+    public static void testLoadOverridesAndExtends() throws Exception {
+        Path file = Fixtures.write(Fixtures.tempDir(), "storage.properties",
+            "cacheBudgetMB = 4096\naccount = hot:12\nmarket_account = warm:1\nabi = cold:0\n");
+        StorageProfile profile = new StorageProfile(1024 * MB);
+        int builtIn = profile.size();
+        profile.load(file);
+        Check.equal(4096 * MB, profile.cacheBudgetBytes());
+        Check.equal(builtIn, profile.size());
+        String rendered = profile.render(64 * MB, 100, 200, 300, "");
+        Check.isTrue(rendered.contains("name = \"market_account\""), "market_account should be added");
+        Check.isTrue(!rendered.contains("name = \"abi\""), "a weight of 0 should drop abi");
+    }
+
+    public static void testLoadRejectsUnknownDatabase() throws Exception {
+        Path file = Fixtures.write(Fixtures.tempDir(), "storage.properties", "acount = hot:12\n");
+        IllegalArgumentException e = Check.fails(IllegalArgumentException.class, () -> new StorageProfile(1024 * MB).load(file));
+        Check.isTrue(e.getMessage().startsWith("acount = hot:12: unknown database"), e.getMessage());
+    }
+
+    public static void testLoadRejectsBadTierAndWeight() throws Exception {
+        Path dir = Fixtures.tempDir();
+        Check.fails(IllegalArgumentException.class,
+            () -> new StorageProfile(MB).load(Fixtures.write(dir, "a.properties", "account = warmish:1\n")));
+        Check.fails(IllegalArgumentException.class,
+            () -> new StorageProfile(MB).load(Fixtures.write(dir, "b.properties", "account = hot:-1\n")));
+        Check.fails(IllegalArgumentException.class,
+            () -> new StorageProfile(MB).load(Fixtures.write(dir, "c.properties", "account = hot\n")));
+    }
+
+    public static void testCacheSplitByWeight() {
+        StorageProfile profile = new StorageProfile(1024 * MB);
+        String rendered = profile.render(64 * MB, 100, 200, 300, "");
+        Check.isTrue(rendered.contains("name = \"account\",\n  blockSize = 16384,\n  writeBufferSize = 67108864"), rendered);
+        Check.isTrue(rendered.contains("name = \"block\",\n  blockSize = 65536,\n  writeBufferSize = 33554432"), rendered);
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.File;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Runs every public static no-argument test* method of the *Test classes next to this one.
+ * Exits with 1 if any check fails, so the image build stops.
+ */
+public class TestRunner {
+    public static void main(String[] args) throws Exception {
+        File dir = new File(TestRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        String[] files = dir.list();
+        List<String> classes = new ArrayList<>();
+        for (String file : files != null ? files : new String[0]) {
+            if (file.endsWith("Test.class")) {
+                classes.add(file.substring(0, file.length() - ".class".length()));
+            }
+        }
+        Collections.sort(classes);
+        int passed = 0;
+        int failed = 0;
+        for (String name : classes) {
+            Method[] methods = Class.forName(name).getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers())
+                        || method.getParameterCount() != 0) {
+                    continue;
+                }
+                try {
+                    method.invoke(null);
+                    passed++;
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.err.println("FAIL " + name + "." + method.getName() + ": " + e.getCause());
+                    for (StackTraceElement frame : e.getCause().getStackTrace()) {
+                        if (frame.getClassName().equals(name)) {
+                            System.err.println("    at " + frame);
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println(passed + " passed, " + failed + " failed");
+        if (failed > 0 || passed == 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+public class WatchdogTest {
+    public static void testBackoffDoublesUpToMax() {
+        Watchdog.RestartBudget budget = new Watchdog.RestartBudget(10, 3600000, 5000, 60000);
+        long[] expected = {5000, 10000, 20000, 40000, 60000, 60000};
+        for (int i = 0; i < expected.length; i++) {
+            Check.equal(expected[i], budget.record(i * 1000L));
+        }
+        Check.equal(expected.length, budget.count());
+    }
+
+    public static void testBackoffShiftIsCapped() {
+        // Without the cap on the shift, the 64th restart would shift by 63 and overflow
+        Watchdog.RestartBudget budget = new Watchdog.RestartBudget(100, 3600000, 1, Long.MAX_VALUE);
+        for (int i = 1; i <= 21; i++) {
+            Check.equal(1L << (i - 1), budget.record(i));
+        }
+        for (int i = 22; i <= 100; i++) {
+            Check.equal(1L << 20, budget.record(i));
+        }
+    }
+
+    public static void testCircuitOpensAfterMaxRestarts() {
+        Watchdog.RestartBudget budget = new Watchdog.RestartBudget(3, 60000, 1000, 60000);
+        Check.equal(1000L, budget.record(0));
+        Check.equal(2000L, budget.record(10000));
+        Check.equal(4000L, budget.record(20000));
+        Check.equal(-1L, budget.record(30000));
+        Check.equal(-1L, budget.record(40000));
+    }
+
+    public static void testOldRestartsLeaveTheWindow() {
+        Watchdog.RestartBudget budget = new Watchdog.RestartBudget(3, 60000, 1000, 60000);
+        budget.record(0);
+        budget.record(10000);
+        budget.record(20000);
+        // The restarts at 0 and 10000 are more than a window old
+        Check.equal(2000L, budget.record(70001));
+        Check.equal(2, budget.count());
+        // Restarts that run into the open circuit still count
+        Check.equal(4000L, budget.record(71000));
+        Check.equal(-1L, budget.record(72000));
+        Check.equal(-1L, budget.record(73000));
+        Check.equal(5, budget.count());
+        Check.equal(1000L, budget.record(200000));
+    }
+}